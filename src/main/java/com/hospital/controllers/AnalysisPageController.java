@@ -0,0 +1,620 @@
+package com.hospital.controllers;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.CompassOptimizer;
+import com.hospital.simulation.ConfigEvaluator;
+import com.hospital.simulation.ConfigParameter;
+import com.hospital.simulation.DistributionShape;
+import com.hospital.simulation.ParetoExplorer;
+import com.hospital.simulation.RankingAndSelection;
+import com.hospital.simulation.SensitivityAnalysis;
+import com.hospital.simulation.SimulationConfigs;
+import com.hospital.simulation.SimulationData;
+import com.hospital.simulation.SimulationEventListener;
+import com.hospital.simulation.Simulator;
+import com.hospital.ui.components.AnalysisTable;
+import com.hospital.ui.pages.AnalysisPage;
+import com.hospital.ui.pages.HistoryDetailPage;
+import com.hospital.utils.MappedHistoryRecord;
+import com.hospital.utils.SimulationHistoryService;
+import com.hospital.utils.StatisticsVisualization;
+import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
+import org.jfree.chart.ChartMouseEvent;
+import org.jfree.chart.ChartMouseListener;
+import org.jfree.chart.entity.XYItemEntity;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+public class AnalysisPageController {
+    private static final double CONFIDENCE = 0.95;
+
+    private final AnalysisPage view;
+    private final SimulationHistoryService historyService = SimulationHistoryService.getInstance();
+    private Map<String, JTextField> parameters;
+    private final AnalysisTable recommendationTable = new AnalysisTable(
+            "Setting", "Shortage Probability", "95% CI", "Meets Target", "Mean Inventory", "Runs");
+    private final AnalysisTable neighboursTable = new AnalysisTable(
+            "Neighbour", "Shortage Probability", "Inventory Difference (Best - Neighbour)", "Outcome");
+    private final AnalysisTable selectionTable = new AnalysisTable(
+            "Candidate", "Mean", "Std Deviation", "Runs", "Status");
+    private final AnalysisTable frontierTable = new AnalysisTable(
+            "Setting", "Shortage Probability", "95% CI", "Mean Inventory", "95% CI", "Runs", "Status");
+    private final AnalysisTable sobolTable = new AnalysisTable(
+            "Factor", "Range", "First Order", "95% CI (BCa)", "Total", "95% CI (BCa)");
+    private final AnalysisTable gradientTable = new AnalysisTable(
+            "Factor", "Difference Between", "Shortage Probability Change per Unit", "95% CI");
+
+    public AnalysisPageController(AnalysisPage view) {
+        this.view = view;
+
+        loadParams();
+        setupActions();
+    }
+
+    private void loadParams() {
+        parameters = view.addParameters(new String[][]{
+                {"simulationDays", "Simulation Days", "90"},
+                {"seed", "Seed", "1"},
+                {"shortageTarget", "Shortage Probability Target", "0.05"},
+                {"reviewTime", "Review Time Range", "1-15"},
+                {"basementCapacity", "Basement Capacity Range", "5-100"},
+                {"firstFloorCapacity", "First Floor Capacity Range (blank to keep)", ""},
+                {"firstFloorStartUnits", "First Floor Start Units Range (blank to keep)", ""},
+                {"basementStartUnits", "Basement Start Units Range (blank to keep)", ""},
+                {"initialRuns", "Initial Runs per Setting", "20"},
+                {"finalRuns", "Final Runs per Setting", "200"},
+                {"maxIterations", "Max Iterations", "40"},
+                {"candidates", "Candidates (review time/first floor capacity/basement capacity; ...)",
+                        "5/15/50; 7/15/60; 10/15/70; 14/15/90"},
+                {"measure", "Compare By (inventory, shortage days, shortage units)", "inventory"},
+                {"procedure", "Selection Procedure (kn, ocba)", "kn"},
+                {"pcs", "Probability of Correct Selection", "0.95"},
+                {"indifferenceZone", "Indifference Zone (KN)", "1.0"},
+                {"maxRuns", "Max Runs per Candidate", "1000"},
+                {"gridPoints", "Frontier Grid Points per Setting", "8"},
+                {"maxTilt", "Sensitivity Distribution Tilt (0 to keep shapes)", "0.5"},
+                {"baseSamples", "Sobol Base Samples", "128"},
+                {"runsPerSample", "Runs per Sobol Sample", "20"},
+                {"gradientRuns", "Runs per Gradient Point", "200"},
+        });
+    }
+
+    private void setupActions() {
+        view.addAction("Optimize", GoogleMaterialDesignIcons.TRENDING_UP, action -> startOptimization());
+        view.addAction("Select Best", GoogleMaterialDesignIcons.COMPARE_ARROWS, action -> startSelection());
+        view.addAction("Explore Frontier", GoogleMaterialDesignIcons.SHOW_CHART, action -> startExploration());
+        view.addAction("Sensitivity", GoogleMaterialDesignIcons.TUNE, action -> startSensitivity());
+    }
+
+    private ConfigEvaluator createEvaluator() {
+        return new ConfigEvaluator(
+                Integer.parseInt(parameters.get("simulationDays").getText().trim()),
+                Long.parseLong(parameters.get("seed").getText().trim()),
+                historyService.getResultCache());
+    }
+
+    private void startOptimization() {
+        CompassOptimizer optimizer;
+        try {
+            List<ConfigParameter> searched = new ArrayList<>();
+            List<int[]> ranges = new ArrayList<>();
+            addRanges(searched, ranges);
+            int[] lower = ranges.stream().mapToInt(range -> range[0]).toArray();
+            int[] upper = ranges.stream().mapToInt(range -> range[1]).toArray();
+
+            optimizer = new CompassOptimizer(createEvaluator(), SimulationConfigs.instance.snapshot(), searched,
+                    lower, upper, Double.parseDouble(parameters.get("shortageTarget").getText().trim()));
+            optimizer.setInitialRuns(Integer.parseInt(parameters.get("initialRuns").getText().trim()));
+            optimizer.setFinalRuns(Integer.parseInt(parameters.get("finalRuns").getText().trim()));
+            optimizer.setMaxIterations(Integer.parseInt(parameters.get("maxIterations").getText().trim()));
+            optimizer.setConfidence(CONFIDENCE);
+        } catch (IllegalArgumentException e) {
+            showErrorMessage("Invalid analysis parameters: " + e.getMessage());
+            return;
+        }
+
+        view.clearResults();
+        view.setActionsEnabled(false);
+        view.setStatus("Optimizing...");
+
+        SwingWorker<CompassOptimizer.Result, String> worker = new SwingWorker<>() {
+            @Override
+            protected CompassOptimizer.Result doInBackground() {
+                optimizer.setProgressListener(this::publish);
+                return optimizer.optimize();
+            }
+
+            @Override
+            protected void process(List<String> messages) {
+                view.setStatus(messages.get(messages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                view.setActionsEnabled(true);
+                try {
+                    showOptimization(optimizer, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    view.setStatus("Optimization failed");
+                    showErrorMessage("Optimization failed: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void addRanges(List<ConfigParameter> searched, List<int[]> ranges) {
+        addRange(searched, ranges, ConfigParameter.REVIEW_TIME, "reviewTime");
+        addRange(searched, ranges, ConfigParameter.BASEMENT_CAPACITY, "basementCapacity");
+        addRange(searched, ranges, ConfigParameter.FIRST_FLOOR_CAPACITY, "firstFloorCapacity");
+        addRange(searched, ranges, ConfigParameter.FIRST_FLOOR_START_UNITS, "firstFloorStartUnits");
+        addRange(searched, ranges, ConfigParameter.BASEMENT_START_UNITS, "basementStartUnits");
+        if (searched.isEmpty()) {
+            throw new IllegalArgumentException("At least one range is required");
+        }
+    }
+
+    private void addRange(List<ConfigParameter> searched, List<int[]> ranges, ConfigParameter parameter, String key) {
+        String text = parameters.get(key).getText().trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        String[] bounds = text.split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException(parameter.getLabel() + " range must look like 1-15");
+        }
+        int lower = Integer.parseInt(bounds[0].trim());
+        int upper = Integer.parseInt(bounds[1].trim());
+        if (lower < parameter.getMinimum() || upper < lower) {
+            throw new IllegalArgumentException(parameter.getLabel() + " range " + text + " is not valid");
+        }
+        searched.add(parameter);
+        ranges.add(new int[]{lower, upper});
+    }
+
+    private void showOptimization(CompassOptimizer optimizer, CompassOptimizer.Result result) {
+        ConfigEvaluator.Evaluation best = result.best();
+        List<Object[]> recommendation = new ArrayList<>();
+        recommendation.add(new Object[]{
+                optimizer.describe(result.point()),
+                String.format("%.4f", best.getShortageProbability()),
+                result.shortageInterval().toString(),
+                result.feasible() ? "Yes" : "No",
+                String.format("%.2f", best.getMeanInventory()),
+                best.getRuns()
+        });
+        recommendationTable.setRows(recommendation);
+
+        List<Object[]> neighbours = new ArrayList<>();
+        for (CompassOptimizer.NeighbourComparison neighbour : result.neighbours()) {
+            neighbours.add(new Object[]{
+                    optimizer.describe(neighbour.point()),
+                    String.format("%.4f", neighbour.evaluation().getShortageProbability()),
+                    neighbour.inventoryDifference().toString(),
+                    neighbour.outcome().getLabel()
+            });
+        }
+        neighboursTable.setRows(neighbours);
+
+        view.addDataTable("Recommended Setting", recommendationTable, 100);
+        view.addDataTable("Neighbour Comparison", neighboursTable, 250);
+        view.addChart("Best Objective by Iteration",
+                () -> StatisticsVisualization.createOptimizerProgressChart(result.bestObjectiveByIteration()));
+        view.showResults();
+
+        view.setStatus(String.format("Visited %d settings with %d runs; %s",
+                result.visitedSettings(), result.totalRuns(),
+                result.locallyOptimal() ? "no neighbour is better at " + Math.round(CONFIDENCE * 100) + "% confidence"
+                        : "some neighbours could not be separated"));
+    }
+
+    private void startSelection() {
+        RankingAndSelection selection;
+        RankingAndSelection.Procedure procedure;
+        try {
+            SimulationHistoryRecord.SimulationConfigSnapshot base = SimulationConfigs.instance.snapshot();
+            List<SimulationHistoryRecord.SimulationConfigSnapshot> candidates = new ArrayList<>();
+            for (String candidate : parameters.get("candidates").getText().split(";")) {
+                if (candidate.isBlank()) {
+                    continue;
+                }
+                String[] values = candidate.trim().split("/");
+                if (values.length != 3) {
+                    throw new IllegalArgumentException("Candidate " + candidate.trim() + " must look like 5/15/50");
+                }
+                SimulationHistoryRecord.SimulationConfigSnapshot config = base;
+                config = ConfigParameter.REVIEW_TIME.with(config, Integer.parseInt(values[0].trim()));
+                config = ConfigParameter.FIRST_FLOOR_CAPACITY.with(config, Integer.parseInt(values[1].trim()));
+                config = ConfigParameter.BASEMENT_CAPACITY.with(config, Integer.parseInt(values[2].trim()));
+                candidates.add(config);
+            }
+
+            String measure = parameters.get("measure").getText().trim().toLowerCase();
+            selection = new RankingAndSelection(createEvaluator(), candidates, switch (measure) {
+                case "inventory" -> RankingAndSelection.Measure.AVERAGE_INVENTORY;
+                case "shortage days" -> RankingAndSelection.Measure.SHORTAGE_DAYS;
+                case "shortage units" -> RankingAndSelection.Measure.SHORTAGE_UNITS;
+                default -> throw new IllegalArgumentException("Unknown measure " + measure);
+            });
+            procedure = RankingAndSelection.Procedure.valueOf(
+                    parameters.get("procedure").getText().trim().toUpperCase());
+            double pcs = Double.parseDouble(parameters.get("pcs").getText().trim());
+            if (pcs <= 0 || pcs >= 1) {
+                throw new IllegalArgumentException("Probability of correct selection must be between 0 and 1");
+            }
+            int initialRuns = Integer.parseInt(parameters.get("initialRuns").getText().trim());
+            int maxRuns = Integer.parseInt(parameters.get("maxRuns").getText().trim());
+            if (initialRuns < 2 || maxRuns < initialRuns) {
+                throw new IllegalArgumentException("Runs must be at least 2 and the maximum at least the initial runs");
+            }
+            selection.setProbabilityOfCorrectSelection(pcs);
+            selection.setIndifferenceZone(Double.parseDouble(parameters.get("indifferenceZone").getText().trim()));
+            selection.setInitialRuns(initialRuns);
+            selection.setMaxRunsPerCandidate(maxRuns);
+        } catch (IllegalArgumentException e) {
+            showErrorMessage("Invalid analysis parameters: " + e.getMessage());
+            return;
+        }
+
+        view.clearResults();
+        view.setActionsEnabled(false);
+        view.setStatus("Selecting...");
+
+        SwingWorker<RankingAndSelection.Result, String> worker = new SwingWorker<>() {
+            @Override
+            protected RankingAndSelection.Result doInBackground() {
+                selection.setProgressListener(this::publish);
+                return selection.select(procedure);
+            }
+
+            @Override
+            protected void process(List<String> messages) {
+                view.setStatus(messages.get(messages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                view.setActionsEnabled(true);
+                try {
+                    showSelection(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    view.setStatus("Selection failed");
+                    showErrorMessage("Selection failed: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showSelection(RankingAndSelection.Result result) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < result.candidates().size(); i++) {
+            RankingAndSelection.Candidate candidate = result.candidates().get(i);
+            String status;
+            if (i == result.bestIndex()) {
+                status = result.selected() ? "Selected" : "Best so far";
+            } else if (candidate.eliminatedAtRuns() >= 0) {
+                status = "Eliminated after " + candidate.eliminatedAtRuns() + " runs";
+            } else {
+                status = "";
+            }
+            rows.add(new Object[]{
+                    String.format("Review %d, FF %d, Basement %d", candidate.config().getReviewTime(),
+                            candidate.config().getFirstFloorMaxCapacity(),
+                            candidate.config().getBasementFloorMaxCapacity()),
+                    String.format("%.4f", candidate.mean()),
+                    String.format("%.4f", candidate.stdDeviation()),
+                    candidate.runs(),
+                    status
+            });
+        }
+        selectionTable.setRows(rows);
+
+        view.addDataTable(result.procedure().getLabel() + " Selection by " + result.measure().getLabel(),
+                selectionTable, 250);
+        view.showResults();
+
+        view.setStatus(String.format("%s after %d stages and %d runs; probability of correct selection %.4f",
+                result.selected() ? "Best identified" : "Run budget spent before the best was identified",
+                result.stages(), result.totalRuns(), result.probabilityOfCorrectSelection()));
+    }
+
+    private void startExploration() {
+        ParetoExplorer explorer;
+        int simulationDays;
+        long seed;
+        try {
+            List<ConfigParameter> explored = new ArrayList<>();
+            List<int[]> ranges = new ArrayList<>();
+            addRanges(explored, ranges);
+            int[] lower = ranges.stream().mapToInt(range -> range[0]).toArray();
+            int[] upper = ranges.stream().mapToInt(range -> range[1]).toArray();
+
+            ConfigEvaluator evaluator = createEvaluator();
+            simulationDays = evaluator.getSimulationDays();
+            seed = evaluator.getSeed();
+            explorer = new ParetoExplorer(evaluator, SimulationConfigs.instance.snapshot(), explored, lower, upper);
+            explorer.setGridPoints(Integer.parseInt(parameters.get("gridPoints").getText().trim()));
+            explorer.setInitialRuns(Integer.parseInt(parameters.get("initialRuns").getText().trim()));
+            explorer.setFinalRuns(Integer.parseInt(parameters.get("finalRuns").getText().trim()));
+            explorer.setConfidence(CONFIDENCE);
+        } catch (IllegalArgumentException e) {
+            showErrorMessage("Invalid analysis parameters: " + e.getMessage());
+            return;
+        }
+
+        view.clearResults();
+        view.setActionsEnabled(false);
+        view.setStatus("Exploring...");
+
+        SwingWorker<ParetoExplorer.Result, String> worker = new SwingWorker<>() {
+            @Override
+            protected ParetoExplorer.Result doInBackground() {
+                explorer.setProgressListener(this::publish);
+                return explorer.explore();
+            }
+
+            @Override
+            protected void process(List<String> messages) {
+                view.setStatus(messages.get(messages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                view.setActionsEnabled(true);
+                try {
+                    showExploration(explorer, get(), simulationDays, seed);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    view.setStatus("Exploration failed");
+                    showErrorMessage("Exploration failed: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showExploration(ParetoExplorer explorer, ParetoExplorer.Result result, int simulationDays,
+                                 long seed) {
+        List<ParetoExplorer.Point> points = new ArrayList<>(result.points());
+        points.sort(Comparator.comparing(ParetoExplorer.Point::status)
+                .thenComparingDouble(point -> point.evaluation().getShortageProbability()));
+        List<Object[]> rows = new ArrayList<>();
+        for (ParetoExplorer.Point point : points) {
+            rows.add(new Object[]{
+                    explorer.describe(point.setting()),
+                    String.format("%.4f", point.evaluation().getShortageProbability()),
+                    point.shortageInterval().toString(),
+                    String.format("%.2f", point.evaluation().getMeanInventory()),
+                    point.inventoryInterval().toString(),
+                    point.evaluation().getRuns(),
+                    point.status() == ParetoExplorer.Status.PRUNED
+                            ? "Pruned after " + point.prunedAtRuns() + " runs" : point.status().getLabel()
+            });
+        }
+        frontierTable.setRows(rows);
+
+        view.addChart("Pareto Frontier (click a point to open its study)",
+                () -> StatisticsVisualization.createParetoFrontierChart(result.points()), new ChartMouseListener() {
+                    @Override
+                    public void chartMouseClicked(ChartMouseEvent event) {
+                        if (!(event.getEntity() instanceof XYItemEntity item)) {
+                            return;
+                        }
+                        double shortage = item.getDataset().getXValue(item.getSeriesIndex(), item.getItem());
+                        double inventory = item.getDataset().getYValue(item.getSeriesIndex(), item.getItem());
+                        for (ParetoExplorer.Point point : result.points()) {
+                            if (point.evaluation().getShortageProbability() == shortage
+                                    && point.evaluation().getMeanInventory() == inventory) {
+                                openStudy(explorer.describe(point.setting()), point.evaluation(), simulationDays,
+                                        seed);
+                                return;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void chartMouseMoved(ChartMouseEvent event) {
+                    }
+                });
+        view.addDataTable("Explored Settings", frontierTable, 350);
+        view.showResults();
+
+        view.setStatus(String.format("Explored %d settings in %d stages with %d runs",
+                result.points().size(), result.stages(), result.totalRuns()));
+    }
+
+    /**
+     * Runs the full study behind one explored setting with the same horizon, seed and run count, saves it to
+     * history and opens it the way the history page does.
+     */
+    private void openStudy(String description, ConfigEvaluator.Evaluation evaluation, int simulationDays,
+                           long seed) {
+        view.setStatus("Running the study for " + description + "...");
+        SwingWorker<MappedHistoryRecord, Void> worker = new SwingWorker<>() {
+            @Override
+            protected MappedHistoryRecord doInBackground() {
+                SimulationHistoryRecord.SimulationConfigSnapshot config = evaluation.getConfig();
+                Simulator simulator = new Simulator(config);
+                simulator.setRunCache(historyService.getResultCache());
+                simulator.setSimulationDays(simulationDays);
+                simulator.setSimulationRuns(evaluation.getRuns());
+                simulator.setSeed(seed);
+                simulator.startSimulation();
+
+                List<SimulationData> runs = simulator.getResults().getRuns();
+                List<SimulationHistoryRecord.EventRow> events = new ArrayList<>();
+                Simulator.replayRun(config, simulationDays, runs.get(0).seed, new SimulationEventListener() {
+                    @Override
+                    public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
+                                           boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
+                                           int daysTillReview, int orderSize, int leadTime) {
+                        events.add(new SimulationHistoryRecord.EventRow(
+                                day,
+                                demand,
+                                firstFloorStart,
+                                basementFloorStart,
+                                didTransfer,
+                                firstFloorEnd,
+                                basementFloorEnd,
+                                daysTillReview,
+                                orderSize == -1 ? null : orderSize,
+                                leadTime == -1 ? null : leadTime
+                        ));
+                    }
+
+                    @Override
+                    public void onDeliveryEvent(int day, int orderSize) {
+                    }
+                });
+
+                SimulationHistoryRecord record = new SimulationHistoryRecord(
+                        null,
+                        new SimulationHistoryRecord.SimulationParams(simulationDays, runs.size(),
+                                Simulator.ENGINE_VERSION),
+                        config,
+                        events,
+                        new ArrayList<>(SimulationData.calculateStatistics(runs)),
+                        new ArrayList<>(runs.stream()
+                                .map(SimulationHistoryRecord.SimulationRunSnapshot::fromSimulationData)
+                                .toList())
+                );
+                historyService.saveSimulation(record);
+                return historyService.openRecord(record.getId());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    MappedHistoryRecord record = get();
+                    view.setStatus("Opened the study for " + description);
+                    HistoryDetailPage detailPage = new HistoryDetailPage(record);
+                    JFrame detailFrame = new JFrame("Simulation Details");
+                    detailFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                    detailFrame.setContentPane(detailPage);
+                    detailFrame.pack();
+                    detailFrame.setLocationRelativeTo(null);
+                    detailFrame.setVisible(true);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    view.setStatus("Study failed");
+                    showErrorMessage("Failed to run the study: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void startSensitivity() {
+        SensitivityAnalysis analysis;
+        try {
+            List<ConfigParameter> varied = new ArrayList<>();
+            List<int[]> ranges = new ArrayList<>();
+            addRanges(varied, ranges);
+            List<SensitivityAnalysis.Factor> factors = new ArrayList<>();
+            for (int i = 0; i < varied.size(); i++) {
+                factors.add(SensitivityAnalysis.Factor.of(varied.get(i), ranges.get(i)[0], ranges.get(i)[1]));
+            }
+            double maxTilt = Double.parseDouble(parameters.get("maxTilt").getText().trim());
+            if (maxTilt < 0) {
+                throw new IllegalArgumentException("Distribution tilt must not be negative");
+            }
+            if (maxTilt > 0) {
+                for (DistributionShape shape : DistributionShape.values()) {
+                    factors.add(SensitivityAnalysis.Factor.of(shape, maxTilt));
+                }
+            }
+
+            analysis = new SensitivityAnalysis(createEvaluator(), SimulationConfigs.instance.snapshot(), factors);
+            analysis.setBaseSamples(Integer.parseInt(parameters.get("baseSamples").getText().trim()));
+            analysis.setRunsPerSample(Integer.parseInt(parameters.get("runsPerSample").getText().trim()));
+            analysis.setGradientRuns(Integer.parseInt(parameters.get("gradientRuns").getText().trim()));
+            analysis.setConfidence(CONFIDENCE);
+        } catch (IllegalArgumentException e) {
+            showErrorMessage("Invalid analysis parameters: " + e.getMessage());
+            return;
+        }
+
+        view.clearResults();
+        view.setActionsEnabled(false);
+        view.setStatus("Analyzing sensitivity...");
+
+        SwingWorker<SensitivityAnalysis.Result, String> worker = new SwingWorker<>() {
+            @Override
+            protected SensitivityAnalysis.Result doInBackground() {
+                analysis.setProgressListener(this::publish);
+                return analysis.analyze();
+            }
+
+            @Override
+            protected void process(List<String> messages) {
+                view.setStatus(messages.get(messages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                view.setActionsEnabled(true);
+                try {
+                    showSensitivity(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    view.setStatus("Sensitivity analysis failed");
+                    showErrorMessage("Sensitivity analysis failed: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showSensitivity(SensitivityAnalysis.Result result) {
+        List<Object[]> indices = new ArrayList<>();
+        for (SensitivityAnalysis.Index index : result.indices()) {
+            indices.add(new Object[]{
+                    index.factor().label(),
+                    formatRange(index.factor(), index.factor().lower(), index.factor().upper()),
+                    String.format("%.4f", index.firstOrder().estimate()),
+                    index.firstOrder().bca() == null ? "N/A" : index.firstOrder().bca().toString(),
+                    String.format("%.4f", index.total().estimate()),
+                    index.total().bca() == null ? "N/A" : index.total().bca().toString()
+            });
+        }
+        sobolTable.setRows(indices);
+
+        List<Object[]> gradients = new ArrayList<>();
+        for (SensitivityAnalysis.Gradient gradient : result.gradients()) {
+            gradients.add(new Object[]{
+                    gradient.factor().label(),
+                    formatRange(gradient.factor(), gradient.from(), gradient.to()),
+                    String.format("%.4f", gradient.estimate()),
+                    gradient.interval().toString()
+            });
+        }
+        gradientTable.setRows(gradients);
+
+        view.addDataTable("Sobol Indices of Shortage Probability", sobolTable, 300);
+        view.addChart("Sobol Indices", () -> StatisticsVisualization.createSobolIndicesChart(result.indices()));
+        view.addDataTable("Gradients at the Current Settings", gradientTable, 300);
+        view.showResults();
+
+        view.setStatus(String.format("Evaluated %d sample points with %d runs; shortage probability mean %.4f, "
+                + "variance %.4f", result.samplePoints(), result.totalRuns(), result.shortageMean(),
+                result.shortageVariance()));
+    }
+
+    private static String formatRange(SensitivityAnalysis.Factor factor, double from, double to) {
+        return factor.parameter() != null
+                ? String.format("%d - %d", Math.round(from), Math.round(to))
+                : String.format("%.2f - %.2f", from, to);
+    }
+
+    public void showErrorMessage(String message) {
+        JOptionPane.showMessageDialog(view, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -1,12 +1,22 @@
 package com.hospital.controllers;
 
 import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.RunDayIndex;
+import com.hospital.simulation.RunSeriesSource;
+import com.hospital.simulation.SimulationEventListener;
+import com.hospital.simulation.SimulationResults;
+import com.hospital.simulation.Simulator;
 import com.hospital.ui.components.ProbabilitiesTable;
+import com.hospital.ui.components.RunEventsPanel;
+import com.hospital.ui.components.RunHeatmapPanel;
 import com.hospital.ui.components.SimulationEventsTable;
 import com.hospital.ui.components.SimulationStatisticsTable;
 import com.hospital.ui.pages.HistoryDetailPage;
+import com.hospital.utils.MappedHistoryRecord;
 import com.hospital.utils.StatisticsVisualization;
+import com.hospital.utils.charts.RunHeatmap;
 
+import java.awt.Color;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Map;
@@ -16,10 +26,12 @@ public class HistoryDetailPageController {
 
     private final HistoryDetailPage view;
     private final SimulationHistoryRecord record;
+    private final MappedHistoryRecord runSource;
 
-    public HistoryDetailPageController(HistoryDetailPage view, SimulationHistoryRecord record) {
+    public HistoryDetailPageController(HistoryDetailPage view, MappedHistoryRecord runSource) {
         this.view = view;
-        this.record = record;
+        this.record = runSource.getRecord();
+        this.runSource = runSource;
 
         loadRecord();
     }
@@ -65,6 +77,61 @@ public class HistoryDetailPageController {
     }
 
     private void loadEvents() {
+        long[] runSeeds = record.getSimulationParams().engineVersion() == Simulator.ENGINE_VERSION
+                ? runSource.getRunSeeds()
+                : null;
+        if (runSeeds == null || runSeeds.length == 0) {
+            loadStoredEvents();
+            return;
+        }
+
+        RunEventsPanel runEventsPanel = new RunEventsPanel();
+        SimulationEventsTable eventsTable = runEventsPanel.getEventsTable();
+        SimulationEventListener listener = new SimulationEventListener() {
+            @Override
+            public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
+                                   boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
+                                   int daysTillReview, int orderSize, int leadTime) {
+                eventsTable.addEventRow(
+                        day,
+                        demand,
+                        firstFloorStart,
+                        basementFloorStart,
+                        didTransfer ? "Yes" : "No",
+                        firstFloorEnd,
+                        basementFloorEnd,
+                        daysTillReview,
+                        orderSize == -1 ? "N/A" : String.valueOf(orderSize),
+                        leadTime == -1 ? "N/A" : String.valueOf(leadTime)
+                );
+            }
+
+            @Override
+            public void onDeliveryEvent(int day, int orderSize) {
+            }
+        };
+
+        int[][] totals = runSource.getRunTotals();
+        runEventsPanel.setRuns(runSeeds.length, totals[RunSeriesSource.TOTAL_SHORTAGE_DAYS],
+                totals[RunSeriesSource.TOTAL_SHORTAGE_AMOUNT]);
+        runEventsPanel.setRunSelectedAction(action -> {
+            int run = runEventsPanel.getSelectedRun();
+            if (run >= 0) {
+                eventsTable.clearEvents();
+                Simulator.replayRun(record.getConfigSnapshot(), record.getSimulationParams().simulationDays(),
+                        runSeeds[run], listener);
+            }
+        });
+        Simulator.replayRun(record.getConfigSnapshot(), record.getSimulationParams().simulationDays(),
+                runSeeds[0], listener);
+
+        view.addDataTable("Run Events", runEventsPanel, 450);
+    }
+
+    /**
+     * Records from before runs could be replayed only have the first run's events.
+     */
+    private void loadStoredEvents() {
         SimulationEventsTable eventsTable = new SimulationEventsTable();
         eventsTable.setEnabled(false);
 
@@ -94,22 +161,43 @@ public class HistoryDetailPageController {
     }
 
     private void loadCharts() {
-        var simulationRuns = record.rebuildSimulationRuns();
+        SimulationHistoryRecord.SimulationConfigSnapshot config = record.getConfigSnapshot();
+        // Aggregates are built on the chart builder threads from only the stored columns each chart reads
+        SimulationResults results = SimulationResults.fromSource(
+                runSource,
+                Math.max(config.getFirstFloorMaxCapacity(), config.getFirstFloorStartUnits()),
+                Math.max(config.getBasementFloorMaxCapacity(), config.getBasementFloorStartUnits())
+        );
+        view.addDataTable("First Floor Inventory Heatmap", new RunHeatmapPanel(() -> RunHeatmap.ofSeries(
+                runSource.getFirstFloorEndUnits(), runSource.getTotalDays(),
+                Math.max(config.getFirstFloorMaxCapacity(), config.getFirstFloorStartUnits())),
+                Color.BLUE, "ending units"), 400);
+        view.addDataTable("Shortage Heatmap", new RunHeatmapPanel(
+                () -> RunHeatmap.ofFlag(results.getRunDayIndex(), RunDayIndex.Flag.SHORTAGE),
+                Color.RED, "shortage"), 400);
         view.addChart("First Run's Review Cycle Timeline",
-                StatisticsVisualization.createReviewCycleTimeline(simulationRuns));
+                () -> StatisticsVisualization.createReviewCycleTimeline(results.getRuns()));
         view.addChart("Average Ending First Floor Inventory",
-                StatisticsVisualization.createAvgEndingFFChart(simulationRuns));
+                () -> StatisticsVisualization.createAvgEndingFFChart(results.getDailyStatistics()));
         view.addChart("Average Ending Basement Inventory",
-                StatisticsVisualization.createAvgEndingBasementChart(simulationRuns));
+                () -> StatisticsVisualization.createAvgEndingBasementChart(results.getDailyStatistics()));
+        view.addChart("First Floor Inventory Quantiles",
+                () -> StatisticsVisualization.createInventoryFanChart("First Floor Ending Inventory Quantiles",
+                        results.getFirstFloorHistogram(), Color.BLUE));
+        view.addChart("Basement Inventory Quantiles",
+                () -> StatisticsVisualization.createInventoryFanChart("Basement Ending Inventory Quantiles",
+                        results.getBasementHistogram(), Color.GREEN));
         view.addChart("Distribution of Daily Demand",
-                StatisticsVisualization.createDailyDemandHistogram(simulationRuns));
+                () -> StatisticsVisualization.createDailyDemandHistogram(results.getDailyDemandHistogram()));
         view.addChart("Distribution of Lead Time",
-                StatisticsVisualization.createLeadTimeHistogram(simulationRuns));
+                () -> StatisticsVisualization.createLeadTimeHistogram(results.getLeadTimeHistogram()));
         view.addChart("Shortage Days Per Run",
-                StatisticsVisualization.createShortageDaysChart(simulationRuns));
+                () -> StatisticsVisualization.createShortageDaysChart(results.getRunColumns()));
+        view.addChart("Shortage Frequency by Day",
+                () -> StatisticsVisualization.createShortageFrequencyChart(results.getRunDayIndex()));
         view.addChart("Total Basement Transfers Per Run",
-                StatisticsVisualization.createTransfersChart(simulationRuns));
+                () -> StatisticsVisualization.createTransfersChart(results.getRunColumns()));
         view.addChart("Ending FF & Ending B Inventory",
-                StatisticsVisualization.createDualAxisInventoryChart(simulationRuns));
+                () -> StatisticsVisualization.createDualAxisInventoryChart(results.getDailyStatistics()));
     }
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.hospital.controllers;
 
+import com.hospital.models.HistoryQuery;
 import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.models.SimulationHistorySummary;
 import com.hospital.ui.pages.HistoryDetailPage;
 import com.hospital.ui.pages.HistoryPage;
-import com.hospital.utils.SimulationHistoryStorage;
+import com.hospital.utils.MappedHistoryRecord;
+import com.hospital.utils.SimulationHistoryService;
 
 import javax.swing.*;
 import java.time.format.DateTimeFormatter;
@@ -13,35 +16,109 @@ public class HistoryPageController {
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final HistoryPage view;
-    private final SimulationHistoryStorage historyStorage;
+    private final SimulationHistoryService historyService;
+    private long loadedVersion = -1;
+    private HistoryQuery query = HistoryQuery.all();
 
     public HistoryPageController(HistoryPage view) {
         this.view = view;
-        this.historyStorage = new SimulationHistoryStorage();
+        this.historyService = SimulationHistoryService.getInstance();
+        this.historyService.addChangeListener(() -> SwingUtilities.invokeLater(this::loadHistory));
+        setupActions();
     }
 
+    private void setupActions() {
+        view.setAddFilterAction(action -> addFilter());
+        view.setClearFiltersAction(action -> clearFilters());
+    }
+
+    /**
+     * Rebuilds the list only if history or the filter changed since it was last shown.
+     */
     public void loadHistory() {
-        List<SimulationHistoryRecord> history = historyStorage.loadHistory();
+        long version = historyService.getVersion();
+        if (version == loadedVersion) {
+            return;
+        }
+        loadedVersion = version;
+
+        view.setFilterFields(historyService.getQueryFields());
+        long start = System.nanoTime();
+        List<SimulationHistorySummary> history = historyService.query(query);
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
         view.clearHistory();
 
+        if (query.isEmpty()) {
+            view.setFilterStatus(" ");
+        } else {
+            view.setFilterStatus(String.format("%s: %d of %d simulations (%.1f ms)",
+                    query, history.size(), historyService.getSummaries().size(), elapsedMillis));
+        }
+
         if (history.isEmpty()) {
-            view.showEmptyState();
+            if (query.isEmpty()) {
+                view.showEmptyState();
+            } else {
+                view.showEmptyState("No simulations match the filters.");
+            }
             return;
         }
 
-        for (SimulationHistoryRecord record : history) {
-            SimulationHistoryRecord.SimulationParams params = record.getSimulationParams();
+        for (SimulationHistorySummary summary : history) {
+            SimulationHistoryRecord.SimulationParams params = summary.getSimulationParams();
             String label = String.format(
                     "Simulation - %s | Days: %d | Runs: %d",
-                    record.getTimestamp().format(DATE_FORMAT),
+                    summary.getTimestamp().format(DATE_FORMAT),
                     params.simulationDays(),
                     params.simulationRuns()
             );
-            view.addHistoryItem(label, record);
+            view.addHistoryItem(label, summary);
         }
     }
 
-    public void showHistoryDetail(SimulationHistoryRecord record) {
+    private void addFilter() {
+        String field = view.getFilterField();
+        String text = view.getFilterValue().trim();
+        if (field == null || text.isEmpty()) {
+            return;
+        }
+
+        double value;
+        try {
+            // Probabilities are stored as fractions, so "10%" means 0.1
+            value = text.endsWith("%")
+                    ? Double.parseDouble(text.substring(0, text.length() - 1).trim()) / 100.0
+                    : Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(view, "Filter value must be a number.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        query = query.and(field, view.getFilterOperator(), value);
+        view.clearFilterValue();
+        loadedVersion = -1;
+        loadHistory();
+    }
+
+    public void filterSameConfig(SimulationHistorySummary summary) {
+        query = HistoryQuery.all().withConfig(summary.getConfigHash());
+        loadedVersion = -1;
+        loadHistory();
+    }
+
+    private void clearFilters() {
+        query = HistoryQuery.all();
+        loadedVersion = -1;
+        loadHistory();
+    }
+
+    public void showHistoryDetail(SimulationHistorySummary summary) {
+        MappedHistoryRecord record = historyService.openRecord(summary.getId());
+        if (record == null) {
+            loadHistory();
+            return;
+        }
+
         HistoryDetailPage detailPage = new HistoryDetailPage(record);
         JFrame detailFrame = new JFrame("Simulation Details");
         detailFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -51,7 +128,7 @@ public class HistoryPageController {
         detailFrame.setVisible(true);
     }
 
-    public void deleteHistory(SimulationHistoryRecord record) {
+    public void deleteHistory(SimulationHistorySummary summary) {
         int confirm = JOptionPane.showConfirmDialog(
                 view,
                 "Are you sure you want to delete this simulation record?",
@@ -60,7 +137,7 @@ public class HistoryPageController {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            historyStorage.deleteSimulation(record);
+            historyService.deleteSimulation(summary.getId());
             loadHistory();
         }
     }
@@ -1,55 +1,67 @@
 package com.hospital.controllers;
 
 import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.EventRecorder;
+import com.hospital.simulation.RunColumns;
+import com.hospital.simulation.RunDayIndex;
 import com.hospital.simulation.SimulationConfigs;
 import com.hospital.simulation.Simulator;
 import com.hospital.simulation.SimulationData;
 import com.hospital.simulation.SimulationEventListener;
+import com.hospital.simulation.SimulationResults;
+import com.hospital.simulation.SteadyState;
+import com.hospital.ui.components.RunEventsPanel;
+import com.hospital.ui.components.RunHeatmapPanel;
 import com.hospital.ui.components.SimulationEventsTable;
 import com.hospital.ui.components.SimulationStatisticsTable;
+import com.hospital.ui.components.SteadyStateTable;
 import com.hospital.ui.pages.SimulationPage;
-import com.hospital.utils.SimulationHistoryStorage;
+import com.hospital.utils.SimulationHistoryService;
 import com.hospital.utils.StatisticsVisualization;
+import com.hospital.utils.charts.RunHeatmap;
 
 import javax.swing.*;
+import java.awt.Color;
 import java.util.*;
 
 public class SimulationPageController {
     private final SimulationPage view;
     private final Simulator simulator;
     private Map<String, JTextField> parameters;
-    private final SimulationEventsTable simulationEventsTable = new SimulationEventsTable();
+    private final RunEventsPanel runEventsPanel = new RunEventsPanel();
+    private final SimulationEventsTable simulationEventsTable = runEventsPanel.getEventsTable();
+    private final SimulationEventListener eventsTableListener = new SimulationEventListener() {
+        @Override
+        public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
+                               boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
+                               int daysTillReview, int orderSize, int leadTime) {
+            simulationEventsTable.addEventRow(
+                    day,
+                    demand,
+                    firstFloorStart,
+                    basementFloorStart,
+                    didTransfer ? "Yes" : "No",
+                    firstFloorEnd,
+                    basementFloorEnd,
+                    daysTillReview,
+                    orderSize == -1 ? "N/A" : String.valueOf(orderSize),
+                    leadTime == -1 ? "N/A" : String.valueOf(leadTime)
+            );
+        }
+
+        @Override
+        public void onDeliveryEvent(int day, int orderSize) {
+        }
+    };
     private final SimulationStatisticsTable statisticsTable = new SimulationStatisticsTable();
-    private final SimulationHistoryStorage historyStorage = new SimulationHistoryStorage();
+    private final SteadyStateTable steadyStateTable = new SteadyStateTable();
+    private final SimulationHistoryService historyService = SimulationHistoryService.getInstance();
+    private EventRecorder eventRecorder;
 
     public SimulationPageController(SimulationPage view) {
         this.view = view;
         this.simulator = new Simulator();
-        this.simulator.setEventListener(new SimulationEventListener() {
-            @Override
-            public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
-                                 boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
-                                 int daysTillReview, int orderSize, int leadTime) {
-                SwingUtilities.invokeLater(() -> {
-                    simulationEventsTable.addEventRow(
-                        day,
-                        demand,
-                        firstFloorStart,
-                        basementFloorStart,
-                        didTransfer ? "Yes" : "No",
-                        firstFloorEnd,
-                        basementFloorEnd,
-                        daysTillReview,
-                        orderSize == -1 ? "N/A" : String.valueOf(orderSize),
-                        leadTime == -1 ? "N/A" : String.valueOf(leadTime)
-                    );
-                });
-            }
-
-            @Override
-            public void onDeliveryEvent(int day, int orderSize) {
-            }
-        });
+        this.simulator.setRunCache(historyService.getResultCache());
 
         loadParams();
         setupActions();
@@ -59,6 +71,8 @@ public class SimulationPageController {
         parameters = view.addParameters(new String[][]{
                 {"simulationDays", "Simulation Days", "10"},
                 {"simulationRuns", "Simulation Runs", "10"},
+                {"seed", "Seed (blank for random)", ""},
+                {"batches", "Batch Means Batches (0 for replications)", "0"},
         });
     }
 
@@ -68,75 +82,112 @@ public class SimulationPageController {
 
         simulator.setSimulationDays(Integer.parseInt(parameters.get("simulationDays").getText()));
         simulator.setSimulationRuns(Integer.parseInt(parameters.get("simulationRuns").getText()));
+        String seed = parameters.get("seed").getText().trim();
+        simulator.setSeed(seed.isEmpty() ? null : Long.parseLong(seed));
+
+        // The events of executed runs are kept so the run picker reads them; cached runs are replayed on demand
+        if (eventRecorder != null) {
+            eventRecorder.close();
+        }
+        eventRecorder = new EventRecorder();
+        simulator.setEventRecorder(eventRecorder);
 
+        String batches = parameters.get("batches").getText().trim();
+        if (!batches.isEmpty() && Integer.parseInt(batches) > 0) {
+            startBatchMeans(Integer.parseInt(batches));
+            return;
+        }
         simulator.startSimulation();
-        
-        List<SimulationData> simulationData = simulator.getSimulationData();
+
+        SimulationResults results = simulator.getResults();
+        List<SimulationData> simulationData = results.getRuns();
         List<SimulationData.Statistic> statistics = SimulationData.calculateStatistics(simulationData);
         statisticsTable.setStatistics(new ArrayList<>(statistics));
-        
-        view.addDataTable("First Run's Events", simulationEventsTable, 400);
+
+        RunColumns runColumns = results.getRunColumns();
+        runEventsPanel.setRuns(runColumns.size(), runColumns.getShortageDays(), runColumns.getShortageAmounts());
+        showRunEvents(0);
+        view.addDataTable("Run Events", runEventsPanel, 450);
         view.addDataTable("Simulation Statistics", statisticsTable, 300);
+        view.addDataTable("First Floor Inventory Heatmap", new RunHeatmapPanel(() -> new RunHeatmap(
+                simulationData.size(),
+                results.getFirstFloorHistogram().getTotalDays(),
+                results.getFirstFloorHistogram().getCapacity(),
+                (run, day) -> {
+                    List<Integer> series = simulationData.get(run).firstFloorEndUnits;
+                    return day < series.size() ? series.get(day) : 0;
+                }), Color.BLUE, "ending units"), 400);
+        view.addDataTable("Shortage Heatmap", new RunHeatmapPanel(
+                () -> RunHeatmap.ofFlag(results.getRunDayIndex(), RunDayIndex.Flag.SHORTAGE),
+                Color.RED, "shortage"), 400);
 
         view.addChart("First Run's Review Cycle Timeline",
-                StatisticsVisualization.createReviewCycleTimeline(simulationData));
+                () -> StatisticsVisualization.createReviewCycleTimeline(simulationData));
         view.addChart("Average Ending First Floor Inventory",
-            StatisticsVisualization.createAvgEndingFFChart(simulationData));
+            () -> StatisticsVisualization.createAvgEndingFFChart(results.getDailyStatistics()));
         view.addChart("Average Ending Basement Inventory", 
-            StatisticsVisualization.createAvgEndingBasementChart(simulationData));
+            () -> StatisticsVisualization.createAvgEndingBasementChart(results.getDailyStatistics()));
+        view.addChart("First Floor Inventory Quantiles",
+            () -> StatisticsVisualization.createInventoryFanChart("First Floor Ending Inventory Quantiles",
+                    results.getFirstFloorHistogram(), Color.BLUE));
+        view.addChart("Basement Inventory Quantiles",
+            () -> StatisticsVisualization.createInventoryFanChart("Basement Ending Inventory Quantiles",
+                    results.getBasementHistogram(), Color.GREEN));
         view.addChart("Distribution of Daily Demand", 
-            StatisticsVisualization.createDailyDemandHistogram(simulationData));
+            () -> StatisticsVisualization.createDailyDemandHistogram(results.getDailyDemandHistogram()));
         view.addChart("Distribution of Lead Time", 
-            StatisticsVisualization.createLeadTimeHistogram(simulationData));
+            () -> StatisticsVisualization.createLeadTimeHistogram(results.getLeadTimeHistogram()));
         view.addChart("Shortage Days Per Run", 
-            StatisticsVisualization.createShortageDaysChart(simulationData));
+            () -> StatisticsVisualization.createShortageDaysChart(results.getRunColumns()));
+        view.addChart("Shortage Frequency by Day",
+            () -> StatisticsVisualization.createShortageFrequencyChart(results.getRunDayIndex()));
         view.addChart("Total Basement Transfers Per Run", 
-            StatisticsVisualization.createTransfersChart(simulationData));
+            () -> StatisticsVisualization.createTransfersChart(results.getRunColumns()));
         view.addChart("Ending FF & Ending B Inventory", 
-            StatisticsVisualization.createDualAxisInventoryChart(simulationData));
+            () -> StatisticsVisualization.createDualAxisInventoryChart(results.getDailyStatistics()));
 
         view.showResults();
-        showSuccessMessage("Simulation Finished!");
+        showSuccessMessage("Simulation Finished! Seed: " + simulator.getSeed()
+                + (simulator.getReusedRuns() > 0 ? " (" + simulator.getReusedRuns() + " runs reused from cache)" : ""));
         saveSimulationHistory(simulationData, statistics);
     }
 
     private void saveSimulationHistory(List<SimulationData> simulationData,
                                        List<SimulationData.Statistic> statistics) {
         try {
-            Object[][] eventsData = simulationEventsTable.getTableData();
+            // The first run's events are kept for records opened by other engine versions, which cannot replay
             List<SimulationHistoryRecord.EventRow> events = new ArrayList<>();
-            for (Object[] row : eventsData) {
-                events.add(new SimulationHistoryRecord.EventRow(
-                        parseInt(row[0]),
-                        parseInt(row[1]),
-                        parseInt(row[2]),
-                        parseInt(row[3]),
-                        "Yes".equalsIgnoreCase(row[4].toString()),
-                        parseInt(row[5]),
-                        parseInt(row[6]),
-                        parseInt(row[7]),
-                        parseNotApplicable(row[8]),
-                        parseNotApplicable(row[9])
-                ));
-            }
-
-            SimulationConfigs configs = SimulationConfigs.instance;
-            SimulationHistoryRecord.SimulationConfigSnapshot configSnapshot =
-                    new SimulationHistoryRecord.SimulationConfigSnapshot(
-                            configs.getReviewTime(),
-                            configs.getFirstFloorMaxCapacity(),
-                            configs.getBasementFloorMaxCapacity(),
-                            configs.getFirstFloorStartUnits(),
-                            configs.getBasementFloorStartUnits(),
-                            configs.getOccupiedRoomsDistribution().getProbabilities(),
-                            configs.getOrderLeadTimeDistribution().getProbabilities(),
-                            configs.getRoomConsumptionDistribution().getProbabilities()
-                    );
+            replayRunEvents(0, new SimulationEventListener() {
+                @Override
+                public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
+                                       boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
+                                       int daysTillReview, int orderSize, int leadTime) {
+                    events.add(new SimulationHistoryRecord.EventRow(
+                            day,
+                            demand,
+                            firstFloorStart,
+                            basementFloorStart,
+                            didTransfer,
+                            firstFloorEnd,
+                            basementFloorEnd,
+                            daysTillReview,
+                            orderSize == -1 ? null : orderSize,
+                            leadTime == -1 ? null : leadTime
+                    ));
+                }
+
+                @Override
+                public void onDeliveryEvent(int day, int orderSize) {
+                }
+            });
+
+            SimulationHistoryRecord.SimulationConfigSnapshot configSnapshot = SimulationConfigs.instance.snapshot();
 
             SimulationHistoryRecord.SimulationParams params =
                     new SimulationHistoryRecord.SimulationParams(
                             Integer.parseInt(parameters.get("simulationDays").getText()),
-                            Integer.parseInt(parameters.get("simulationRuns").getText())
+                            Integer.parseInt(parameters.get("simulationRuns").getText()),
+                            Simulator.ENGINE_VERSION
                     );
 
             List<SimulationHistoryRecord.SimulationRunSnapshot> runSnapshots = simulationData.stream()
@@ -152,33 +203,52 @@ public class SimulationPageController {
                     new ArrayList<>(runSnapshots)
             );
 
-            historyStorage.saveSimulation(record);
+            historyService.saveSimulation(record);
         } catch (Exception e) {
             System.err.println("Failed to save simulation history: " + e.getMessage());
         }
     }
 
-    private int parseInt(Object value) {
-        return Integer.parseInt(value.toString());
+    /**
+     * One long run analysed by batch means; it is not saved to history, which holds replication studies.
+     */
+    private void startBatchMeans(int batches) {
+        List<SteadyState.Estimate> estimates = simulator.runBatchMeans(batches);
+        SimulationResults results = simulator.getResults();
+        steadyStateTable.setEstimates(estimates);
+
+        RunColumns runColumns = results.getRunColumns();
+        runEventsPanel.setRuns(runColumns.size(), runColumns.getShortageDays(), runColumns.getShortageAmounts());
+        showRunEvents(0);
+        view.addDataTable("Steady-State Estimates", steadyStateTable, 230);
+        view.addDataTable("Run Events", runEventsPanel, 450);
+
+        view.addChart("Ending FF & Ending B Inventory",
+            () -> StatisticsVisualization.createDualAxisInventoryChart(results.getDailyStatistics()));
+
+        view.showResults();
+        showSuccessMessage("Batch Means Finished! Seed: " + simulator.getSeed());
     }
 
-    private Integer parseNotApplicable(Object value) {
-        if (value == null) {
-            return null;
-        }
-        String text = value.toString().trim();
-        if (text.isEmpty() || "N/A".equalsIgnoreCase(text)) {
-            return null;
+    private void showRunEvents(int run) {
+        if (run < 0) {
+            return;
         }
-        try {
-            return Integer.parseInt(text);
-        } catch (NumberFormatException e) {
-            return null;
+        simulationEventsTable.clearEvents();
+        replayRunEvents(run, eventsTableListener);
+    }
+
+    private void replayRunEvents(int run, SimulationEventListener listener) {
+        if (eventRecorder.hasRun(run)) {
+            eventRecorder.replay(run, listener);
+        } else {
+            simulator.replayRun(run, listener);
         }
     }
 
     private void setupActions() {
         view.setStartButtonAction(action -> startSimulation());
+        runEventsPanel.setRunSelectedAction(action -> showRunEvents(runEventsPanel.getSelectedRun()));
     }
 
     public void showSuccessMessage(String message) {
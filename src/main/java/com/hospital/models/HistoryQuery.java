@@ -0,0 +1,115 @@
+package com.hospital.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A filter over stored simulations: every condition compares one field of
+ * {@link SimulationHistorySummary#getIndexedValues()} with a number, optionally restricted to one configuration
+ * by content hash, and a summary matches when all of them hold.
+ */
+public class HistoryQuery {
+    private static final HistoryQuery ALL = new HistoryQuery(List.of(), null);
+
+    private final List<Condition> conditions;
+    private final String configHash;
+
+    private HistoryQuery(List<Condition> conditions, String configHash) {
+        this.conditions = conditions;
+        this.configHash = configHash;
+    }
+
+    public static HistoryQuery all() {
+        return ALL;
+    }
+
+    public HistoryQuery and(String field, Operator operator, double value) {
+        List<Condition> extended = new ArrayList<>(conditions);
+        extended.add(new Condition(field, operator, value));
+        return new HistoryQuery(Collections.unmodifiableList(extended), configHash);
+    }
+
+    /**
+     * Restricts the query to simulations run with the configuration whose
+     * {@link SimulationHistoryRecord.SimulationConfigSnapshot#getContentHash() content hash} is given.
+     */
+    public HistoryQuery withConfig(String configHash) {
+        return new HistoryQuery(conditions, configHash);
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public String getConfigHash() {
+        return configHash;
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty() && configHash == null;
+    }
+
+    public boolean matches(SimulationHistorySummary summary) {
+        if (configHash != null && !configHash.equals(summary.getConfigHash())) {
+            return false;
+        }
+        for (Condition condition : conditions) {
+            Double value = summary.getIndexedValues().get(condition.field());
+            if (value == null || !condition.operator().test(value, condition.value())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (configHash != null) {
+            parts.add("Configuration " + configHash.substring(0, Math.min(8, configHash.length())));
+        }
+        conditions.stream().map(Condition::toString).forEach(parts::add);
+        return String.join(" and ", parts);
+    }
+
+    public enum Operator {
+        EQUAL("="),
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public boolean test(double left, double right) {
+            int comparison = Double.compare(left, right);
+            return switch (this) {
+                case EQUAL -> comparison == 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    public record Condition(String field, Operator operator, double value) {
+        @Override
+        public String toString() {
+            String number = value == Math.rint(value) && !Double.isInfinite(value)
+                    ? String.valueOf((long) value)
+                    : String.valueOf(value);
+            return field + " " + operator + " " + number;
+        }
+    }
+}
@@ -2,14 +2,23 @@ package com.hospital.models;
 
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class ProbabilityDistribution {
     private final Map<Integer, Double> probabilities;
-    private final ArrayList<Range> ranges;
+    // The ranges compiled for sampling: upper bound and value of each range, in range order
+    private final double[] highs;
+    private final int[] values;
 
     public ProbabilityDistribution(Map<Integer, Double> probabilities) {
         this.probabilities = probabilities;
-        this.ranges = updateProbabilityRanges();
+        ArrayList<Range> ranges = updateProbabilityRanges();
+        this.highs = new double[ranges.size()];
+        this.values = new int[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            highs[i] = ranges.get(i).high();
+            values[i] = ranges.get(i).value();
+        }
     }
 
     private ArrayList<Range> updateProbabilityRanges() {
@@ -27,12 +36,25 @@ public class ProbabilityDistribution {
         return ranges;
     }
 
+    /**
+     * Value of the first range containing {@code probability}. Ranges are contiguous and start at 0, so that is
+     * the first range whose upper bound is at least {@code probability}, found by binary search.
+     */
     public int getProbabilityValue(double probability) {
-        return ranges.stream()
-                .filter(range -> range.contains(probability))
-                .findFirst()
-                .map(Range::value)
-                .orElseThrow();
+        int low = 0;
+        int high = highs.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (highs[middle] < probability) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == highs.length || !(probability >= 0)) {
+            throw new NoSuchElementException("No value present");
+        }
+        return values[low];
     }
 
     public Map<Integer, Double> getProbabilities() {
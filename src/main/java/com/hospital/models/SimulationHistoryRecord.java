@@ -2,13 +2,23 @@ package com.hospital.models;
 
 import com.hospital.simulation.SimulationData;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
 
 public class SimulationHistoryRecord implements Serializable {
@@ -30,7 +40,19 @@ public class SimulationHistoryRecord implements Serializable {
             List<SimulationData.Statistic> statistics,
             List<SimulationRunSnapshot> simulationRuns
     ) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), timestamp, simulationParams, configSnapshot, events, statistics, simulationRuns);
+    }
+
+    public SimulationHistoryRecord(
+            String id,
+            LocalDateTime timestamp,
+            SimulationParams simulationParams,
+            SimulationConfigSnapshot configSnapshot,
+            List<EventRow> events,
+            List<SimulationData.Statistic> statistics,
+            List<SimulationRunSnapshot> simulationRuns
+    ) {
+        this.id = id;
         this.timestamp = timestamp == null ? LocalDateTime.now() : timestamp;
         this.simulationParams = simulationParams;
         this.configSnapshot = configSnapshot;
@@ -67,6 +89,10 @@ public class SimulationHistoryRecord implements Serializable {
         return new ArrayList<>(statistics);
     }
 
+    public List<SimulationRunSnapshot> getSimulationRuns() {
+        return new ArrayList<>(simulationRuns);
+    }
+
     public List<SimulationData> rebuildSimulationRuns() {
         return simulationRuns.stream()
                 .map(SimulationRunSnapshot::toSimulationData)
@@ -86,8 +112,16 @@ public class SimulationHistoryRecord implements Serializable {
         return Objects.hash(id);
     }
 
-    public record SimulationParams(int simulationDays, int simulationRuns) implements Serializable {
+    /**
+     * {@code engineVersion} is the {@link com.hospital.simulation.Simulator#ENGINE_VERSION} the runs were computed
+     * with, or 0 for records saved before it was tracked; runs are only replayed by the same engine.
+     */
+    public record SimulationParams(int simulationDays, int simulationRuns, int engineVersion) implements Serializable {
         private static final long serialVersionUID = 1L;
+
+        public SimulationParams(int simulationDays, int simulationRuns) {
+            this(simulationDays, simulationRuns, 0);
+        }
     }
 
     public static class SimulationConfigSnapshot implements Serializable {
@@ -101,6 +135,13 @@ public class SimulationHistoryRecord implements Serializable {
         private final LinkedHashMap<Integer, Double> occupiedRoomsProbabilities;
         private final LinkedHashMap<Integer, Double> orderLeadTimeProbabilities;
         private final LinkedHashMap<Integer, Double> roomConsumptionProbabilities;
+        private transient String contentHash;
+        // Compiled once per snapshot and shared by every simulator running it. Ranges are laid out in value order
+        // so configs that differ only in entry order, which share a content hash and therefore a cache key, also
+        // sample identically
+        private transient ProbabilityDistribution occupiedRoomsDistribution;
+        private transient ProbabilityDistribution orderLeadTimeDistribution;
+        private transient ProbabilityDistribution roomConsumptionDistribution;
 
         public SimulationConfigSnapshot(
                 int reviewTime,
@@ -153,6 +194,86 @@ public class SimulationHistoryRecord implements Serializable {
         public Map<Integer, Double> getRoomConsumptionProbabilities() {
             return new LinkedHashMap<>(roomConsumptionProbabilities);
         }
+
+        public ProbabilityDistribution getOccupiedRoomsDistribution() {
+            if (occupiedRoomsDistribution == null) {
+                occupiedRoomsDistribution = new ProbabilityDistribution(new TreeMap<>(occupiedRoomsProbabilities));
+            }
+            return occupiedRoomsDistribution;
+        }
+
+        public ProbabilityDistribution getOrderLeadTimeDistribution() {
+            if (orderLeadTimeDistribution == null) {
+                orderLeadTimeDistribution = new ProbabilityDistribution(new TreeMap<>(orderLeadTimeProbabilities));
+            }
+            return orderLeadTimeDistribution;
+        }
+
+        public ProbabilityDistribution getRoomConsumptionDistribution() {
+            if (roomConsumptionDistribution == null) {
+                roomConsumptionDistribution = new ProbabilityDistribution(new TreeMap<>(roomConsumptionProbabilities));
+            }
+            return roomConsumptionDistribution;
+        }
+
+        /**
+         * SHA-256 of the configuration's content, as hex. Two snapshots with the same values hash the same
+         * regardless of the order their distributions were entered in, so this identifies "the same config".
+         */
+        public String getContentHash() {
+            if (contentHash == null) {
+                contentHash = sha256(encodeContent());
+            }
+            return contentHash;
+        }
+
+        /**
+         * The bytes {@link #getContentHash()} is computed over: the scalar settings followed by the content
+         * hash of each distribution.
+         */
+        public byte[] encodeContent() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(reviewTime);
+                out.writeInt(firstFloorMaxCapacity);
+                out.writeInt(basementFloorMaxCapacity);
+                out.writeInt(firstFloorStartUnits);
+                out.writeInt(basementFloorStartUnits);
+                out.writeUTF(distributionHash(occupiedRoomsProbabilities));
+                out.writeUTF(distributionHash(orderLeadTimeProbabilities));
+                out.writeUTF(distributionHash(roomConsumptionProbabilities));
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public static String distributionHash(Map<Integer, Double> distribution) {
+            return sha256(encodeDistribution(distribution));
+        }
+
+        /**
+         * A distribution's entries sorted by value key, so equal distributions encode the same.
+         */
+        public static byte[] encodeDistribution(Map<Integer, Double> distribution) {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + distribution.size() * 12);
+            buffer.putInt(distribution.size());
+            for (Map.Entry<Integer, Double> entry : new TreeMap<>(distribution).entrySet()) {
+                buffer.putInt(entry.getKey());
+                buffer.putDouble(entry.getValue());
+            }
+            return buffer.array();
+        }
+
+        private static String sha256(byte[] content) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
     }
 
     public static class EventRow implements Serializable {
@@ -251,6 +372,9 @@ public class SimulationHistoryRecord implements Serializable {
         private final int totalTransfers;
         private final List<Integer> orderPlacementDays;
         private final List<Integer> deliveryDays;
+        private final List<Integer> shortageDays;
+        private final List<Integer> transferDays;
+        private final Long seed;
 
         public SimulationRunSnapshot(
                 int totalDays,
@@ -267,6 +391,30 @@ public class SimulationHistoryRecord implements Serializable {
                 int totalTransfers,
                 List<Integer> orderPlacementDays,
                 List<Integer> deliveryDays
+        ) {
+            this(totalDays, firstFloorEndUnits, basementFloorEndUnits, totalShortageDays, totalShortageAmount,
+                    totalDemand, dailyDemandValues, totalOrders, totalLeadTime, totalOrderSize, leadTimes,
+                    totalTransfers, orderPlacementDays, deliveryDays, List.of(), List.of(), null);
+        }
+
+        public SimulationRunSnapshot(
+                int totalDays,
+                List<Integer> firstFloorEndUnits,
+                List<Integer> basementFloorEndUnits,
+                int totalShortageDays,
+                int totalShortageAmount,
+                int totalDemand,
+                List<Integer> dailyDemandValues,
+                int totalOrders,
+                int totalLeadTime,
+                int totalOrderSize,
+                List<Integer> leadTimes,
+                int totalTransfers,
+                List<Integer> orderPlacementDays,
+                List<Integer> deliveryDays,
+                List<Integer> shortageDays,
+                List<Integer> transferDays,
+                Long seed
         ) {
             this.totalDays = totalDays;
             this.firstFloorEndUnits = new ArrayList<>(firstFloorEndUnits);
@@ -282,6 +430,9 @@ public class SimulationHistoryRecord implements Serializable {
             this.totalTransfers = totalTransfers;
             this.orderPlacementDays = new ArrayList<>(orderPlacementDays);
             this.deliveryDays = new ArrayList<>(deliveryDays);
+            this.shortageDays = new ArrayList<>(shortageDays);
+            this.transferDays = new ArrayList<>(transferDays);
+            this.seed = seed;
         }
 
         public static SimulationRunSnapshot fromSimulationData(SimulationData data) {
@@ -299,10 +450,85 @@ public class SimulationHistoryRecord implements Serializable {
                     data.leadTimes,
                     data.totalTransfers,
                     data.orderPlacementDays,
-                    data.deliveryDays
+                    data.deliveryDays,
+                    data.shortageDays,
+                    data.transferDays,
+                    data.seed
             );
         }
 
+        public int getTotalDays() {
+            return totalDays;
+        }
+
+        public List<Integer> getFirstFloorEndUnits() {
+            return Collections.unmodifiableList(firstFloorEndUnits);
+        }
+
+        public List<Integer> getBasementFloorEndUnits() {
+            return Collections.unmodifiableList(basementFloorEndUnits);
+        }
+
+        public int getTotalShortageDays() {
+            return totalShortageDays;
+        }
+
+        public int getTotalShortageAmount() {
+            return totalShortageAmount;
+        }
+
+        public int getTotalDemand() {
+            return totalDemand;
+        }
+
+        public List<Integer> getDailyDemandValues() {
+            return Collections.unmodifiableList(dailyDemandValues);
+        }
+
+        public int getTotalOrders() {
+            return totalOrders;
+        }
+
+        public int getTotalLeadTime() {
+            return totalLeadTime;
+        }
+
+        public int getTotalOrderSize() {
+            return totalOrderSize;
+        }
+
+        public List<Integer> getLeadTimes() {
+            return Collections.unmodifiableList(leadTimes);
+        }
+
+        public int getTotalTransfers() {
+            return totalTransfers;
+        }
+
+        public List<Integer> getOrderPlacementDays() {
+            return Collections.unmodifiableList(orderPlacementDays);
+        }
+
+        public List<Integer> getDeliveryDays() {
+            return Collections.unmodifiableList(deliveryDays);
+        }
+
+        // Null in snapshots serialized before these columns existed
+        public List<Integer> getShortageDays() {
+            return shortageDays == null ? List.of() : Collections.unmodifiableList(shortageDays);
+        }
+
+        public List<Integer> getTransferDays() {
+            return transferDays == null ? List.of() : Collections.unmodifiableList(transferDays);
+        }
+
+        /**
+         * The run's random stream seed, or {@code null} if it was not recorded.
+         */
+        public Long getSeed() {
+            return seed;
+        }
+
         public SimulationData toSimulationData() {
             SimulationData data = new SimulationData();
             data.totalDays = totalDays;
@@ -319,6 +545,9 @@ public class SimulationHistoryRecord implements Serializable {
             data.totalTransfers = totalTransfers;
             data.orderPlacementDays = new ArrayList<>(orderPlacementDays);
             data.deliveryDays = new ArrayList<>(deliveryDays);
+            data.shortageDays = new ArrayList<>(getShortageDays());
+            data.transferDays = new ArrayList<>(getTransferDays());
+            data.seed = seed;
             return data;
         }
     }
@@ -0,0 +1,190 @@
+package com.hospital.models;
+
+import com.hospital.simulation.SimulationData;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The few fields the history list needs from a {@link SimulationHistoryRecord}, plus where the full
+ * record lives in the history log so it can be loaded on demand.
+ */
+public class SimulationHistorySummary {
+    public static final String FIELD_REVIEW_TIME = "Review Time";
+    public static final String FIELD_FIRST_FLOOR_MAX_CAPACITY = "First Floor Maximum Capacity";
+    public static final String FIELD_BASEMENT_MAX_CAPACITY = "Basement Maximum Capacity";
+    public static final String FIELD_FIRST_FLOOR_START_UNITS = "First Floor Starting Units";
+    public static final String FIELD_BASEMENT_START_UNITS = "Basement Starting Units";
+    public static final String FIELD_SIMULATION_DAYS = "Simulation Days";
+    public static final String FIELD_SIMULATION_RUNS = "Simulation Runs";
+
+    public static final List<String> CONFIG_FIELDS = List.of(
+            FIELD_REVIEW_TIME,
+            FIELD_FIRST_FLOOR_MAX_CAPACITY,
+            FIELD_BASEMENT_MAX_CAPACITY,
+            FIELD_FIRST_FLOOR_START_UNITS,
+            FIELD_BASEMENT_START_UNITS,
+            FIELD_SIMULATION_DAYS,
+            FIELD_SIMULATION_RUNS
+    );
+
+    private final String id;
+    private final LocalDateTime timestamp;
+    private final SimulationHistoryRecord.SimulationParams simulationParams;
+    private final int reviewTime;
+    private final int firstFloorMaxCapacity;
+    private final int basementFloorMaxCapacity;
+    private final int firstFloorStartUnits;
+    private final int basementFloorStartUnits;
+    private final String configHash;
+    private final LinkedHashMap<String, Double> statistics;
+    private final int segmentId;
+    private final long offset;
+    private final int length;
+    private final Map<String, Double> indexedValues;
+
+    public SimulationHistorySummary(
+            String id,
+            LocalDateTime timestamp,
+            SimulationHistoryRecord.SimulationParams simulationParams,
+            int reviewTime,
+            int firstFloorMaxCapacity,
+            int basementFloorMaxCapacity,
+            int firstFloorStartUnits,
+            int basementFloorStartUnits,
+            String configHash,
+            Map<String, Double> statistics,
+            int segmentId,
+            long offset,
+            int length
+    ) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.simulationParams = simulationParams;
+        this.reviewTime = reviewTime;
+        this.firstFloorMaxCapacity = firstFloorMaxCapacity;
+        this.basementFloorMaxCapacity = basementFloorMaxCapacity;
+        this.firstFloorStartUnits = firstFloorStartUnits;
+        this.basementFloorStartUnits = basementFloorStartUnits;
+        this.configHash = configHash;
+        this.statistics = new LinkedHashMap<>(statistics);
+        this.segmentId = segmentId;
+        this.offset = offset;
+        this.length = length;
+
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put(FIELD_REVIEW_TIME, (double) reviewTime);
+        values.put(FIELD_FIRST_FLOOR_MAX_CAPACITY, (double) firstFloorMaxCapacity);
+        values.put(FIELD_BASEMENT_MAX_CAPACITY, (double) basementFloorMaxCapacity);
+        values.put(FIELD_FIRST_FLOOR_START_UNITS, (double) firstFloorStartUnits);
+        values.put(FIELD_BASEMENT_START_UNITS, (double) basementFloorStartUnits);
+        values.put(FIELD_SIMULATION_DAYS, (double) simulationParams.simulationDays());
+        values.put(FIELD_SIMULATION_RUNS, (double) simulationParams.simulationRuns());
+        values.putAll(this.statistics);
+        this.indexedValues = Collections.unmodifiableMap(values);
+    }
+
+    public static SimulationHistorySummary fromRecord(SimulationHistoryRecord record, int segmentId, long offset, int length) {
+        SimulationHistoryRecord.SimulationConfigSnapshot config = record.getConfigSnapshot();
+
+        Map<String, Double> statistics = new LinkedHashMap<>();
+        for (SimulationData.Statistic statistic : record.getStatistics()) {
+            try {
+                statistics.put(statistic.label(), Double.parseDouble(statistic.value().replace("%", "").trim()));
+            } catch (NumberFormatException | NullPointerException ignored) {
+            }
+        }
+
+        return new SimulationHistorySummary(
+                record.getId(),
+                record.getTimestamp(),
+                record.getSimulationParams(),
+                config.getReviewTime(),
+                config.getFirstFloorMaxCapacity(),
+                config.getBasementFloorMaxCapacity(),
+                config.getFirstFloorStartUnits(),
+                config.getBasementFloorStartUnits(),
+                config.getContentHash(),
+                statistics,
+                segmentId,
+                offset,
+                length
+        );
+    }
+
+    public SimulationHistorySummary withLocation(int segmentId, long offset, int length) {
+        return new SimulationHistorySummary(id, timestamp, simulationParams, reviewTime, firstFloorMaxCapacity,
+                basementFloorMaxCapacity, firstFloorStartUnits, basementFloorStartUnits, configHash, statistics,
+                segmentId, offset, length);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public SimulationHistoryRecord.SimulationParams getSimulationParams() {
+        return simulationParams;
+    }
+
+    public int getReviewTime() {
+        return reviewTime;
+    }
+
+    public int getFirstFloorMaxCapacity() {
+        return firstFloorMaxCapacity;
+    }
+
+    public int getBasementFloorMaxCapacity() {
+        return basementFloorMaxCapacity;
+    }
+
+    public int getFirstFloorStartUnits() {
+        return firstFloorStartUnits;
+    }
+
+    public int getBasementFloorStartUnits() {
+        return basementFloorStartUnits;
+    }
+
+    /**
+     * Content hash of the configuration the simulation ran with; equal hashes mean identical settings.
+     */
+    public String getConfigHash() {
+        return configHash;
+    }
+
+    public Map<String, Double> getStatistics() {
+        return new LinkedHashMap<>(statistics);
+    }
+
+    public Double getStatistic(String label) {
+        return statistics.get(label);
+    }
+
+    /**
+     * Every numeric field history can be filtered on: the {@link #CONFIG_FIELDS} followed by the statistics,
+     * keyed by their labels.
+     */
+    public Map<String, Double> getIndexedValues() {
+        return indexedValues;
+    }
+
+    public int getSegmentId() {
+        return segmentId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
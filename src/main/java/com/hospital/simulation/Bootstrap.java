@@ -0,0 +1,197 @@
+package com.hospital.simulation;
+
+import com.hospital.utils.StatisticsUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Percentile and BCa bootstrap intervals for statistics that are functions of per-run feature sums, such as
+ * means, variances and ratios of run totals. Runs are stored as one row of features each in a flat array, so a
+ * replicate draws run indices and adds up their rows; every statistic of a replicate is evaluated from the
+ * same sums. Replicates are split into fixed chunks with their own random stream, so intervals are the same
+ * for a given seed however many threads take part, and the BCa acceleration comes from a leave-one-out
+ * jackknife computed by subtracting each row from the totals.
+ */
+public class Bootstrap {
+    private static final int CHUNK_REPLICATES = 64;
+
+    /**
+     * A statistic of a sample, given the sum of each feature over its {@code runs} runs.
+     */
+    @FunctionalInterface
+    public interface Estimator {
+        double estimate(double[] sums, int runs);
+    }
+
+    public record Result(double estimate, SimulationData.Interval percentile, SimulationData.Interval bca) {
+    }
+
+    private final int featureCount;
+    private final double[] rows;
+    private final int runs;
+
+    /**
+     * @param rows features of each run in run order, {@code featureCount} values per run
+     */
+    public Bootstrap(int featureCount, double[] rows) {
+        this.featureCount = featureCount;
+        this.rows = rows;
+        this.runs = rows.length / featureCount;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Intervals at the given confidence level for each estimator, in estimator order. Intervals are null when
+     * there are fewer than two runs or the statistic is not finite on the sample.
+     */
+    public Result[] intervals(List<Estimator> estimators, int replicates, double confidence, long seed) {
+        double[] totals = new double[featureCount];
+        for (int run = 0; run < runs; run++) {
+            addRow(totals, run);
+        }
+        double[] estimates = new double[estimators.size()];
+        for (int e = 0; e < estimates.length; e++) {
+            estimates[e] = estimators.get(e).estimate(totals, runs);
+        }
+        if (runs < 2 || replicates < 2) {
+            Result[] results = new Result[estimates.length];
+            for (int e = 0; e < results.length; e++) {
+                results[e] = new Result(estimates[e], null, null);
+            }
+            return results;
+        }
+
+        int chunks = (replicates + CHUNK_REPLICATES - 1) / CHUNK_REPLICATES;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            streams[chunk] = root.split();
+        }
+
+        double[][] samples = new double[estimates.length][replicates];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = streams[chunk];
+            double[] sums = new double[featureCount];
+            for (int b = chunk * CHUNK_REPLICATES; b < Math.min(replicates, (chunk + 1) * CHUNK_REPLICATES); b++) {
+                Arrays.fill(sums, 0);
+                for (int i = 0; i < runs; i++) {
+                    addRow(sums, random.nextInt(runs));
+                }
+                for (int e = 0; e < estimates.length; e++) {
+                    samples[e][b] = estimators.get(e).estimate(sums, runs);
+                }
+            }
+        });
+
+        double[][] jackknife = jackknife(estimators, totals);
+        Result[] results = new Result[estimates.length];
+        for (int e = 0; e < results.length; e++) {
+            results[e] = interval(estimates[e], samples[e], jackknife[e], confidence);
+        }
+        return results;
+    }
+
+    private void addRow(double[] sums, int run) {
+        int offset = run * featureCount;
+        for (int feature = 0; feature < featureCount; feature++) {
+            sums[feature] += rows[offset + feature];
+        }
+    }
+
+    /**
+     * Each estimator over the sample with one run left out, for every run.
+     */
+    private double[][] jackknife(List<Estimator> estimators, double[] totals) {
+        double[][] values = new double[estimators.size()][runs];
+        IntStream.range(0, runs).parallel().forEach(run -> {
+            double[] sums = totals.clone();
+            int offset = run * featureCount;
+            for (int feature = 0; feature < featureCount; feature++) {
+                sums[feature] -= rows[offset + feature];
+            }
+            for (int e = 0; e < values.length; e++) {
+                values[e][run] = estimators.get(e).estimate(sums, runs - 1);
+            }
+        });
+        return values;
+    }
+
+    private static Result interval(double estimate, double[] samples, double[] jackknife, double confidence) {
+        if (!Double.isFinite(estimate)) {
+            return new Result(estimate, null, null);
+        }
+        // Replicates that leave the statistic undefined, such as a ratio with no runs in its denominator, are dropped
+        double[] sorted = Arrays.stream(samples).filter(Double::isFinite).sorted().toArray();
+        if (sorted.length < 2) {
+            return new Result(estimate, null, null);
+        }
+
+        double alpha = (1 - confidence) / 2;
+        SimulationData.Interval percentile = new SimulationData.Interval(
+                quantile(sorted, alpha), quantile(sorted, 1 - alpha));
+
+        int below = 0;
+        int ties = 0;
+        for (double sample : sorted) {
+            if (sample < estimate) {
+                below++;
+            } else if (sample == estimate) {
+                ties++;
+            }
+        }
+        double z0 = StatisticsUtils.normalQuantile((below + ties / 2.0) / sorted.length);
+        double acceleration = acceleration(jackknife);
+        if (!Double.isFinite(z0) || !Double.isFinite(acceleration)) {
+            // Every replicate on one side of the estimate; there is no bias correction to make
+            return new Result(estimate, percentile, percentile);
+        }
+        SimulationData.Interval bca = new SimulationData.Interval(
+                quantile(sorted, adjusted(alpha, z0, acceleration)),
+                quantile(sorted, adjusted(1 - alpha, z0, acceleration)));
+        return new Result(estimate, percentile, bca);
+    }
+
+    private static double acceleration(double[] jackknife) {
+        double mean = 0;
+        int count = 0;
+        for (double value : jackknife) {
+            if (Double.isFinite(value)) {
+                mean += value;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        mean /= count;
+
+        double squares = 0;
+        double cubes = 0;
+        for (double value : jackknife) {
+            if (Double.isFinite(value)) {
+                double diff = mean - value;
+                squares += diff * diff;
+                cubes += diff * diff * diff;
+            }
+        }
+        return squares == 0 ? 0 : cubes / (6 * Math.pow(squares, 1.5));
+    }
+
+    private static double adjusted(double probability, double z0, double acceleration) {
+        double z = z0 + StatisticsUtils.normalQuantile(probability);
+        return StatisticsUtils.normalCdf(z0 + z / (1 - acceleration * z));
+    }
+
+    private static double quantile(double[] sorted, double probability) {
+        double position = Math.min(Math.max(probability, 0), 1) * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
+}
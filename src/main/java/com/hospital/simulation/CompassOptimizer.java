@@ -0,0 +1,347 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * COMPASS search over integer config settings: find the setting with the least mean ending inventory whose
+ * shortage probability stays at or under a target.
+ * <p>
+ * Every iteration samples new settings from the most promising area, the settings closer to the current best
+ * than to any other visited one, with coordinate hit-and-run. It then brings every visited setting up to a
+ * growing number of runs and moves to the one with the lowest penalised objective. The search stops when
+ * that area holds no unvisited setting or the iteration limit is reached.
+ * <p>
+ * The recommendation is then checked on common random numbers against each neighbour one step away. A
+ * neighbour is beaten when its shortage probability is above the target with confidence, or when the paired
+ * inventory difference is negative with confidence. The feasibility of the best uses a Wilson bound. Both tests
+ * are Bonferroni-corrected over the neighbours.
+ */
+public class CompassOptimizer {
+    // Inventory units charged per unit of shortage probability over the target while searching
+    private static final double PENALTY_PER_PROBABILITY = 1000;
+    private static final int HIT_AND_RUN_STEPS = 20;
+    private static final int SAMPLE_ATTEMPTS = 50;
+
+    public enum Outcome {
+        WORSE_INVENTORY("Holds more inventory"),
+        INFEASIBLE("Shortage above target"),
+        NOT_SEPARATED("Not separated");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public record NeighbourComparison(int[] point, ConfigEvaluator.Evaluation evaluation,
+                                      SimulationData.Interval inventoryDifference, Outcome outcome) {
+    }
+
+    /**
+     * @param inventoryDifference paired difference of the best's and the neighbour's inventory, best minus neighbour
+     */
+    public record Result(List<ConfigParameter> parameters, int[] point, ConfigEvaluator.Evaluation best,
+                         SimulationData.Interval shortageInterval, boolean feasible, boolean locallyOptimal,
+                         List<NeighbourComparison> neighbours, double[] bestObjectiveByIteration,
+                         int visitedSettings, long totalRuns) {
+    }
+
+    private final ConfigEvaluator evaluator;
+    private final SimulationHistoryRecord.SimulationConfigSnapshot baseConfig;
+    private final List<ConfigParameter> parameters;
+    private final int[] lower;
+    private final int[] upper;
+    private final double shortageTarget;
+    private int samplesPerIteration = 4;
+    private int initialRuns = 20;
+    private int runIncrement = 10;
+    private int finalRuns = 200;
+    private int maxIterations = 40;
+    private double confidence = 0.95;
+    private Consumer<String> progressListener = message -> { };
+
+    /**
+     * Searches {@code parameters} between {@code lower} and {@code upper} inclusive; every other setting stays as
+     * in {@code baseConfig}.
+     */
+    public CompassOptimizer(ConfigEvaluator evaluator, SimulationHistoryRecord.SimulationConfigSnapshot baseConfig,
+                            List<ConfigParameter> parameters, int[] lower, int[] upper, double shortageTarget) {
+        this.evaluator = evaluator;
+        this.baseConfig = baseConfig;
+        this.parameters = List.copyOf(parameters);
+        this.lower = lower.clone();
+        this.upper = upper.clone();
+        this.shortageTarget = shortageTarget;
+    }
+
+    public void setSamplesPerIteration(int samplesPerIteration) {
+        this.samplesPerIteration = samplesPerIteration;
+    }
+
+    public void setInitialRuns(int initialRuns) {
+        this.initialRuns = initialRuns;
+    }
+
+    public void setRunIncrement(int runIncrement) {
+        this.runIncrement = runIncrement;
+    }
+
+    /**
+     * Runs per setting for the final comparison of the recommendation with its neighbours.
+     */
+    public void setFinalRuns(int finalRuns) {
+        this.finalRuns = finalRuns;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public void setProgressListener(Consumer<String> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Result optimize() {
+        Random random = new Random(evaluator.getSeed());
+        Map<String, int[]> visited = new LinkedHashMap<>();
+        Map<String, ConfigEvaluator.Evaluation> evaluations = new LinkedHashMap<>();
+
+        int[] best = new int[parameters.size()];
+        for (int i = 0; i < best.length; i++) {
+            best[i] = Math.min(upper[i], Math.max(lower[i], parameters.get(i).get(baseConfig)));
+        }
+        visited.put(key(best), best);
+        evaluations.put(key(best), evaluator.evaluate(configAt(best), initialRuns));
+
+        List<Double> bestObjectives = new ArrayList<>();
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            List<int[]> samples = sampleMostPromisingArea(best, visited.values(), random);
+            if (samples.isEmpty()) {
+                break;
+            }
+
+            for (int[] sample : samples) {
+                visited.put(key(sample), sample);
+            }
+            // Every visited setting can take over as the best, so all of them are compared on the same number of
+            // runs; the evaluator only executes the runs each one is missing
+            List<SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ArrayList<>();
+            for (int[] point : visited.values()) {
+                configs.add(configAt(point));
+            }
+            List<ConfigEvaluator.Evaluation> results = evaluator.evaluateAll(configs,
+                    Math.min(finalRuns, initialRuns + runIncrement * iteration));
+            int index = 0;
+            for (int[] point : visited.values()) {
+                evaluations.put(key(point), results.get(index++));
+            }
+
+            for (int[] point : visited.values()) {
+                if (objective(evaluations.get(key(point))) < objective(evaluations.get(key(best)))) {
+                    best = point;
+                }
+            }
+            double bestObjective = objective(evaluations.get(key(best)));
+            bestObjectives.add(bestObjective);
+            progressListener.accept("Iteration " + iteration + ": " + visited.size() + " settings visited, best "
+                    + describe(best) + " with objective " + String.format("%.3f", bestObjective));
+        }
+
+        progressListener.accept("Comparing " + describe(best) + " with its neighbours");
+        Result result = verify(best, bestObjectives, visited.size(), evaluations);
+        progressListener.accept("Done: " + describe(best) + (result.feasible() ? "" : " (shortage target not met)"));
+        return result;
+    }
+
+    private Result verify(int[] best, List<Double> bestObjectives, int visitedSettings,
+                          Map<String, ConfigEvaluator.Evaluation> evaluations) {
+        List<int[]> neighbours = new ArrayList<>();
+        for (int i = 0; i < best.length; i++) {
+            for (int step : new int[]{-1, 1}) {
+                int[] neighbour = best.clone();
+                neighbour[i] += step;
+                if (neighbour[i] >= lower[i] && neighbour[i] <= upper[i]) {
+                    neighbours.add(neighbour);
+                }
+            }
+        }
+
+        List<SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ArrayList<>();
+        configs.add(configAt(best));
+        for (int[] neighbour : neighbours) {
+            configs.add(configAt(neighbour));
+        }
+        List<ConfigEvaluator.Evaluation> results = evaluator.evaluateAll(configs, finalRuns);
+        ConfigEvaluator.Evaluation bestEvaluation = results.get(0);
+
+        // Each neighbour test gets an equal share of the error rate
+        double testConfidence = 1 - (1 - confidence) / Math.max(1, neighbours.size());
+        List<NeighbourComparison> comparisons = new ArrayList<>();
+        boolean allBeaten = true;
+        for (int i = 0; i < neighbours.size(); i++) {
+            ConfigEvaluator.Evaluation neighbour = results.get(i + 1);
+            SimulationData.Interval difference = bestEvaluation.inventoryDifference(neighbour, testConfidence);
+            Outcome outcome;
+            if (neighbour.getShortageInterval(testConfidence).lower() > shortageTarget) {
+                outcome = Outcome.INFEASIBLE;
+            } else if (difference.upper() < 0) {
+                outcome = Outcome.WORSE_INVENTORY;
+            } else {
+                outcome = Outcome.NOT_SEPARATED;
+                allBeaten = false;
+            }
+            comparisons.add(new NeighbourComparison(neighbours.get(i), neighbour, difference, outcome));
+        }
+
+        SimulationData.Interval shortageInterval = bestEvaluation.getShortageInterval(confidence);
+        boolean feasible = shortageInterval.upper() <= shortageTarget;
+        // The check brings the best setting and its neighbours to the final count, and may reach neighbours the
+        // search never visited, so their latest evaluations replace or join the search's
+        Map<String, ConfigEvaluator.Evaluation> evaluated = new HashMap<>(evaluations);
+        evaluated.put(key(best), bestEvaluation);
+        for (int i = 0; i < neighbours.size(); i++) {
+            evaluated.put(key(neighbours.get(i)), results.get(i + 1));
+        }
+        long totalRuns = 0;
+        for (ConfigEvaluator.Evaluation evaluation : evaluated.values()) {
+            totalRuns += evaluation.getRuns();
+        }
+        return new Result(parameters, best, bestEvaluation, shortageInterval, feasible, feasible && allBeaten,
+                comparisons, bestObjectives.stream().mapToDouble(Double::doubleValue).toArray(),
+                visitedSettings, totalRuns);
+    }
+
+    private double objective(ConfigEvaluator.Evaluation evaluation) {
+        return evaluation.getMeanInventory()
+                + PENALTY_PER_PROBABILITY * Math.max(0, evaluation.getShortageProbability() - shortageTarget);
+    }
+
+    /**
+     * Up to {@link #samplesPerIteration} unvisited settings from the most promising area around {@code best}.
+     * Hit-and-run walks inside the area one coordinate at a time; when it keeps landing on visited settings the
+     * unvisited neighbours of the best inside the area are used, so the search only stops once none are left.
+     */
+    private List<int[]> sampleMostPromisingArea(int[] best, Iterable<int[]> visited, Random random) {
+        // The area is the box cut by one half-space per visited setting y: (y - best) . x <= (|y|^2 - |best|^2) / 2
+        List<double[]> normals = new ArrayList<>();
+        List<Double> bounds = new ArrayList<>();
+        for (int[] point : visited) {
+            if (Arrays.equals(point, best)) {
+                continue;
+            }
+            double[] normal = new double[best.length];
+            double bound = 0;
+            for (int i = 0; i < best.length; i++) {
+                normal[i] = point[i] - best[i];
+                bound += ((double) point[i] * point[i] - (double) best[i] * best[i]) / 2;
+            }
+            normals.add(normal);
+            bounds.add(bound);
+        }
+
+        Map<String, int[]> visitedKeys = new LinkedHashMap<>();
+        for (int[] point : visited) {
+            visitedKeys.put(key(point), point);
+        }
+        Map<String, int[]> samples = new LinkedHashMap<>();
+        for (int attempt = 0; attempt < SAMPLE_ATTEMPTS && samples.size() < samplesPerIteration; attempt++) {
+            int[] x = best.clone();
+            for (int step = 0; step < HIT_AND_RUN_STEPS; step++) {
+                int i = random.nextInt(x.length);
+                int from = lower[i] - x[i];
+                int to = upper[i] - x[i];
+                for (int c = 0; c < normals.size(); c++) {
+                    double[] normal = normals.get(c);
+                    if (normal[i] == 0) {
+                        continue;
+                    }
+                    double slack = bounds.get(c);
+                    for (int j = 0; j < x.length; j++) {
+                        slack -= normal[j] * x[j];
+                    }
+                    double limit = slack / normal[i];
+                    if (normal[i] > 0) {
+                        to = Math.min(to, (int) Math.floor(limit + 1e-9));
+                    } else {
+                        from = Math.max(from, (int) Math.ceil(limit - 1e-9));
+                    }
+                }
+                if (from <= to) {
+                    x[i] += from + random.nextInt(to - from + 1);
+                }
+            }
+            String key = key(x);
+            if (!visitedKeys.containsKey(key)) {
+                samples.put(key, x);
+            }
+        }
+
+        if (samples.isEmpty()) {
+            for (int i = 0; i < best.length && samples.size() < samplesPerIteration; i++) {
+                for (int step : new int[]{-1, 1}) {
+                    int[] neighbour = best.clone();
+                    neighbour[i] += step;
+                    if (neighbour[i] >= lower[i] && neighbour[i] <= upper[i] && !visitedKeys.containsKey(key(neighbour))
+                            && inArea(neighbour, normals, bounds)) {
+                        samples.put(key(neighbour), neighbour);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(samples.values());
+    }
+
+    private static boolean inArea(int[] x, List<double[]> normals, List<Double> bounds) {
+        for (int c = 0; c < normals.size(); c++) {
+            double dot = 0;
+            for (int j = 0; j < x.length; j++) {
+                dot += normals.get(c)[j] * x[j];
+            }
+            if (dot > bounds.get(c) + 1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SimulationHistoryRecord.SimulationConfigSnapshot configAt(int[] point) {
+        SimulationHistoryRecord.SimulationConfigSnapshot config = baseConfig;
+        for (int i = 0; i < point.length; i++) {
+            config = parameters.get(i).with(config, point[i]);
+        }
+        return config;
+    }
+
+    public String describe(int[] point) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < point.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(parameters.get(i).getLabel()).append(' ').append(point[i]);
+        }
+        return description.toString();
+    }
+
+    private static String key(int[] point) {
+        return Arrays.toString(point);
+    }
+}
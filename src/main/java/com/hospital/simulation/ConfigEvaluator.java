@@ -0,0 +1,245 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.utils.StatisticsUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Runs many configs over the same horizon and study seed for analyses that compare them. Run {@code i} of every
+ * config uses the same random streams, so differences between configs are measured on common random numbers
+ * and can be compared run by run.
+ * <p>
+ * Only per-run totals are kept. Each config's totals are remembered, so asking for more runs only executes the
+ * missing ones, and runs already in the {@link SimulationRunCache} are read instead of executed. Work is split
+ * into chunks of runs across all requested configs and executed in parallel.
+ */
+public class ConfigEvaluator {
+    private static final int CHUNK_RUNS = 16;
+
+    private final int simulationDays;
+    private final long seed;
+    private final SimulationRunCache runCache;
+    private final Map<String, Evaluation> evaluations = new ConcurrentHashMap<>();
+
+    public ConfigEvaluator(int simulationDays, long seed, SimulationRunCache runCache) {
+        this.simulationDays = simulationDays;
+        this.seed = seed;
+        this.runCache = runCache;
+    }
+
+    public int getSimulationDays() {
+        return simulationDays;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * The per-run totals of one config, in run order.
+     */
+    public static class Evaluation {
+        private final SimulationHistoryRecord.SimulationConfigSnapshot config;
+        private final RunColumns columns = new RunColumns();
+
+        private Evaluation(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+            this.config = config;
+        }
+
+        public SimulationHistoryRecord.SimulationConfigSnapshot getConfig() {
+            return config;
+        }
+
+        public RunColumns getColumns() {
+            return columns;
+        }
+
+        public int getRuns() {
+            return columns.size();
+        }
+
+        public boolean hasShortage(int run) {
+            return columns.getShortageDays()[run] > 0;
+        }
+
+        /**
+         * Average ending first floor plus basement units of one run.
+         */
+        public double getInventory(int run) {
+            return columns.getAvgEndingFirstFloor()[run] + columns.getAvgEndingBasement()[run];
+        }
+
+        public int getShortageRuns() {
+            int count = 0;
+            for (int run = 0; run < columns.size(); run++) {
+                if (hasShortage(run)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Share of runs with at least one shortage day.
+         */
+        public double getShortageProbability() {
+            return columns.size() == 0 ? 0.0 : getShortageRuns() / (double) columns.size();
+        }
+
+        /**
+         * Wilson score interval for the shortage probability, which stays inside [0, 1] and is usable when
+         * no run or every run had a shortage.
+         */
+        public SimulationData.Interval getShortageInterval(double confidence) {
+            int n = columns.size();
+            if (n == 0) {
+                return new SimulationData.Interval(0, 1);
+            }
+            double z = StatisticsUtils.normalQuantile(1 - (1 - confidence) / 2);
+            double p = getShortageProbability();
+            double denominator = 1 + z * z / n;
+            double center = (p + z * z / (2 * n)) / denominator;
+            double margin = z * Math.sqrt(p * (1 - p) / n + z * z / (4.0 * n * n)) / denominator;
+            return new SimulationData.Interval(Math.max(0, center - margin), Math.min(1, center + margin));
+        }
+
+        public double getMeanInventory() {
+            double sum = 0;
+            for (int run = 0; run < columns.size(); run++) {
+                sum += getInventory(run);
+            }
+            return columns.size() == 0 ? 0.0 : sum / columns.size();
+        }
+
+        public double getInventoryStdDeviation() {
+            int n = columns.size();
+            if (n < 2) {
+                return 0.0;
+            }
+            double mean = getMeanInventory();
+            double squares = 0;
+            for (int run = 0; run < n; run++) {
+                double deviation = getInventory(run) - mean;
+                squares += deviation * deviation;
+            }
+            return Math.sqrt(squares / (n - 1));
+        }
+
+        /**
+         * Student-t interval for the mean run-by-run inventory difference, this config minus {@code other}, over
+         * their common runs.
+         */
+        public SimulationData.Interval inventoryDifference(Evaluation other, double confidence) {
+            int runs = Math.min(getRuns(), other.getRuns());
+            double[] differences = new double[runs];
+            for (int run = 0; run < runs; run++) {
+                differences[run] = getInventory(run) - other.getInventory(run);
+            }
+            return pairedDifference(differences, confidence);
+        }
+
+        /**
+         * Student-t interval for the difference in shortage probability, this config minus {@code other}, from
+         * the run-by-run difference of the shortage indicators over their common runs.
+         */
+        public SimulationData.Interval shortageDifference(Evaluation other, double confidence) {
+            int runs = Math.min(getRuns(), other.getRuns());
+            double[] differences = new double[runs];
+            for (int run = 0; run < runs; run++) {
+                differences[run] = (hasShortage(run) ? 1 : 0) - (other.hasShortage(run) ? 1 : 0);
+            }
+            return pairedDifference(differences, confidence);
+        }
+
+        private static SimulationData.Interval pairedDifference(double[] differences, double confidence) {
+            int runs = differences.length;
+            double mean = 0;
+            for (double difference : differences) {
+                mean += difference;
+            }
+            mean /= Math.max(1, runs);
+            if (runs < 2) {
+                return new SimulationData.Interval(mean, mean);
+            }
+            double squares = 0;
+            for (double difference : differences) {
+                squares += (difference - mean) * (difference - mean);
+            }
+            double margin = StatisticsUtils.studentQuantile(1 - (1 - confidence) / 2, runs - 1)
+                    * Math.sqrt(squares / (runs - 1) / runs);
+            return new SimulationData.Interval(mean - margin, mean + margin);
+        }
+    }
+
+    public Evaluation evaluate(SimulationHistoryRecord.SimulationConfigSnapshot config, int runs) {
+        return evaluateAll(List.of(config), runs).get(0);
+    }
+
+    /**
+     * Brings every config up to at least {@code runs} runs and returns their evaluations in the given order.
+     */
+    public List<Evaluation> evaluateAll(List<SimulationHistoryRecord.SimulationConfigSnapshot> configs, int runs) {
+        int[] targets = new int[configs.size()];
+        Arrays.fill(targets, runs);
+        return evaluateAll(configs, targets);
+    }
+
+    /**
+     * Brings config {@code i} up to at least {@code runs[i]} runs and returns the evaluations in the given order.
+     */
+    public List<Evaluation> evaluateAll(List<SimulationHistoryRecord.SimulationConfigSnapshot> configs, int[] runs) {
+        List<Evaluation> result = new ArrayList<>(configs.size());
+        Map<Evaluation, Integer> pending = new LinkedHashMap<>();
+        for (int i = 0; i < configs.size(); i++) {
+            SimulationHistoryRecord.SimulationConfigSnapshot config = configs.get(i);
+            Evaluation evaluation = evaluations.computeIfAbsent(config.getContentHash(), hash -> load(config));
+            result.add(evaluation);
+            if (evaluation.getRuns() < runs[i]) {
+                pending.merge(evaluation, runs[i], Math::max);
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        pending.forEach((evaluation, target) -> {
+            for (int from = evaluation.getRuns(); from < target; from += CHUNK_RUNS) {
+                chunks.add(new Chunk(evaluation, from, Math.min(target, from + CHUNK_RUNS)));
+            }
+        });
+        RunColumns[] computed = new RunColumns[chunks.size()];
+        IntStream.range(0, chunks.size()).parallel().forEach(index -> {
+            Chunk chunk = chunks.get(index);
+            RunColumns columns = new RunColumns();
+            Simulator simulator = new Simulator(chunk.evaluation().getConfig());
+            simulator.setSimulationDays(simulationDays);
+            simulator.simulateRuns(seed, chunk.from(), chunk.to(), columns::add);
+            computed[index] = columns;
+        });
+        // Chunks of one config were listed in run order, so appending them in list order keeps runs in order
+        for (int index = 0; index < chunks.size(); index++) {
+            chunks.get(index).evaluation().columns.addAll(computed[index]);
+        }
+        return result;
+    }
+
+    private Evaluation load(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        Evaluation evaluation = new Evaluation(config);
+        if (runCache != null) {
+            SimulationRunCache.Key key = new SimulationRunCache.Key(
+                    config.getContentHash(), simulationDays, seed, Simulator.ENGINE_VERSION);
+            for (SimulationData run : runCache.load(key, Integer.MAX_VALUE)) {
+                evaluation.columns.add(run);
+            }
+        }
+        return evaluation;
+    }
+
+    private record Chunk(Evaluation evaluation, int from, int to) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+/**
+ * The integer settings of a config that analyses search over, with a way to read one and to copy a config with it
+ * changed.
+ */
+public enum ConfigParameter {
+    REVIEW_TIME("Review Time", 1),
+    FIRST_FLOOR_CAPACITY("First Floor Capacity", 1),
+    BASEMENT_CAPACITY("Basement Capacity", 1),
+    FIRST_FLOOR_START_UNITS("First Floor Start Units", 0),
+    BASEMENT_START_UNITS("Basement Start Units", 0);
+
+    private final String label;
+    private final int minimum;
+
+    ConfigParameter(String label, int minimum) {
+        this.label = label;
+        this.minimum = minimum;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * The smallest value the simulator accepts for the setting.
+     */
+    public int getMinimum() {
+        return minimum;
+    }
+
+    public int get(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        return switch (this) {
+            case REVIEW_TIME -> config.getReviewTime();
+            case FIRST_FLOOR_CAPACITY -> config.getFirstFloorMaxCapacity();
+            case BASEMENT_CAPACITY -> config.getBasementFloorMaxCapacity();
+            case FIRST_FLOOR_START_UNITS -> config.getFirstFloorStartUnits();
+            case BASEMENT_START_UNITS -> config.getBasementFloorStartUnits();
+        };
+    }
+
+    public SimulationHistoryRecord.SimulationConfigSnapshot with(
+            SimulationHistoryRecord.SimulationConfigSnapshot config, int value) {
+        return new SimulationHistoryRecord.SimulationConfigSnapshot(
+                this == REVIEW_TIME ? value : config.getReviewTime(),
+                this == FIRST_FLOOR_CAPACITY ? value : config.getFirstFloorMaxCapacity(),
+                this == BASEMENT_CAPACITY ? value : config.getBasementFloorMaxCapacity(),
+                this == FIRST_FLOOR_START_UNITS ? value : config.getFirstFloorStartUnits(),
+                this == BASEMENT_START_UNITS ? value : config.getBasementFloorStartUnits(),
+                config.getOccupiedRoomsProbabilities(),
+                config.getOrderLeadTimeProbabilities(),
+                config.getRoomConsumptionProbabilities()
+        );
+    }
+}
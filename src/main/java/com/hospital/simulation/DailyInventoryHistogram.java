@@ -0,0 +1,118 @@
+package com.hospital.simulation;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Per-day histogram of ending units across runs. The value domain is bounded by the floor's
+ * capacity, so all days share one flat counter array of {@code totalDays * (capacity + 1)} cells.
+ */
+public class DailyInventoryHistogram {
+    private final int totalDays;
+    private final int capacity;
+    private final int[] counts;
+    private final long[] dayTotals;
+
+    public DailyInventoryHistogram(int totalDays, int capacity) {
+        this.totalDays = totalDays;
+        this.capacity = Math.max(capacity, 0);
+        this.counts = new int[totalDays * (this.capacity + 1)];
+        this.dayTotals = new long[totalDays];
+    }
+
+    public static DailyInventoryHistogram fromRuns(List<SimulationData> runs, int capacity,
+                                                   Function<SimulationData, List<Integer>> series) {
+        int totalDays = runs.isEmpty() ? 0 : runs.get(0).totalDays;
+        DailyInventoryHistogram histogram = new DailyInventoryHistogram(totalDays, capacity);
+
+        for (SimulationData run : runs) {
+            List<Integer> values = series.apply(run);
+            int days = Math.min(totalDays, values.size());
+            for (int day = 0; day < days; day++) {
+                histogram.record(day, values.get(day));
+            }
+        }
+        return histogram;
+    }
+
+    public static DailyInventoryHistogram fromColumn(int totalDays, int capacity, int[][] series) {
+        DailyInventoryHistogram histogram = new DailyInventoryHistogram(totalDays, capacity);
+
+        for (int[] values : series) {
+            int days = Math.min(totalDays, values.length);
+            for (int day = 0; day < days; day++) {
+                histogram.record(day, values[day]);
+            }
+        }
+        return histogram;
+    }
+
+    public void record(int dayIndex, int units) {
+        int bin = Math.min(Math.max(units, 0), capacity);
+        counts[dayIndex * (capacity + 1) + bin]++;
+        dayTotals[dayIndex]++;
+    }
+
+    public int getTotalDays() {
+        return totalDays;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getCount(int dayIndex) {
+        return dayTotals[dayIndex];
+    }
+
+    public int getFrequency(int dayIndex, int units) {
+        return counts[dayIndex * (capacity + 1) + units];
+    }
+
+    /**
+     * Smallest unit count whose cumulative frequency reaches {@code probability} of the day's runs.
+     */
+    public int quantile(int dayIndex, double probability) {
+        long total = dayTotals[dayIndex];
+        if (total == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(probability * total));
+        int offset = dayIndex * (capacity + 1);
+        long cumulative = 0;
+        for (int units = 0; units <= capacity; units++) {
+            cumulative += counts[offset + units];
+            if (cumulative >= target) {
+                return units;
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * Computes several quantiles per day in one cumulative scan; {@code probabilities} must be ascending.
+     * The result is indexed as {@code [probabilityIndex][dayIndex]}.
+     */
+    public int[][] quantiles(double... probabilities) {
+        int[][] result = new int[probabilities.length][totalDays];
+
+        for (int day = 0; day < totalDays; day++) {
+            long total = dayTotals[day];
+            if (total == 0) continue;
+
+            int offset = day * (capacity + 1);
+            long cumulative = 0;
+            int next = 0;
+            for (int units = 0; units <= capacity && next < probabilities.length; units++) {
+                cumulative += counts[offset + units];
+                while (next < probabilities.length
+                        && cumulative >= Math.max(1, (long) Math.ceil(probabilities[next] * total))) {
+                    result[next++][day] = units;
+                }
+            }
+            while (next < probabilities.length) {
+                result[next++][day] = capacity;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package com.hospital.simulation;
+
+import java.util.List;
+
+/**
+ * Running per-day mean/variance of the ending inventories across runs (Welford's algorithm),
+ * updated by the engine as each day completes so the charts never need the per-run series.
+ */
+public class DailyInventoryStatistics {
+    private final int totalDays;
+    private final long[] counts;
+    private final double[] firstFloorMeans;
+    private final double[] firstFloorM2;
+    private final double[] basementMeans;
+    private final double[] basementM2;
+
+    public DailyInventoryStatistics(int totalDays) {
+        this.totalDays = totalDays;
+        this.counts = new long[totalDays];
+        this.firstFloorMeans = new double[totalDays];
+        this.firstFloorM2 = new double[totalDays];
+        this.basementMeans = new double[totalDays];
+        this.basementM2 = new double[totalDays];
+    }
+
+    public static DailyInventoryStatistics fromRuns(List<SimulationData> runs) {
+        int totalDays = runs.isEmpty() ? 0 : runs.get(0).totalDays;
+        DailyInventoryStatistics statistics = new DailyInventoryStatistics(totalDays);
+
+        for (SimulationData run : runs) {
+            int days = Math.min(totalDays, Math.min(run.firstFloorEndUnits.size(), run.basementFloorEndUnits.size()));
+            for (int day = 0; day < days; day++) {
+                statistics.record(day, run.firstFloorEndUnits.get(day), run.basementFloorEndUnits.get(day));
+            }
+        }
+        return statistics;
+    }
+
+    public static DailyInventoryStatistics fromColumns(int totalDays, int[][] firstFloorEndUnits, int[][] basementFloorEndUnits) {
+        DailyInventoryStatistics statistics = new DailyInventoryStatistics(totalDays);
+
+        for (int run = 0; run < Math.min(firstFloorEndUnits.length, basementFloorEndUnits.length); run++) {
+            int[] firstFloor = firstFloorEndUnits[run];
+            int[] basement = basementFloorEndUnits[run];
+            int days = Math.min(totalDays, Math.min(firstFloor.length, basement.length));
+            for (int day = 0; day < days; day++) {
+                statistics.record(day, firstFloor[day], basement[day]);
+            }
+        }
+        return statistics;
+    }
+
+    public void record(int dayIndex, int firstFloorUnits, int basementFloorUnits) {
+        long n = ++counts[dayIndex];
+
+        double delta = firstFloorUnits - firstFloorMeans[dayIndex];
+        firstFloorMeans[dayIndex] += delta / n;
+        firstFloorM2[dayIndex] += delta * (firstFloorUnits - firstFloorMeans[dayIndex]);
+
+        delta = basementFloorUnits - basementMeans[dayIndex];
+        basementMeans[dayIndex] += delta / n;
+        basementM2[dayIndex] += delta * (basementFloorUnits - basementMeans[dayIndex]);
+    }
+
+    public int getTotalDays() {
+        return totalDays;
+    }
+
+    public long getCount(int dayIndex) {
+        return counts[dayIndex];
+    }
+
+    public double getFirstFloorMean(int dayIndex) {
+        return firstFloorMeans[dayIndex];
+    }
+
+    public double getBasementMean(int dayIndex) {
+        return basementMeans[dayIndex];
+    }
+
+    public double getFirstFloorStdDeviation(int dayIndex) {
+        return sampleStdDeviation(firstFloorM2[dayIndex], counts[dayIndex]);
+    }
+
+    public double getBasementStdDeviation(int dayIndex) {
+        return sampleStdDeviation(basementM2[dayIndex], counts[dayIndex]);
+    }
+
+    private static double sampleStdDeviation(double m2, long n) {
+        if (n <= 1) return 0.0;
+        return Math.sqrt(m2 / (n - 1));
+    }
+}
@@ -0,0 +1,98 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The distributions of a config, each reshaped by one number so analyses can vary a distribution's shape like
+ * any other setting. A tilt of {@code t} exponentially tilts the distribution: each value's probability is scaled
+ * by {@code exp(t * z)}, where {@code z} is the value's standard score, and the probabilities are rescaled to
+ * their original total. Positive tilts move probability towards larger values, negative ones towards smaller
+ * values, and 0 leaves the distribution unchanged.
+ */
+public enum DistributionShape {
+    OCCUPIED_ROOMS("Occupied Rooms Shape"),
+    ORDER_LEAD_TIME("Order Lead Time Shape"),
+    ROOM_CONSUMPTION("Room Consumption Shape");
+
+    private final String label;
+
+    DistributionShape(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Map<Integer, Double> get(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        return switch (this) {
+            case OCCUPIED_ROOMS -> config.getOccupiedRoomsProbabilities();
+            case ORDER_LEAD_TIME -> config.getOrderLeadTimeProbabilities();
+            case ROOM_CONSUMPTION -> config.getRoomConsumptionProbabilities();
+        };
+    }
+
+    public SimulationHistoryRecord.SimulationConfigSnapshot with(
+            SimulationHistoryRecord.SimulationConfigSnapshot config, double tilt) {
+        Map<Integer, Double> tilted = tilt(get(config), tilt);
+        return new SimulationHistoryRecord.SimulationConfigSnapshot(
+                config.getReviewTime(),
+                config.getFirstFloorMaxCapacity(),
+                config.getBasementFloorMaxCapacity(),
+                config.getFirstFloorStartUnits(),
+                config.getBasementFloorStartUnits(),
+                this == OCCUPIED_ROOMS ? tilted : config.getOccupiedRoomsProbabilities(),
+                this == ORDER_LEAD_TIME ? tilted : config.getOrderLeadTimeProbabilities(),
+                this == ROOM_CONSUMPTION ? tilted : config.getRoomConsumptionProbabilities()
+        );
+    }
+
+    static Map<Integer, Double> tilt(Map<Integer, Double> probabilities, double tilt) {
+        double total = 0;
+        double mean = 0;
+        for (Map.Entry<Integer, Double> entry : probabilities.entrySet()) {
+            total += entry.getValue();
+            mean += entry.getKey() * entry.getValue();
+        }
+        if (tilt == 0 || total <= 0) {
+            return probabilities;
+        }
+        mean /= total;
+        double variance = 0;
+        for (Map.Entry<Integer, Double> entry : probabilities.entrySet()) {
+            variance += (entry.getKey() - mean) * (entry.getKey() - mean) * entry.getValue();
+        }
+        double deviation = Math.sqrt(variance / total);
+        if (deviation == 0) {
+            return probabilities;
+        }
+
+        Map<Integer, Double> weights = new LinkedHashMap<>();
+        double weightTotal = 0;
+        for (Map.Entry<Integer, Double> entry : probabilities.entrySet()) {
+            double weight = entry.getValue() * Math.exp(tilt * (entry.getKey() - mean) / deviation);
+            weights.put(entry.getKey(), weight);
+            weightTotal += weight;
+        }
+        double scale = total / weightTotal;
+        double sum = 0;
+        for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+            entry.setValue(entry.getValue() * scale);
+            sum += entry.getValue();
+        }
+        // Rounding can push a full distribution just over 1, which ProbabilityDistribution rejects
+        if (sum > 1) {
+            Map.Entry<Integer, Double> largest = null;
+            for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+                if (largest == null || entry.getValue() > largest.getValue()) {
+                    largest = entry;
+                }
+            }
+            largest.setValue(Math.max(0, largest.getValue() - 2 * (sum - 1)));
+        }
+        return weights;
+    }
+}
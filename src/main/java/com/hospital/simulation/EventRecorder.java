@@ -0,0 +1,285 @@
+package com.hospital.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Captures every event of a consecutive range of runs, set on a {@link Simulator} with
+ * {@link Simulator#setEventRecorder}. The simulator records the runs it executes; runs it takes from the run cache
+ * are not recorded and are replayed from their seeds instead.
+ * <p>
+ * Each record is a type tag followed by its values as zigzag varints. Day records hold each value as the
+ * difference from the run's previous day record, and inventories move little from one day to the next, so a day
+ * usually takes about a dozen bytes instead of eleven ints. Records are buffered in a fixed chunk and the chunk is
+ * appended to a temporary file whenever it fills, so memory stays bounded however many runs are recorded. A
+ * per-run offset index lets {@link #replay} read one run's records directly.
+ * <p>
+ * Not thread-safe. {@link #close()} deletes the file.
+ */
+public class EventRecorder implements SimulationEventListener, AutoCloseable {
+    private static final byte TYPE_DAY = 1;
+    private static final byte TYPE_DELIVERY = 2;
+    private static final byte TYPE_TRANSFER = 3;
+    private static final byte TYPE_ORDER = 4;
+    private static final byte TYPE_SHORTAGE = 5;
+
+    private static final int DAY_FIELDS = 10;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int MAX_RECORD_BYTES = 1 + DAY_FIELDS * MAX_VARINT_BYTES;
+    private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+
+    private final byte[] chunk;
+    private int chunkLength;
+    private Path spillPath;
+    private FileChannel spill;
+    private long spilledBytes;
+    // runOffsets[i] is the position of the first record of run firstRun + i, in bytes from the start of the stream
+    private long[] runOffsets = new long[16];
+    private int firstRun;
+    private int runCount;
+    // The current run's previous day record, which the next one is written as a difference from
+    private final int[] previousDay = new int[DAY_FIELDS];
+
+    public EventRecorder() {
+        this(DEFAULT_CHUNK_BYTES);
+    }
+
+    public EventRecorder(int chunkBytes) {
+        this.chunk = new byte[Math.max(chunkBytes, MAX_RECORD_BYTES)];
+    }
+
+    /**
+     * Starts the next run. Recorded runs must be consecutive; the first one may be any run.
+     */
+    public void beginRun(int run) {
+        if (runCount == 0) {
+            firstRun = run;
+        } else if (run != firstRun + runCount) {
+            throw new IllegalStateException("Expected run " + (firstRun + runCount) + " but got " + run);
+        }
+        if (runCount + 1 >= runOffsets.length) {
+            runOffsets = Arrays.copyOf(runOffsets, runOffsets.length * 2);
+        }
+        runOffsets[runCount] = position();
+        runCount++;
+        Arrays.fill(previousDay, 0);
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Whether {@code run}'s events were recorded.
+     */
+    public boolean hasRun(int run) {
+        return runCount > 0 && run >= firstRun && run < firstRun + runCount;
+    }
+
+    /**
+     * Bytes of records moved to the temporary file so far.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    @Override
+    public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart, boolean didTransfer,
+                           int firstFloorEnd, int basementFloorEnd, int daysTillReview, int orderSize, int leadTime) {
+        reserve(MAX_RECORD_BYTES);
+        chunk[chunkLength++] = TYPE_DAY;
+        writeDayField(0, day);
+        writeDayField(1, demand);
+        writeDayField(2, firstFloorStart);
+        writeDayField(3, basementFloorStart);
+        writeDayField(4, didTransfer ? 1 : 0);
+        writeDayField(5, firstFloorEnd);
+        writeDayField(6, basementFloorEnd);
+        writeDayField(7, daysTillReview);
+        writeDayField(8, orderSize);
+        writeDayField(9, leadTime);
+    }
+
+    @Override
+    public void onDeliveryEvent(int day, int orderSize) {
+        write(TYPE_DELIVERY, day, orderSize);
+    }
+
+    @Override
+    public void onTransferEvent(int day, int units) {
+        write(TYPE_TRANSFER, day, units);
+    }
+
+    @Override
+    public void onOrderEvent(int day, int orderSize, int leadTime) {
+        reserve(1 + 3 * MAX_VARINT_BYTES);
+        chunk[chunkLength++] = TYPE_ORDER;
+        writeVarint(day);
+        writeVarint(orderSize);
+        writeVarint(leadTime);
+    }
+
+    @Override
+    public void onShortageEvent(int day, int amount) {
+        write(TYPE_SHORTAGE, day, amount);
+    }
+
+    /**
+     * Reports run {@code run}'s events to {@code listener} in the order they were recorded.
+     */
+    public void replay(int run, SimulationEventListener listener) {
+        if (!hasRun(run)) {
+            throw new IndexOutOfBoundsException("Run " + run + " was not recorded");
+        }
+        int index = run - firstRun;
+        long start = runOffsets[index];
+        long end = index + 1 < runCount ? runOffsets[index + 1] : position();
+        Decoder records = new Decoder(read(start, (int) (end - start)));
+
+        int[] day = new int[DAY_FIELDS];
+        while (records.hasMore()) {
+            byte type = records.nextType();
+            switch (type) {
+                case TYPE_DAY -> {
+                    for (int field = 0; field < DAY_FIELDS; field++) {
+                        day[field] += records.nextVarint();
+                    }
+                    listener.onDayEvent(day[0], day[1], day[2], day[3], day[4] != 0,
+                            day[5], day[6], day[7], day[8], day[9]);
+                }
+                case TYPE_DELIVERY -> listener.onDeliveryEvent(records.nextVarint(), records.nextVarint());
+                case TYPE_TRANSFER -> listener.onTransferEvent(records.nextVarint(), records.nextVarint());
+                case TYPE_ORDER -> listener.onOrderEvent(records.nextVarint(), records.nextVarint(), records.nextVarint());
+                case TYPE_SHORTAGE -> listener.onShortageEvent(records.nextVarint(), records.nextVarint());
+                default -> throw new IllegalStateException("Corrupt event record of type " + type + " in run " + run);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (spill != null) {
+                spill.close();
+                Files.deleteIfExists(spillPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete recorded events: " + e.getMessage());
+        } finally {
+            spill = null;
+            chunkLength = 0;
+            spilledBytes = 0;
+            runCount = 0;
+        }
+    }
+
+    private long position() {
+        return spilledBytes + chunkLength;
+    }
+
+    private void write(byte type, int day, int value) {
+        reserve(1 + 2 * MAX_VARINT_BYTES);
+        chunk[chunkLength++] = type;
+        writeVarint(day);
+        writeVarint(value);
+    }
+
+    private void writeDayField(int field, int value) {
+        writeVarint(value - previousDay[field]);
+        previousDay[field] = value;
+    }
+
+    /**
+     * Writes {@code value} zigzag encoded, so small negative values take as few bytes as small positive ones.
+     */
+    private void writeVarint(int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            chunk[chunkLength++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        chunk[chunkLength++] = (byte) zigzag;
+    }
+
+    /**
+     * Spills the chunk if the next record may not fit, so records never straddle the chunk boundary.
+     */
+    private void reserve(int bytes) {
+        if (chunkLength + bytes <= chunk.length) {
+            return;
+        }
+        try {
+            if (spill == null) {
+                spillPath = Files.createTempFile("simulation-events", ".bin");
+                spillPath.toFile().deleteOnExit();
+                spill = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, chunkLength);
+            spill.position(spilledBytes);
+            while (buffer.hasRemaining()) {
+                spill.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill recorded events", e);
+        }
+        spilledBytes += chunkLength;
+        chunkLength = 0;
+    }
+
+    private byte[] read(long start, int length) {
+        byte[] records = new byte[length];
+        int fromDisk = (int) Math.max(0, Math.min(spilledBytes - start, length));
+        if (fromDisk > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(records, 0, fromDisk);
+            try {
+                while (buffer.hasRemaining()) {
+                    int read = spill.read(buffer, start + buffer.position());
+                    if (read < 0) {
+                        throw new IOException("Recorded events end early");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read recorded events", e);
+            }
+        }
+        if (fromDisk < length) {
+            System.arraycopy(chunk, (int) (start + fromDisk - spilledBytes), records, fromDisk, length - fromDisk);
+        }
+        return records;
+    }
+
+    private static class Decoder {
+        private final byte[] bytes;
+        private int position;
+
+        private Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        byte nextType() {
+            return bytes[position++];
+        }
+
+        int nextVarint() {
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.hospital.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Frequency counts of small non-negative integer values, indexed directly by value.
+ */
+public class IntHistogram {
+    private long[] counts = new long[16];
+    private int maxValue = -1;
+    private long total = 0;
+
+    public static IntHistogram fromRuns(List<SimulationData> runs, Function<SimulationData, List<Integer>> series) {
+        IntHistogram histogram = new IntHistogram();
+        for (SimulationData run : runs) {
+            for (int value : series.apply(run)) {
+                histogram.record(value);
+            }
+        }
+        return histogram;
+    }
+
+    public static IntHistogram fromColumn(int[][] series) {
+        IntHistogram histogram = new IntHistogram();
+        for (int[] values : series) {
+            for (int value : values) {
+                histogram.record(value);
+            }
+        }
+        return histogram;
+    }
+
+    public void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Histogram values must be non-negative: " + value);
+        }
+        if (value >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, value + 1));
+        }
+        counts[value]++;
+        maxValue = Math.max(maxValue, value);
+        total++;
+    }
+
+    public long getCount(int value) {
+        return value >= 0 && value < counts.length ? counts[value] : 0;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+}
@@ -0,0 +1,267 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.utils.StatisticsUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Traces the trade-off between shortage probability and average ending inventory over a grid of settings. Every
+ * setting starts with a few runs; after each stage a setting is pruned once a remaining setting with no higher
+ * estimated shortage probability holds significantly less inventory and a shortage probability that is
+ * significantly no higher, both judged on paired common random number intervals. The intervals are Bonferroni
+ * corrected over every ordered pair of settings and every stage, so the chance that any setting is pruned wrongly
+ * during the whole exploration stays within the chosen confidence. Only the remaining settings get more runs, up to
+ * the final count. The frontier is then the remaining settings that no other remaining setting beats on both
+ * estimates.
+ */
+public class ParetoExplorer {
+
+    public enum Status {
+        FRONTIER("On frontier"),
+        DOMINATED("Dominated"),
+        PRUNED("Pruned early");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * @param prunedAtRuns run count at which the setting was pruned, or -1 if it never was
+     */
+    public record Point(int[] setting, ConfigEvaluator.Evaluation evaluation,
+                        SimulationData.Interval shortageInterval, SimulationData.Interval inventoryInterval,
+                        Status status, int prunedAtRuns) {
+    }
+
+    public record Result(List<ConfigParameter> parameters, List<Point> points, int stages, long totalRuns) {
+    }
+
+    private final ConfigEvaluator evaluator;
+    private final SimulationHistoryRecord.SimulationConfigSnapshot baseConfig;
+    private final List<ConfigParameter> parameters;
+    private final int[] lower;
+    private final int[] upper;
+    private int gridPoints = 8;
+    private int initialRuns = 20;
+    private int runIncrement = 20;
+    private int finalRuns = 200;
+    private double confidence = 0.95;
+    private Consumer<String> progressListener = message -> { };
+
+    /**
+     * Explores {@code parameters} between {@code lower} and {@code upper} inclusive; every other setting stays as
+     * in {@code baseConfig}.
+     */
+    public ParetoExplorer(ConfigEvaluator evaluator, SimulationHistoryRecord.SimulationConfigSnapshot baseConfig,
+                          List<ConfigParameter> parameters, int[] lower, int[] upper) {
+        this.evaluator = evaluator;
+        this.baseConfig = baseConfig;
+        this.parameters = List.copyOf(parameters);
+        this.lower = lower.clone();
+        this.upper = upper.clone();
+    }
+
+    /**
+     * Evenly spaced values tried per parameter, fewer when its range is shorter.
+     */
+    public void setGridPoints(int gridPoints) {
+        this.gridPoints = Math.max(1, gridPoints);
+    }
+
+    public void setInitialRuns(int initialRuns) {
+        this.initialRuns = Math.max(2, initialRuns);
+    }
+
+    public void setRunIncrement(int runIncrement) {
+        this.runIncrement = Math.max(1, runIncrement);
+    }
+
+    public void setFinalRuns(int finalRuns) {
+        this.finalRuns = finalRuns;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public void setProgressListener(Consumer<String> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Result explore() {
+        List<int[]> settings = grid();
+        List<SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ArrayList<>();
+        for (int[] setting : settings) {
+            configs.add(configAt(setting));
+        }
+
+        int count = settings.size();
+        int[] prunedAt = new int[count];
+        Arrays.fill(prunedAt, -1);
+        int runs = Math.min(initialRuns, finalRuns);
+        int plannedStages = 1 + (finalRuns - runs + runIncrement - 1) / runIncrement;
+        double pruneConfidence = 1 - (1 - confidence) / Math.max(1, (double) count * (count - 1) * plannedStages);
+        List<ConfigEvaluator.Evaluation> evaluations = evaluator.evaluateAll(configs, runs);
+        int active = count;
+        int stages = 1;
+        while (true) {
+            // Settings are judged from the lowest estimated shortage up, so every setting that could prune one has
+            // already been judged and a setting is only ever pruned by one that survives the stage
+            List<Integer> order = new ArrayList<>();
+            for (int a = 0; a < count; a++) {
+                if (prunedAt[a] < 0) {
+                    order.add(a);
+                }
+            }
+            order.sort(Comparator.comparingDouble((Integer a) -> evaluations.get(a).getShortageProbability())
+                    .thenComparingDouble(a -> evaluations.get(a).getMeanInventory()));
+            List<Integer> survivors = new ArrayList<>();
+            for (int a : order) {
+                boolean pruned = false;
+                for (int b : survivors) {
+                    if (dominates(evaluations.get(b), evaluations.get(a), pruneConfidence)) {
+                        pruned = true;
+                        break;
+                    }
+                }
+                if (pruned) {
+                    prunedAt[a] = runs;
+                    active--;
+                } else {
+                    survivors.add(a);
+                }
+            }
+            progressListener.accept("Stage " + stages + ": " + active + " of " + count + " settings left after "
+                    + runs + " runs each");
+            if (runs >= finalRuns) {
+                break;
+            }
+
+            runs = Math.min(finalRuns, runs + runIncrement);
+            List<SimulationHistoryRecord.SimulationConfigSnapshot> remaining = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>();
+            for (int a = 0; a < count; a++) {
+                if (prunedAt[a] < 0) {
+                    remaining.add(configs.get(a));
+                    indices.add(a);
+                }
+            }
+            List<ConfigEvaluator.Evaluation> results = evaluator.evaluateAll(remaining, runs);
+            for (int j = 0; j < indices.size(); j++) {
+                evaluations.set(indices.get(j), results.get(j));
+            }
+            stages++;
+        }
+
+        List<Point> points = new ArrayList<>();
+        long totalRuns = 0;
+        for (int a = 0; a < count; a++) {
+            ConfigEvaluator.Evaluation evaluation = evaluations.get(a);
+            Status status;
+            if (prunedAt[a] >= 0) {
+                status = Status.PRUNED;
+            } else {
+                status = Status.FRONTIER;
+                for (int b = 0; b < count; b++) {
+                    if (b != a && prunedAt[b] < 0 && beats(evaluations.get(b), evaluation)) {
+                        status = Status.DOMINATED;
+                        break;
+                    }
+                }
+            }
+            points.add(new Point(settings.get(a), evaluation, evaluation.getShortageInterval(confidence),
+                    inventoryInterval(evaluation), status, prunedAt[a]));
+            totalRuns += evaluation.getRuns();
+        }
+        progressListener.accept("Done: " + points.stream().filter(point -> point.status() == Status.FRONTIER).count()
+                + " settings on the frontier");
+        return new Result(parameters, points, stages, totalRuns);
+    }
+
+    /**
+     * Whether {@code candidate} significantly holds less inventory than {@code other} with a shortage probability
+     * that is significantly no higher. Only called with a candidate whose estimated shortage is at most
+     * {@code other}'s.
+     */
+    private static boolean dominates(ConfigEvaluator.Evaluation candidate, ConfigEvaluator.Evaluation other,
+                                     double confidence) {
+        return candidate.shortageDifference(other, confidence).upper() <= 0
+                && candidate.inventoryDifference(other, confidence).upper() < 0;
+    }
+
+    private static boolean beats(ConfigEvaluator.Evaluation candidate, ConfigEvaluator.Evaluation other) {
+        double shortage = candidate.getShortageProbability();
+        double inventory = candidate.getMeanInventory();
+        return shortage <= other.getShortageProbability() && inventory <= other.getMeanInventory()
+                && (shortage < other.getShortageProbability() || inventory < other.getMeanInventory());
+    }
+
+    private SimulationData.Interval inventoryInterval(ConfigEvaluator.Evaluation evaluation) {
+        double mean = evaluation.getMeanInventory();
+        if (evaluation.getRuns() < 2) {
+            return new SimulationData.Interval(mean, mean);
+        }
+        double margin = StatisticsUtils.studentQuantile(1 - (1 - confidence) / 2, evaluation.getRuns() - 1)
+                * evaluation.getInventoryStdDeviation() / Math.sqrt(evaluation.getRuns());
+        return new SimulationData.Interval(mean - margin, mean + margin);
+    }
+
+    private List<int[]> grid() {
+        List<int[]> values = new ArrayList<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            TreeSet<Integer> axis = new TreeSet<>();
+            for (int step = 0; step < gridPoints; step++) {
+                axis.add(gridPoints == 1 ? lower[i]
+                        : (int) Math.round(lower[i] + (upper[i] - lower[i]) * step / (double) (gridPoints - 1)));
+            }
+            values.add(axis.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        List<int[]> settings = new ArrayList<>();
+        settings.add(new int[0]);
+        for (int[] axis : values) {
+            List<int[]> extended = new ArrayList<>();
+            for (int[] setting : settings) {
+                for (int value : axis) {
+                    int[] next = Arrays.copyOf(setting, setting.length + 1);
+                    next[setting.length] = value;
+                    extended.add(next);
+                }
+            }
+            settings = extended;
+        }
+        return settings;
+    }
+
+    public SimulationHistoryRecord.SimulationConfigSnapshot configAt(int[] setting) {
+        SimulationHistoryRecord.SimulationConfigSnapshot config = baseConfig;
+        for (int i = 0; i < setting.length; i++) {
+            config = parameters.get(i).with(config, setting[i]);
+        }
+        return config;
+    }
+
+    public String describe(int[] setting) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < setting.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(parameters.get(i).getLabel()).append(' ').append(setting[i]);
+        }
+        return description.toString();
+    }
+}
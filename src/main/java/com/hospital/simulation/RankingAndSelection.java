@@ -0,0 +1,365 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.utils.StatisticsUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Picks the candidate config with the smallest mean of a per-run measure while spending runs unevenly: candidates
+ * that are clearly worse stop receiving runs early and the remaining runs go to the close contenders. Each stage
+ * brings every candidate that still needs runs up to its new count at once through the {@link ConfigEvaluator}, so
+ * candidates are simulated concurrently.
+ * <p>
+ * {@link Procedure#KN} is Kim and Nelson's fully sequential procedure on common random numbers. It guarantees the
+ * requested probability of correct selection whenever the best mean is at least the indifference zone below every
+ * other. {@link Procedure#OCBA} allocates each stage's runs by optimal computing budget allocation and stops once
+ * the approximate probability of correct selection reaches the requested level or the run budget is spent.
+ */
+public class RankingAndSelection {
+
+    public enum Procedure {
+        KN("KN (Indifference Zone)"),
+        OCBA("OCBA (Budget Allocation)");
+
+        private final String label;
+
+        Procedure(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Per-run quantity the candidates are ranked by; smaller is better.
+     */
+    public enum Measure {
+        AVERAGE_INVENTORY("Average Ending Inventory"),
+        SHORTAGE_DAYS("Shortage Days"),
+        SHORTAGE_UNITS("Shortage Units");
+
+        private final String label;
+
+        Measure(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public double value(ConfigEvaluator.Evaluation evaluation, int run) {
+            return switch (this) {
+                case AVERAGE_INVENTORY -> evaluation.getInventory(run);
+                case SHORTAGE_DAYS -> evaluation.getColumns().getShortageDays()[run];
+                case SHORTAGE_UNITS -> evaluation.getColumns().getShortageAmounts()[run];
+            };
+        }
+    }
+
+    /**
+     * @param eliminatedAtRuns run count at which KN dropped the candidate, or -1 if it was never dropped
+     */
+    public record Candidate(SimulationHistoryRecord.SimulationConfigSnapshot config,
+                            ConfigEvaluator.Evaluation evaluation, int runs, double mean, double stdDeviation,
+                            int eliminatedAtRuns) {
+    }
+
+    /**
+     * @param selected whether the stopping rule was met before the run budget ran out
+     * @param probabilityOfCorrectSelection the guaranteed level for KN, the approximate one for OCBA
+     */
+    public record Result(Procedure procedure, Measure measure, List<Candidate> candidates, int bestIndex,
+                         boolean selected, double probabilityOfCorrectSelection, int stages, long totalRuns) {
+    }
+
+    private final ConfigEvaluator evaluator;
+    private final List<SimulationHistoryRecord.SimulationConfigSnapshot> configs;
+    private final Measure measure;
+    private double probabilityOfCorrectSelection = 0.95;
+    private double indifferenceZone = 1.0;
+    private int initialRuns = 20;
+    private int runIncrement = 10;
+    private int maxRunsPerCandidate = 1000;
+    private Consumer<String> progressListener = message -> { };
+
+    public RankingAndSelection(ConfigEvaluator evaluator,
+                               List<SimulationHistoryRecord.SimulationConfigSnapshot> configs, Measure measure) {
+        if (configs.size() < 2) {
+            throw new IllegalArgumentException("At least two candidates are required");
+        }
+        this.evaluator = evaluator;
+        this.configs = List.copyOf(configs);
+        this.measure = measure;
+    }
+
+    public void setProbabilityOfCorrectSelection(double probabilityOfCorrectSelection) {
+        this.probabilityOfCorrectSelection = probabilityOfCorrectSelection;
+    }
+
+    /**
+     * Smallest difference in means worth detecting, in the measure's units; used by KN only.
+     */
+    public void setIndifferenceZone(double indifferenceZone) {
+        this.indifferenceZone = indifferenceZone;
+    }
+
+    public void setInitialRuns(int initialRuns) {
+        this.initialRuns = Math.max(2, initialRuns);
+    }
+
+    /**
+     * Runs added per surviving candidate per KN stage, or per candidate on average per OCBA stage.
+     */
+    public void setRunIncrement(int runIncrement) {
+        this.runIncrement = Math.max(1, runIncrement);
+    }
+
+    public void setMaxRunsPerCandidate(int maxRunsPerCandidate) {
+        this.maxRunsPerCandidate = maxRunsPerCandidate;
+    }
+
+    public void setProgressListener(Consumer<String> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Result select(Procedure procedure) {
+        return procedure == Procedure.KN ? selectKn() : selectOcba();
+    }
+
+    private Result selectKn() {
+        int k = configs.size();
+        int n0 = Math.min(initialRuns, maxRunsPerCandidate);
+        List<ConfigEvaluator.Evaluation> evaluations = evaluator.evaluateAll(configs, n0);
+
+        double alpha = 1 - probabilityOfCorrectSelection;
+        double eta = 0.5 * (Math.pow(2 * alpha / (k - 1), -2.0 / (n0 - 1)) - 1);
+        double hSquared = 2 * eta * (n0 - 1);
+        // Variances of the run-by-run differences over the first n0 runs, which is where common random numbers help
+        double[][] differenceVariance = new double[k][k];
+        for (int i = 0; i < k; i++) {
+            for (int l = i + 1; l < k; l++) {
+                differenceVariance[i][l] = differenceVariance[l][i] =
+                        differenceVariance(evaluations.get(i), evaluations.get(l), n0);
+            }
+        }
+
+        int[] eliminatedAt = new int[k];
+        Arrays.fill(eliminatedAt, -1);
+        int survivors = k;
+        int runs = n0;
+        int stages = 1;
+        while (true) {
+            double[] means = new double[k];
+            for (int i = 0; i < k; i++) {
+                if (eliminatedAt[i] < 0) {
+                    means[i] = mean(evaluations.get(i), runs);
+                }
+            }
+            boolean[] eliminate = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                for (int l = 0; l < k && eliminatedAt[i] < 0 && !eliminate[i]; l++) {
+                    if (l == i || eliminatedAt[l] >= 0) {
+                        continue;
+                    }
+                    double w = Math.max(0, indifferenceZone / (2.0 * runs)
+                            * (hSquared * differenceVariance[i][l] / (indifferenceZone * indifferenceZone) - runs));
+                    if (means[i] > means[l] + w) {
+                        eliminate[i] = true;
+                    }
+                }
+            }
+            for (int i = 0; i < k; i++) {
+                if (eliminate[i]) {
+                    eliminatedAt[i] = runs;
+                    survivors--;
+                }
+            }
+            progressListener.accept("Stage " + stages + ": " + survivors + " of " + k + " candidates left after "
+                    + runs + " runs each");
+            if (survivors <= 1 || runs >= maxRunsPerCandidate) {
+                break;
+            }
+
+            runs = Math.min(maxRunsPerCandidate, runs + runIncrement);
+            List<SimulationHistoryRecord.SimulationConfigSnapshot> contenders = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < k; i++) {
+                if (eliminatedAt[i] < 0) {
+                    contenders.add(configs.get(i));
+                    indices.add(i);
+                }
+            }
+            List<ConfigEvaluator.Evaluation> results = evaluator.evaluateAll(contenders, runs);
+            for (int j = 0; j < indices.size(); j++) {
+                evaluations.set(indices.get(j), results.get(j));
+            }
+            stages++;
+        }
+
+        int[] used = new int[k];
+        for (int i = 0; i < k; i++) {
+            used[i] = eliminatedAt[i] >= 0 ? eliminatedAt[i] : runs;
+        }
+        int best = -1;
+        for (int i = 0; i < k; i++) {
+            if (eliminatedAt[i] < 0 && (best < 0 || mean(evaluations.get(i), runs) < mean(evaluations.get(best), runs))) {
+                best = i;
+            }
+        }
+        return result(Procedure.KN, evaluations, used, eliminatedAt, best, survivors == 1,
+                probabilityOfCorrectSelection, stages);
+    }
+
+    private Result selectOcba() {
+        int k = configs.size();
+        int budget = maxRunsPerCandidate * k;
+        int[] target = new int[k];
+        Arrays.fill(target, Math.min(initialRuns, maxRunsPerCandidate));
+        List<ConfigEvaluator.Evaluation> evaluations = evaluator.evaluateAll(configs, target);
+
+        int stages = 1;
+        while (true) {
+            int[] runs = new int[k];
+            double[] means = new double[k];
+            double[] variances = new double[k];
+            int best = 0;
+            for (int i = 0; i < k; i++) {
+                runs[i] = Math.min(evaluations.get(i).getRuns(), maxRunsPerCandidate);
+                means[i] = mean(evaluations.get(i), runs[i]);
+                variances[i] = variance(evaluations.get(i), runs[i], means[i]);
+                if (means[i] < means[best]) {
+                    best = i;
+                }
+            }
+            double pcs = approximatePcs(means, variances, runs, best);
+            int total = Arrays.stream(runs).sum();
+            progressListener.accept("Stage " + stages + ": approximate PCS " + String.format("%.4f", pcs)
+                    + " after " + total + " runs");
+            if (pcs >= probabilityOfCorrectSelection || total >= budget) {
+                int[] never = new int[k];
+                Arrays.fill(never, -1);
+                return result(Procedure.OCBA, evaluations, runs, never, best,
+                        pcs >= probabilityOfCorrectSelection, pcs, stages);
+            }
+
+            int[] next = allocate(means, variances, runs, best, Math.min(budget, total + runIncrement * k));
+            evaluations = evaluator.evaluateAll(configs, next);
+            stages++;
+        }
+    }
+
+    /**
+     * Targets for {@code total} runs by the OCBA ratios: N_i proportional to (s_i / (mean_i - mean_b))^2 for
+     * non-best candidates and N_b = s_b * sqrt(sum N_i^2 / s_i^2). Counts never go down, and the extra runs are
+     * given out by largest shortfall so the stage adds exactly the new runs.
+     */
+    private int[] allocate(double[] means, double[] variances, int[] runs, int best, int total) {
+        int k = means.length;
+        double[] ratio = new double[k];
+        double bestTerm = 0;
+        for (int i = 0; i < k; i++) {
+            if (i == best) {
+                continue;
+            }
+            double gap = Math.max(means[i] - means[best], 1e-9);
+            double variance = Math.max(variances[i], 1e-12);
+            ratio[i] = variance / (gap * gap);
+            bestTerm += ratio[i] * ratio[i] / variance;
+        }
+        ratio[best] = Math.sqrt(Math.max(variances[best], 1e-12) * bestTerm);
+        double ratioSum = Arrays.stream(ratio).sum();
+
+        int[] next = runs.clone();
+        int extra = total - Arrays.stream(runs).sum();
+        double[] shortfall = new double[k];
+        for (int i = 0; i < k; i++) {
+            shortfall[i] = total * ratio[i] / ratioSum - runs[i];
+        }
+        for (int step = 0; step < extra; step++) {
+            int pick = -1;
+            for (int i = 0; i < k; i++) {
+                if (next[i] < maxRunsPerCandidate && (pick < 0 || shortfall[i] > shortfall[pick])) {
+                    pick = i;
+                }
+            }
+            if (pick < 0) {
+                break;
+            }
+            next[pick]++;
+            shortfall[pick]--;
+        }
+        return next;
+    }
+
+    /**
+     * Bonferroni lower bound on the probability that {@code best} truly has the smallest mean, treating the
+     * candidates' means as independent normals.
+     */
+    private static double approximatePcs(double[] means, double[] variances, int[] runs, int best) {
+        double miss = 0;
+        for (int i = 0; i < means.length; i++) {
+            if (i == best) {
+                continue;
+            }
+            double spread = Math.sqrt(variances[best] / runs[best] + variances[i] / runs[i]);
+            miss += spread == 0 ? (means[i] > means[best] ? 0 : 0.5)
+                    : StatisticsUtils.normalCdf(-(means[i] - means[best]) / spread);
+        }
+        return Math.max(0, 1 - miss);
+    }
+
+    private Result result(Procedure procedure, List<ConfigEvaluator.Evaluation> evaluations, int[] runs,
+                          int[] eliminatedAt, int best, boolean selected, double pcs, int stages) {
+        List<Candidate> candidates = new ArrayList<>();
+        long totalRuns = 0;
+        for (int i = 0; i < configs.size(); i++) {
+            ConfigEvaluator.Evaluation evaluation = evaluations.get(i);
+            double mean = mean(evaluation, runs[i]);
+            candidates.add(new Candidate(configs.get(i), evaluation, runs[i], mean,
+                    Math.sqrt(variance(evaluation, runs[i], mean)), eliminatedAt[i]));
+            totalRuns += runs[i];
+        }
+        return new Result(procedure, measure, candidates, best, selected, pcs, stages, totalRuns);
+    }
+
+    private double mean(ConfigEvaluator.Evaluation evaluation, int runs) {
+        double sum = 0;
+        for (int run = 0; run < runs; run++) {
+            sum += measure.value(evaluation, run);
+        }
+        return runs == 0 ? 0.0 : sum / runs;
+    }
+
+    private double variance(ConfigEvaluator.Evaluation evaluation, int runs, double mean) {
+        if (runs < 2) {
+            return 0.0;
+        }
+        double squares = 0;
+        for (int run = 0; run < runs; run++) {
+            double deviation = measure.value(evaluation, run) - mean;
+            squares += deviation * deviation;
+        }
+        return squares / (runs - 1);
+    }
+
+    private double differenceVariance(ConfigEvaluator.Evaluation first, ConfigEvaluator.Evaluation second, int runs) {
+        double mean = 0;
+        for (int run = 0; run < runs; run++) {
+            mean += measure.value(first, run) - measure.value(second, run);
+        }
+        mean /= runs;
+        double squares = 0;
+        for (int run = 0; run < runs; run++) {
+            double deviation = measure.value(first, run) - measure.value(second, run) - mean;
+            squares += deviation * deviation;
+        }
+        return squares / (runs - 1);
+    }
+}
@@ -0,0 +1,161 @@
+package com.hospital.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-run totals stored column-wise in primitive arrays, one slot per run in run order.
+ * The getters return the backing arrays, which may be longer than {@link #size()}.
+ */
+public class RunColumns {
+    private int size = 0;
+    private int[] shortageDays = new int[16];
+    private int[] shortageAmounts = new int[16];
+    private int[] transfers = new int[16];
+    private int[] orders = new int[16];
+    private int[] demandTotals = new int[16];
+    private int[] leadTimeTotals = new int[16];
+    private int[] orderSizeTotals = new int[16];
+    private double[] avgEndingFirstFloor = new double[16];
+    private double[] avgEndingBasement = new double[16];
+
+    public static RunColumns fromRuns(List<SimulationData> runs) {
+        RunColumns columns = new RunColumns();
+        for (SimulationData run : runs) {
+            columns.add(run);
+        }
+        return columns;
+    }
+
+    public static RunColumns fromSource(RunSeriesSource source) {
+        int[][] totals = source.getRunTotals();
+        int[][] firstFloorEndUnits = source.getFirstFloorEndUnits();
+        int[][] basementFloorEndUnits = source.getBasementFloorEndUnits();
+
+        RunColumns columns = new RunColumns();
+        for (int run = 0; run < source.getRunCount(); run++) {
+            long firstFloorSum = 0;
+            for (int units : firstFloorEndUnits[run]) firstFloorSum += units;
+            long basementSum = 0;
+            for (int units : basementFloorEndUnits[run]) basementSum += units;
+
+            columns.add(
+                    totals[RunSeriesSource.TOTAL_DAYS][run],
+                    totals[RunSeriesSource.TOTAL_SHORTAGE_DAYS][run],
+                    totals[RunSeriesSource.TOTAL_SHORTAGE_AMOUNT][run],
+                    totals[RunSeriesSource.TOTAL_TRANSFERS][run],
+                    totals[RunSeriesSource.TOTAL_ORDERS][run],
+                    totals[RunSeriesSource.TOTAL_DEMAND][run],
+                    totals[RunSeriesSource.TOTAL_LEAD_TIME][run],
+                    totals[RunSeriesSource.TOTAL_ORDER_SIZE][run],
+                    firstFloorSum,
+                    basementSum
+            );
+        }
+        return columns;
+    }
+
+    public void add(SimulationData run) {
+        long firstFloorSum = 0;
+        for (int units : run.firstFloorEndUnits) firstFloorSum += units;
+        long basementSum = 0;
+        for (int units : run.basementFloorEndUnits) basementSum += units;
+        add(run, firstFloorSum, basementSum);
+    }
+
+    /**
+     * Appends the runs of {@code other} after this one's.
+     */
+    public void addAll(RunColumns other) {
+        int total = size + other.size;
+        if (total > shortageDays.length) {
+            grow(Math.max(total, size * 2));
+        }
+        System.arraycopy(other.shortageDays, 0, shortageDays, size, other.size);
+        System.arraycopy(other.shortageAmounts, 0, shortageAmounts, size, other.size);
+        System.arraycopy(other.transfers, 0, transfers, size, other.size);
+        System.arraycopy(other.orders, 0, orders, size, other.size);
+        System.arraycopy(other.demandTotals, 0, demandTotals, size, other.size);
+        System.arraycopy(other.leadTimeTotals, 0, leadTimeTotals, size, other.size);
+        System.arraycopy(other.orderSizeTotals, 0, orderSizeTotals, size, other.size);
+        System.arraycopy(other.avgEndingFirstFloor, 0, avgEndingFirstFloor, size, other.size);
+        System.arraycopy(other.avgEndingBasement, 0, avgEndingBasement, size, other.size);
+        size = total;
+    }
+
+    public void add(SimulationData run, long firstFloorUnitSum, long basementUnitSum) {
+        add(run.totalDays, run.totalShortageDays, run.totalShortageAmount, run.totalTransfers, run.totalOrders,
+                run.totalDemand, run.totalLeadTime, run.totalOrderSize, firstFloorUnitSum, basementUnitSum);
+    }
+
+    private void add(int totalDays, int shortageDayCount, int shortageAmount, int transferCount, int orderCount,
+                     int demandTotal, int leadTimeTotal, int orderSizeTotal,
+                     long firstFloorUnitSum, long basementUnitSum) {
+        if (size == shortageDays.length) {
+            grow(size * 2);
+        }
+
+        shortageDays[size] = shortageDayCount;
+        shortageAmounts[size] = shortageAmount;
+        transfers[size] = transferCount;
+        orders[size] = orderCount;
+        demandTotals[size] = demandTotal;
+        leadTimeTotals[size] = leadTimeTotal;
+        orderSizeTotals[size] = orderSizeTotal;
+        avgEndingFirstFloor[size] = firstFloorUnitSum / (double) totalDays;
+        avgEndingBasement[size] = basementUnitSum / (double) totalDays;
+        size++;
+    }
+
+    private void grow(int capacity) {
+        shortageDays = Arrays.copyOf(shortageDays, capacity);
+        shortageAmounts = Arrays.copyOf(shortageAmounts, capacity);
+        transfers = Arrays.copyOf(transfers, capacity);
+        orders = Arrays.copyOf(orders, capacity);
+        demandTotals = Arrays.copyOf(demandTotals, capacity);
+        leadTimeTotals = Arrays.copyOf(leadTimeTotals, capacity);
+        orderSizeTotals = Arrays.copyOf(orderSizeTotals, capacity);
+        avgEndingFirstFloor = Arrays.copyOf(avgEndingFirstFloor, capacity);
+        avgEndingBasement = Arrays.copyOf(avgEndingBasement, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] getShortageDays() {
+        return shortageDays;
+    }
+
+    public int[] getShortageAmounts() {
+        return shortageAmounts;
+    }
+
+    public int[] getTransfers() {
+        return transfers;
+    }
+
+    public int[] getOrders() {
+        return orders;
+    }
+
+    public int[] getDemandTotals() {
+        return demandTotals;
+    }
+
+    public int[] getLeadTimeTotals() {
+        return leadTimeTotals;
+    }
+
+    public int[] getOrderSizeTotals() {
+        return orderSizeTotals;
+    }
+
+    public double[] getAvgEndingFirstFloor() {
+        return avgEndingFirstFloor;
+    }
+
+    public double[] getAvgEndingBasement() {
+        return avgEndingBasement;
+    }
+}
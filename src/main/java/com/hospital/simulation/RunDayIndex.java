@@ -0,0 +1,167 @@
+package com.hospital.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which days of each run had a shortage, a transfer, an order or a delivery, as one bitset per run and flag,
+ * plus the number of runs flagged on each day. Bitsets of all runs share one flat word array per flag, so a
+ * 100k-run, one-year study takes under 5 MB per flag and cross-run questions are answered with bit counts
+ * instead of scanning the run series.
+ */
+public class RunDayIndex {
+    public enum Flag {
+        SHORTAGE,
+        TRANSFER,
+        ORDER,
+        DELIVERY
+    }
+
+    private final int totalDays;
+    private final int wordsPerRun;
+    private final long[][] bits = new long[Flag.values().length][];
+    private final int[][] dayCounts = new int[Flag.values().length][];
+    private int runCount;
+
+    public RunDayIndex(int totalDays) {
+        this.totalDays = totalDays;
+        this.wordsPerRun = (totalDays + 63) >>> 6;
+        for (Flag flag : Flag.values()) {
+            bits[flag.ordinal()] = new long[wordsPerRun * 16];
+            dayCounts[flag.ordinal()] = new int[totalDays];
+        }
+    }
+
+    public static RunDayIndex fromRuns(List<SimulationData> runs) {
+        RunDayIndex index = new RunDayIndex(runs.isEmpty() ? 0 : runs.get(0).totalDays);
+        for (SimulationData run : runs) {
+            index.add(run);
+        }
+        return index;
+    }
+
+    public static RunDayIndex fromSource(RunSeriesSource source) {
+        RunDayIndex index = new RunDayIndex(source.getTotalDays());
+        int[][] shortageDays = source.getShortageDays();
+        int[][] transferDays = source.getTransferDays();
+        int[][] orderDays = source.getOrderPlacementDays();
+        int[][] deliveryDays = source.getDeliveryDays();
+        for (int run = 0; run < source.getRunCount(); run++) {
+            index.add(shortageDays[run], transferDays[run], orderDays[run], deliveryDays[run]);
+        }
+        return index;
+    }
+
+    public void add(SimulationData run) {
+        add(toArray(run.shortageDays), toArray(run.transferDays), toArray(run.orderPlacementDays),
+                toArray(run.deliveryDays));
+    }
+
+    private void add(int[] shortageDays, int[] transferDays, int[] orderDays, int[] deliveryDays) {
+        if ((runCount + 1) * wordsPerRun > bits[0].length) {
+            for (int flag = 0; flag < bits.length; flag++) {
+                bits[flag] = Arrays.copyOf(bits[flag], Math.max(bits[flag].length * 2, wordsPerRun));
+            }
+        }
+        set(Flag.SHORTAGE, shortageDays);
+        set(Flag.TRANSFER, transferDays);
+        set(Flag.ORDER, orderDays);
+        set(Flag.DELIVERY, deliveryDays);
+        runCount++;
+    }
+
+    private void set(Flag flag, int[] days) {
+        long[] words = bits[flag.ordinal()];
+        int[] counts = dayCounts[flag.ordinal()];
+        int base = runCount * wordsPerRun;
+        for (int day : days) {
+            int bit = day - 1;
+            if (bit < 0 || bit >= totalDays) {
+                continue;
+            }
+            long mask = 1L << bit;
+            int word = base + (bit >>> 6);
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                counts[bit]++;
+            }
+        }
+    }
+
+    public int getTotalDays() {
+        return totalDays;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * How many runs have the flag on each day; index 0 is day 1.
+     */
+    public int[] getDayCounts(Flag flag) {
+        return dayCounts[flag.ordinal()];
+    }
+
+    public boolean isSet(Flag flag, int run, int day) {
+        int bit = day - 1;
+        if (run < 0 || run >= runCount || bit < 0 || bit >= totalDays) {
+            return false;
+        }
+        return (bits[flag.ordinal()][run * wordsPerRun + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * The number of days the run has the flag on.
+     */
+    public int countDays(Flag flag, int run) {
+        long[] words = bits[flag.ordinal()];
+        int count = 0;
+        for (int word = run * wordsPerRun, end = word + wordsPerRun; word < end; word++) {
+            count += Long.bitCount(words[word]);
+        }
+        return count;
+    }
+
+    /**
+     * The runs with the flag on more than {@code days} days, in run order.
+     */
+    public int[] runsWithMoreThan(Flag flag, int days) {
+        int[] matches = new int[runCount];
+        int size = 0;
+        for (int run = 0; run < runCount; run++) {
+            if (countDays(flag, run) > days) {
+                matches[size++] = run;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    /**
+     * The runs with the flag on {@code day}, in run order.
+     */
+    public int[] runsFlaggedOn(Flag flag, int day) {
+        int bit = day - 1;
+        if (bit < 0 || bit >= totalDays) {
+            return new int[0];
+        }
+        long[] words = bits[flag.ordinal()];
+        long mask = 1L << bit;
+        int[] matches = new int[dayCounts[flag.ordinal()][bit]];
+        int size = 0;
+        for (int run = 0, word = bit >>> 6; run < runCount; run++, word += wordsPerRun) {
+            if ((words[word] & mask) != 0) {
+                matches[size++] = run;
+            }
+        }
+        return matches;
+    }
+
+    private static int[] toArray(List<Integer> days) {
+        int[] values = new int[days.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = days.get(i);
+        }
+        return values;
+    }
+}
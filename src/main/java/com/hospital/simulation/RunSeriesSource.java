@@ -0,0 +1,79 @@
+package com.hospital.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column-wise access to the runs of a stored simulation. Series come back as {@code [run][value]} and the
+ * per-run totals as {@code [column][run]}, indexed by the constants below.
+ */
+public interface RunSeriesSource {
+    int TOTAL_DAYS = 0;
+    int TOTAL_SHORTAGE_DAYS = 1;
+    int TOTAL_SHORTAGE_AMOUNT = 2;
+    int TOTAL_DEMAND = 3;
+    int TOTAL_ORDERS = 4;
+    int TOTAL_LEAD_TIME = 5;
+    int TOTAL_ORDER_SIZE = 6;
+    int TOTAL_TRANSFERS = 7;
+
+    int getRunCount();
+
+    int getTotalDays();
+
+    int[][] getRunTotals();
+
+    int[][] getFirstFloorEndUnits();
+
+    int[][] getBasementFloorEndUnits();
+
+    int[][] getDailyDemandValues();
+
+    int[][] getLeadTimes();
+
+    int[][] getOrderPlacementDays();
+
+    int[][] getDeliveryDays();
+
+    int[][] getShortageDays();
+
+    int[][] getTransferDays();
+
+    /**
+     * Each run's random stream seed, or {@code null} if the runs were stored without them.
+     */
+    long[] getRunSeeds();
+
+    default SimulationData getRun(int index) {
+        int[][] totals = getRunTotals();
+
+        SimulationData data = new SimulationData();
+        data.totalDays = totals[TOTAL_DAYS][index];
+        data.firstFloorEndUnits = toList(getFirstFloorEndUnits()[index]);
+        data.basementFloorEndUnits = toList(getBasementFloorEndUnits()[index]);
+        data.totalShortageDays = totals[TOTAL_SHORTAGE_DAYS][index];
+        data.totalShortageAmount = totals[TOTAL_SHORTAGE_AMOUNT][index];
+        data.totalDemand = totals[TOTAL_DEMAND][index];
+        data.dailyDemandValues = toList(getDailyDemandValues()[index]);
+        data.totalOrders = totals[TOTAL_ORDERS][index];
+        data.totalLeadTime = totals[TOTAL_LEAD_TIME][index];
+        data.totalOrderSize = totals[TOTAL_ORDER_SIZE][index];
+        data.leadTimes = toList(getLeadTimes()[index]);
+        data.totalTransfers = totals[TOTAL_TRANSFERS][index];
+        data.orderPlacementDays = toList(getOrderPlacementDays()[index]);
+        data.deliveryDays = toList(getDeliveryDays()[index]);
+        data.shortageDays = toList(getShortageDays()[index]);
+        data.transferDays = toList(getTransferDays()[index]);
+        long[] seeds = getRunSeeds();
+        data.seed = seeds == null || index >= seeds.length ? null : seeds[index];
+        return data;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,259 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Global sensitivity of the shortage probability to settings and distribution shapes. Sobol first-order and
+ * total indices come from Saltelli's sampling scheme: two independent sample matrices A and B, plus one matrix
+ * per factor that is A with that factor's column taken from B, with the first-order index estimated as in Saltelli
+ * (2010) and the total index by Jansen's formula. Every sample point is a config whose shortage probability is the
+ * share of its runs with a shortage; all points run on the same study seed, so points differ only in their
+ * settings. Local sensitivity at the base config is a central finite difference per factor on common random
+ * numbers, with a paired interval.
+ */
+public class SensitivityAnalysis {
+    private static final int BOOTSTRAP_REPLICATES = 1000;
+    private static final int GRADIENT_STEPS = 20;
+
+    /**
+     * One input varied by the analysis: either a setting, sampled uniformly over the integers of its range, or
+     * the tilt of a distribution, sampled uniformly over its range.
+     */
+    public record Factor(String label, ConfigParameter parameter, DistributionShape shape, double lower,
+                         double upper) {
+
+        public static Factor of(ConfigParameter parameter, int lower, int upper) {
+            return new Factor(parameter.getLabel(), parameter, null, lower, upper);
+        }
+
+        public static Factor of(DistributionShape shape, double maxTilt) {
+            return new Factor(shape.getLabel(), null, shape, -maxTilt, maxTilt);
+        }
+
+        public SimulationHistoryRecord.SimulationConfigSnapshot apply(
+                SimulationHistoryRecord.SimulationConfigSnapshot config, double value) {
+            return parameter != null ? parameter.with(config, (int) Math.round(value)) : shape.with(config, value);
+        }
+
+        /**
+         * Maps a uniform draw in [0, 1) onto the factor's range.
+         */
+        double sample(double uniform) {
+            if (parameter != null) {
+                return Math.min(upper, lower + Math.floor(uniform * (upper - lower + 1)));
+            }
+            return lower + uniform * (upper - lower);
+        }
+
+        double baseValue(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+            return parameter != null ? parameter.get(config) : 0;
+        }
+
+        /**
+         * Half the width of the finite difference: one unit for settings, a twentieth of the range for tilts.
+         */
+        double step() {
+            return parameter != null ? 1 : (upper - lower) / GRADIENT_STEPS;
+        }
+
+        double minimum() {
+            return parameter != null ? parameter.getMinimum() : Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    public record Index(Factor factor, Bootstrap.Result firstOrder, Bootstrap.Result total) {
+    }
+
+    /**
+     * @param estimate change in shortage probability per unit of the factor
+     */
+    public record Gradient(Factor factor, double from, double to, double estimate, SimulationData.Interval interval) {
+    }
+
+    public record Result(List<Index> indices, List<Gradient> gradients, double shortageMean, double shortageVariance,
+                         int samplePoints, long totalRuns) {
+    }
+
+    private final ConfigEvaluator evaluator;
+    private final SimulationHistoryRecord.SimulationConfigSnapshot baseConfig;
+    private final List<Factor> factors;
+    private int baseSamples = 128;
+    private int runsPerSample = 20;
+    private int gradientRuns = 200;
+    private double confidence = 0.95;
+    private Consumer<String> progressListener = message -> { };
+
+    public SensitivityAnalysis(ConfigEvaluator evaluator, SimulationHistoryRecord.SimulationConfigSnapshot baseConfig,
+                               List<Factor> factors) {
+        if (factors.isEmpty()) {
+            throw new IllegalArgumentException("At least one factor is required");
+        }
+        this.evaluator = evaluator;
+        this.baseConfig = baseConfig;
+        this.factors = List.copyOf(factors);
+    }
+
+    /**
+     * Rows of each sample matrix; the analysis evaluates {@code baseSamples * (factors + 2)} points.
+     */
+    public void setBaseSamples(int baseSamples) {
+        this.baseSamples = Math.max(2, baseSamples);
+    }
+
+    public void setRunsPerSample(int runsPerSample) {
+        this.runsPerSample = Math.max(1, runsPerSample);
+    }
+
+    public void setGradientRuns(int gradientRuns) {
+        this.gradientRuns = Math.max(2, gradientRuns);
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public void setProgressListener(Consumer<String> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Result analyze() {
+        int k = factors.size();
+        int n = baseSamples;
+        SplittableRandom random = new SplittableRandom(evaluator.getSeed());
+        double[][] a = new double[n][k];
+        double[][] b = new double[n][k];
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < k; i++) {
+                a[j][i] = factors.get(i).sample(random.nextDouble());
+                b[j][i] = factors.get(i).sample(random.nextDouble());
+            }
+        }
+
+        long totalRuns = 0;
+        progressListener.accept("Evaluating sample matrices A and B (" + 2 * n + " points)");
+        List<double[]> ab = new ArrayList<>(a.length + b.length);
+        ab.addAll(List.of(a));
+        ab.addAll(List.of(b));
+        double[] shortageAb = shortageProbabilities(ab);
+        totalRuns += (long) 2 * n * runsPerSample;
+
+        // Features of each row: f(A), f(A)^2, f(B), f(B)^2, then per factor f(B) (f(AB_i) - f(A)) and
+        // (f(A) - f(AB_i))^2, so every index is a ratio of feature sums and can be bootstrapped over rows
+        int featureCount = 4 + 2 * k;
+        double[] rows = new double[n * featureCount];
+        for (int j = 0; j < n; j++) {
+            double fA = shortageAb[j];
+            double fB = shortageAb[n + j];
+            rows[j * featureCount] = fA;
+            rows[j * featureCount + 1] = fA * fA;
+            rows[j * featureCount + 2] = fB;
+            rows[j * featureCount + 3] = fB * fB;
+        }
+        for (int i = 0; i < k; i++) {
+            progressListener.accept("Evaluating " + factors.get(i).label() + " (" + (i + 1) + " of " + k + ")");
+            List<double[]> mixed = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                double[] point = a[j].clone();
+                point[i] = b[j][i];
+                mixed.add(point);
+            }
+            double[] shortageMixed = shortageProbabilities(mixed);
+            totalRuns += (long) n * runsPerSample;
+            for (int j = 0; j < n; j++) {
+                double fA = shortageAb[j];
+                double fB = shortageAb[n + j];
+                rows[j * featureCount + 4 + 2 * i] = fB * (shortageMixed[j] - fA);
+                rows[j * featureCount + 5 + 2 * i] = (fA - shortageMixed[j]) * (fA - shortageMixed[j]);
+            }
+        }
+
+        List<Bootstrap.Estimator> estimators = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            int firstOrderFeature = 4 + 2 * i;
+            int totalFeature = 5 + 2 * i;
+            estimators.add((sums, runs) -> sums[firstOrderFeature] / runs / variance(sums, runs));
+            estimators.add((sums, runs) -> sums[totalFeature] / (2.0 * runs) / variance(sums, runs));
+        }
+        estimators.add((sums, runs) -> (sums[0] + sums[2]) / (2.0 * runs));
+        estimators.add(SensitivityAnalysis::variance);
+        Bootstrap.Result[] results = new Bootstrap(featureCount, rows)
+                .intervals(estimators, BOOTSTRAP_REPLICATES, confidence, evaluator.getSeed());
+        List<Index> indices = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            indices.add(new Index(factors.get(i), results[2 * i], results[2 * i + 1]));
+        }
+
+        progressListener.accept("Estimating gradients at the current settings");
+        List<Gradient> gradients = gradients();
+        totalRuns += (long) 2 * k * gradientRuns;
+
+        progressListener.accept("Done: " + n * (k + 2) + " sample points");
+        return new Result(indices, gradients, results[2 * k].estimate(), results[2 * k + 1].estimate(),
+                n * (k + 2), totalRuns);
+    }
+
+    /**
+     * Variance of all f(A) and f(B) values together, from the first four feature sums.
+     */
+    private static double variance(double[] sums, int runs) {
+        double mean = (sums[0] + sums[2]) / (2.0 * runs);
+        return (sums[1] + sums[3]) / (2.0 * runs) - mean * mean;
+    }
+
+    private double[] shortageProbabilities(List<double[]> points) {
+        List<SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ArrayList<>(points.size());
+        for (double[] point : points) {
+            SimulationHistoryRecord.SimulationConfigSnapshot config = baseConfig;
+            for (int i = 0; i < point.length; i++) {
+                config = factors.get(i).apply(config, point[i]);
+            }
+            configs.add(config);
+        }
+        List<ConfigEvaluator.Evaluation> evaluations = evaluator.evaluateAll(configs, runsPerSample);
+        double[] shortage = new double[points.size()];
+        for (int p = 0; p < shortage.length; p++) {
+            // Cached configs may have more runs; every point uses the same first runs so they stay comparable
+            ConfigEvaluator.Evaluation evaluation = evaluations.get(p);
+            int count = 0;
+            for (int run = 0; run < runsPerSample; run++) {
+                if (evaluation.hasShortage(run)) {
+                    count++;
+                }
+            }
+            shortage[p] = count / (double) runsPerSample;
+        }
+        return shortage;
+    }
+
+    private List<Gradient> gradients() {
+        List<SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ArrayList<>();
+        double[] from = new double[factors.size()];
+        double[] to = new double[factors.size()];
+        for (int i = 0; i < factors.size(); i++) {
+            Factor factor = factors.get(i);
+            double base = factor.baseValue(baseConfig);
+            from[i] = Math.max(factor.minimum(), base - factor.step());
+            to[i] = base + factor.step();
+            configs.add(factor.apply(baseConfig, from[i]));
+            configs.add(factor.apply(baseConfig, to[i]));
+        }
+        List<ConfigEvaluator.Evaluation> evaluations = evaluator.evaluateAll(configs, gradientRuns);
+
+        List<Gradient> gradients = new ArrayList<>();
+        for (int i = 0; i < factors.size(); i++) {
+            double width = to[i] - from[i];
+            // The paired interval is centred on the mean run-by-run difference
+            SimulationData.Interval difference = evaluations.get(2 * i + 1)
+                    .shortageDifference(evaluations.get(2 * i), confidence);
+            gradients.add(new Gradient(factors.get(i), from[i], to[i],
+                    (difference.lower() + difference.upper()) / 2 / width,
+                    new SimulationData.Interval(difference.lower() / width, difference.upper() / width)));
+        }
+        return gradients;
+    }
+}
@@ -1,6 +1,7 @@
 package com.hospital.simulation;
 
 import com.hospital.models.ProbabilityDistribution;
+import com.hospital.models.SimulationHistoryRecord;
 
 import java.util.*;
 
@@ -97,6 +98,22 @@ public class SimulationConfigs {
         this.roomConsumptionDistribution = new ProbabilityDistribution(probabilities);
     }
 
+    /**
+     * An immutable copy of the current settings, as simulations run with and history stores them.
+     */
+    public SimulationHistoryRecord.SimulationConfigSnapshot snapshot() {
+        return new SimulationHistoryRecord.SimulationConfigSnapshot(
+                reviewTime,
+                firstFloorMaxCapacity,
+                basementFloorMaxCapacity,
+                firstFloorStartUnits,
+                basementFloorStartUnits,
+                occupiedRoomsDistribution.getProbabilities(),
+                orderLeadTimeDistribution.getProbabilities(),
+                roomConsumptionDistribution.getProbabilities()
+        );
+    }
+
     public Map<Integer, Double> getDefaultOccupiedRoomsProbabilities() {
         return new LinkedHashMap<>(){{
             put(1, 0.1);
@@ -2,13 +2,35 @@ package com.hospital.simulation;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.hospital.utils.StatisticsUtils.calculateVariance;
 
 public class SimulationData {
-    public record Statistic(String label, String value) implements Serializable {
+    // Bootstrap resamples behind each statistic's intervals; the seed is fixed so a study reports the same intervals
+    public static final int BOOTSTRAP_REPLICATES = 1000;
+    private static final long BOOTSTRAP_SEED = 0x5EEDB007L;
+    private static final double CONFIDENCE = 0.95;
+
+    public record Interval(double lower, double upper) implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String toString() {
+            return String.format("[%.4f, %.4f]", lower, upper);
+        }
+    }
+
+    /**
+     * A reported statistic with its 95% percentile and BCa bootstrap intervals, which are null when unknown.
+     */
+    public record Statistic(String label, String value, Interval percentile, Interval bca) implements Serializable {
         private static final long serialVersionUID = 1L;
+
+        public Statistic(String label, String value) {
+            this(label, value, null, null);
+        }
     }
 
     public int totalDays = 0;
@@ -30,6 +52,11 @@ public class SimulationData {
 
     public List<Integer> orderPlacementDays = new ArrayList<>();
     public List<Integer> deliveryDays = new ArrayList<>();
+    public List<Integer> shortageDays = new ArrayList<>();
+    public List<Integer> transferDays = new ArrayList<>();
+
+    // Seed of the run's random stream, null when unknown; Simulator.replayRun re-executes the run from it
+    public Long seed;
 
     public double avgEndingFF;
     public double avgEndingBasement;
@@ -46,6 +73,14 @@ public class SimulationData {
     }
 
     public static List<Statistic> calculateStatistics(List<SimulationData> simulationData) {
+        return calculateStatistics(simulationData, BOOTSTRAP_REPLICATES);
+    }
+
+    /**
+     * The study's statistics, with bootstrap intervals from {@code replicates} resamples of the runs; 0 leaves
+     * the intervals out.
+     */
+    public static List<Statistic> calculateStatistics(List<SimulationData> simulationData, int replicates) {
         List<Statistic> statistics = new ArrayList<>();
 
         int totalRuns = simulationData.size();
@@ -127,7 +162,109 @@ public class SimulationData {
         statistics.add(new Statistic("Probability of Shortage", String.valueOf(shortageProbability)));
         statistics.add(new Statistic("Average Shortage Amount", String.valueOf(totalAvgShortageAmount)));
 
+        // Steady State: per-run averages after the warm-up that MSER-5 finds in the mean daily inventory
+        int warmupDays = warmupDays(simulationData);
+        double[] steadyFF = new double[totalRuns];
+        double[] steadyBasement = new double[totalRuns];
+        for (int run = 0; run < totalRuns; run++) {
+            SimulationData data = simulationData.get(run);
+            steadyFF[run] = averageFrom(data.firstFloorEndUnits, warmupDays);
+            steadyBasement[run] = averageFrom(data.basementFloorEndUnits, warmupDays);
+        }
+        statistics.add(new Statistic("Steady-State Average Ending FF Units",
+                String.valueOf(Arrays.stream(steadyFF).average().orElse(0.0))));
+        statistics.add(new Statistic("Steady-State Average Ending Basement Units",
+                String.valueOf(Arrays.stream(steadyBasement).average().orElse(0.0))));
+
+        if (replicates > 0) {
+            Bootstrap.Result[] intervals = bootstrapIntervals(simulationData, steadyFF, steadyBasement, replicates);
+            for (int i = 0; i < intervals.length; i++) {
+                Statistic statistic = statistics.get(i);
+                statistics.set(i, new Statistic(statistic.label(), statistic.value(),
+                        intervals[i].percentile(), intervals[i].bca()));
+            }
+        }
+        statistics.add(new Statistic("Warm-up Days (MSER-5)", String.valueOf(warmupDays)));
+
         return statistics;
     }
 
+    /**
+     * Intervals for the statistics of {@link #calculateStatistics} up to the steady-state averages, in the same order. Each run contributes one
+     * row of features and every statistic is a function of their sums over a resample.
+     */
+    private static Bootstrap.Result[] bootstrapIntervals(List<SimulationData> simulationData, double[] steadyFF,
+                                                         double[] steadyBasement, int replicates) {
+        int features = 15;
+        double[] rows = new double[simulationData.size() * features];
+        int offset = 0;
+        for (SimulationData run : simulationData) {
+            boolean shortage = run.totalShortageDays > 0;
+            rows[offset] = run.avgEndingFF;
+            rows[offset + 1] = run.avgEndingFF * run.avgEndingFF;
+            rows[offset + 2] = run.avgEndingBasement;
+            rows[offset + 3] = run.avgEndingBasement * run.avgEndingBasement;
+            rows[offset + 4] = run.avgDailyDemand;
+            rows[offset + 5] = run.avgDailyDemand * run.avgDailyDemand;
+            rows[offset + 6] = run.avgLeadTime;
+            rows[offset + 7] = run.avgLeadTime * run.avgLeadTime;
+            rows[offset + 8] = run.avgOrderSize;
+            rows[offset + 9] = run.totalTransfers;
+            rows[offset + 10] = run.totalShortageDays;
+            rows[offset + 11] = shortage ? 1 : 0;
+            rows[offset + 12] = shortage ? run.totalShortageAmount : 0;
+            rows[offset + 13] = steadyFF[offset / features];
+            rows[offset + 14] = steadyBasement[offset / features];
+            offset += features;
+        }
+
+        List<Bootstrap.Estimator> estimators = List.of(
+                (sums, n) -> sums[0] / n,
+                (sums, n) -> sums[2] / n,
+                (sums, n) -> sums[4] / n,
+                (sums, n) -> sums[6] / n,
+                (sums, n) -> sums[8] / n,
+                (sums, n) -> sums[9] / n,
+                (sums, n) -> sums[10] / n,
+                (sums, n) -> variance(sums[0], sums[1], n),
+                (sums, n) -> variance(sums[2], sums[3], n),
+                (sums, n) -> variance(sums[4], sums[5], n),
+                (sums, n) -> variance(sums[6], sums[7], n),
+                (sums, n) -> sums[11],
+                (sums, n) -> sums[11] / n,
+                (sums, n) -> sums[11] > 0 ? sums[12] / sums[11] : 0.0,
+                (sums, n) -> sums[13] / n,
+                (sums, n) -> sums[14] / n
+        );
+        return new Bootstrap(features, rows).intervals(estimators, replicates, CONFIDENCE, BOOTSTRAP_SEED);
+    }
+
+    /**
+     * The MSER-5 warm-up of the mean daily first floor and basement inventory across runs, whichever is longer.
+     */
+    private static int warmupDays(List<SimulationData> simulationData) {
+        int days = simulationData.stream().mapToInt(sd -> sd.firstFloorEndUnits.size()).min().orElse(0);
+        double[] firstFloorMeans = new double[days];
+        double[] basementMeans = new double[days];
+        for (SimulationData data : simulationData) {
+            for (int day = 0; day < days; day++) {
+                firstFloorMeans[day] += data.firstFloorEndUnits.get(day);
+                basementMeans[day] += data.basementFloorEndUnits.get(day);
+            }
+        }
+        // Dividing by the run count would not move the cut, so the sums are searched as they are
+        return Math.max(SteadyState.mser5(firstFloorMeans), SteadyState.mser5(basementMeans));
+    }
+
+    private static double averageFrom(List<Integer> series, int firstDay) {
+        long sum = 0;
+        for (int day = firstDay; day < series.size(); day++) {
+            sum += series.get(day);
+        }
+        return series.size() > firstDay ? sum / (double) (series.size() - firstDay) : 0.0;
+    }
+
+    private static double variance(double sum, double sumOfSquares, int n) {
+        return n > 1 ? Math.max(0, (sumOfSquares - sum * sum / n) / (n - 1)) : 0.0;
+    }
 }
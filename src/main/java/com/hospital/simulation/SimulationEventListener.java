@@ -15,5 +15,19 @@ public interface SimulationEventListener {
     );
     
     void onDeliveryEvent(int day, int orderSize);
-}
 
+    /**
+     * Units moved from the basement to the first floor after it ran empty.
+     */
+    default void onTransferEvent(int day, int units) {
+    }
+
+    default void onOrderEvent(int day, int orderSize, int leadTime) {
+    }
+
+    /**
+     * Demand that could not be met even after a transfer.
+     */
+    default void onShortageEvent(int day, int amount) {
+    }
+}
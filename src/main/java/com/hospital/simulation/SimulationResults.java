@@ -0,0 +1,136 @@
+package com.hospital.simulation;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class SimulationResults {
+    private final Supplier<List<SimulationData>> runs;
+    private final Supplier<DailyInventoryStatistics> dailyStatistics;
+    private final Supplier<DailyInventoryHistogram> firstFloorHistogram;
+    private final Supplier<DailyInventoryHistogram> basementHistogram;
+    private final Supplier<IntHistogram> dailyDemandHistogram;
+    private final Supplier<IntHistogram> leadTimeHistogram;
+    private final Supplier<RunColumns> runColumns;
+    private final Supplier<RunDayIndex> runDayIndex;
+
+    public SimulationResults(List<SimulationData> runs,
+                             DailyInventoryStatistics dailyStatistics,
+                             DailyInventoryHistogram firstFloorHistogram,
+                             DailyInventoryHistogram basementHistogram,
+                             IntHistogram dailyDemandHistogram,
+                             IntHistogram leadTimeHistogram,
+                             RunColumns runColumns,
+                             RunDayIndex runDayIndex) {
+        this(() -> runs, () -> dailyStatistics, () -> firstFloorHistogram, () -> basementHistogram,
+                () -> dailyDemandHistogram, () -> leadTimeHistogram, () -> runColumns, () -> runDayIndex);
+    }
+
+    private SimulationResults(Supplier<List<SimulationData>> runs,
+                              Supplier<DailyInventoryStatistics> dailyStatistics,
+                              Supplier<DailyInventoryHistogram> firstFloorHistogram,
+                              Supplier<DailyInventoryHistogram> basementHistogram,
+                              Supplier<IntHistogram> dailyDemandHistogram,
+                              Supplier<IntHistogram> leadTimeHistogram,
+                              Supplier<RunColumns> runColumns,
+                              Supplier<RunDayIndex> runDayIndex) {
+        this.runs = runs;
+        this.dailyStatistics = dailyStatistics;
+        this.firstFloorHistogram = firstFloorHistogram;
+        this.basementHistogram = basementHistogram;
+        this.dailyDemandHistogram = dailyDemandHistogram;
+        this.leadTimeHistogram = leadTimeHistogram;
+        this.runColumns = runColumns;
+        this.runDayIndex = runDayIndex;
+    }
+
+    public static SimulationResults fromRuns(List<SimulationData> runs, int firstFloorCapacity, int basementCapacity) {
+        return new SimulationResults(
+                runs,
+                DailyInventoryStatistics.fromRuns(runs),
+                DailyInventoryHistogram.fromRuns(runs, firstFloorCapacity, sd -> sd.firstFloorEndUnits),
+                DailyInventoryHistogram.fromRuns(runs, basementCapacity, sd -> sd.basementFloorEndUnits),
+                IntHistogram.fromRuns(runs, sd -> sd.dailyDemandValues),
+                IntHistogram.fromRuns(runs, sd -> sd.leadTimes),
+                RunColumns.fromRuns(runs),
+                RunDayIndex.fromRuns(runs)
+        );
+    }
+
+    /**
+     * Results over stored runs. Each aggregate is built from the columns it needs the first time it is asked
+     * for, and {@link #getRuns()} materialises a run only when it is read, so callers that show a subset of
+     * the charts never decode the other columns.
+     */
+    public static SimulationResults fromSource(RunSeriesSource source, int firstFloorCapacity, int basementCapacity) {
+        return new SimulationResults(
+                () -> new AbstractList<>() {
+                    @Override
+                    public SimulationData get(int index) {
+                        return source.getRun(index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return source.getRunCount();
+                    }
+                },
+                memoize(() -> DailyInventoryStatistics.fromColumns(source.getTotalDays(),
+                        source.getFirstFloorEndUnits(), source.getBasementFloorEndUnits())),
+                memoize(() -> DailyInventoryHistogram.fromColumn(source.getTotalDays(), firstFloorCapacity,
+                        source.getFirstFloorEndUnits())),
+                memoize(() -> DailyInventoryHistogram.fromColumn(source.getTotalDays(), basementCapacity,
+                        source.getBasementFloorEndUnits())),
+                memoize(() -> IntHistogram.fromColumn(source.getDailyDemandValues())),
+                memoize(() -> IntHistogram.fromColumn(source.getLeadTimes())),
+                memoize(() -> RunColumns.fromSource(source)),
+                memoize(() -> RunDayIndex.fromSource(source))
+        );
+    }
+
+    private static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return new Supplier<>() {
+            private T value;
+
+            @Override
+            public synchronized T get() {
+                if (value == null) {
+                    value = supplier.get();
+                }
+                return value;
+            }
+        };
+    }
+
+    public List<SimulationData> getRuns() {
+        return runs.get();
+    }
+
+    public DailyInventoryStatistics getDailyStatistics() {
+        return dailyStatistics.get();
+    }
+
+    public DailyInventoryHistogram getFirstFloorHistogram() {
+        return firstFloorHistogram.get();
+    }
+
+    public DailyInventoryHistogram getBasementHistogram() {
+        return basementHistogram.get();
+    }
+
+    public IntHistogram getDailyDemandHistogram() {
+        return dailyDemandHistogram.get();
+    }
+
+    public IntHistogram getLeadTimeHistogram() {
+        return leadTimeHistogram.get();
+    }
+
+    public RunColumns getRunColumns() {
+        return runColumns.get();
+    }
+
+    public RunDayIndex getRunDayIndex() {
+        return runDayIndex.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.hospital.simulation;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Previously computed runs, keyed by everything that determines them. Run {@code i} of a study depends only on
+ * the key and {@code i}, so a cached study of any length answers the first runs of a longer one.
+ */
+public interface SimulationRunCache {
+    /**
+     * Returns up to {@code maxRuns} cached runs for the key, starting from run 0, or an empty list.
+     */
+    List<SimulationData> load(Key key, int maxRuns);
+
+    /**
+     * Stores runs 0 to {@code runs.size() - 1} for the key, run with {@code config}, replacing a shorter
+     * cached entry.
+     */
+    void store(Key key, SimulationHistoryRecord.SimulationConfigSnapshot config, List<SimulationData> runs);
+
+    record Key(String configHash, int simulationDays, long seed, int engineVersion) {
+        /**
+         * SHA-256 of the key fields, as hex; stable across processes.
+         */
+        public String digest() {
+            String canonical = configHash + "|" + simulationDays + "|" + seed + "|" + engineVersion;
+            try {
+                return HexFormat.of().formatHex(
+                        MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
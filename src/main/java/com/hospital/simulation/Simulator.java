@@ -3,10 +3,28 @@ package com.hospital.simulation;
 import com.hospital.models.*;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Simulator {
-    private final Random rand = new Random();
-    private final SimulationConfigs configs;
+    /**
+     * Identifies the model's behaviour for {@link SimulationRunCache}. Bump it whenever a change makes a given
+     * config and seed produce different runs, so stale cached runs are no longer used.
+     */
+    public static final int ENGINE_VERSION = 2;
+    private static final int LEAD_TIME_STREAM = 1;
+    private static final double STEADY_STATE_CONFIDENCE = 0.95;
+
+    private final Supplier<SimulationHistoryRecord.SimulationConfigSnapshot> configSource;
+    // Demand and lead times draw from separate streams, so configs that order at different times still see the
+    // same demand day by day and the same sequence of lead times (common random numbers)
+    private Random demandRandom;
+    private Random leadTimeRandom;
+    private Long seed;
+    private long lastSeed;
+    private SimulationRunCache runCache;
+    private SimulationHistoryRecord.SimulationConfigSnapshot lastConfig;
+    private int reusedRuns;
     private int simulationDays;
     private int simulationRuns;
 
@@ -21,49 +39,290 @@ public class Simulator {
 
     private SimulationState state;
     private List<SimulationData> simulationData;
+    private DailyInventoryStatistics dailyStatistics;
+    private DailyInventoryHistogram firstFloorHistogram;
+    private DailyInventoryHistogram basementHistogram;
+    private IntHistogram dailyDemandHistogram;
+    private IntHistogram leadTimeHistogram;
+    private RunColumns runColumns;
+    private RunDayIndex runDayIndex;
     private SimulationEventListener eventListener;
+    private EventRecorder eventRecorder;
+    // Where the current run's events go: the event listener, the recorder, both or neither
+    private SimulationEventListener runListener;
+    // Whether the current run is part of the study, so each day is added to the results as it is simulated;
+    // replays and analysis runs are not
+    private boolean studyRun;
 
     public Simulator() {
-        configs = SimulationConfigs.instance;
+        this(SimulationConfigs.instance::snapshot);
     }
-    
+
+    /**
+     * A simulator that always runs {@code config} instead of the current application settings.
+     */
+    public Simulator(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        this(() -> config);
+    }
+
+    private Simulator(Supplier<SimulationHistoryRecord.SimulationConfigSnapshot> configSource) {
+        this.configSource = configSource;
+    }
+
     public void setEventListener(SimulationEventListener listener) {
         this.eventListener = listener;
     }
 
+    /**
+     * Fixes the study seed; {@code null} picks a new random one for every study.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * The seed the last study ran with.
+     */
+    public long getSeed() {
+        return lastSeed;
+    }
+
+    /**
+     * Records the events of the runs the following studies execute into {@code recorder}, or stops recording when
+     * {@code null}. Runs taken from the run cache are not recorded; replay them with {@link #replayRun(int,
+     * SimulationEventListener)} instead.
+     */
+    public void setEventRecorder(EventRecorder recorder) {
+        this.eventRecorder = recorder;
+    }
+
+    public void setRunCache(SimulationRunCache runCache) {
+        this.runCache = runCache;
+    }
+
+    /**
+     * How many of the last study's runs came from the run cache instead of being computed.
+     */
+    public int getReusedRuns() {
+        return reusedRuns;
+    }
+
+    /**
+     * Re-executes one run from its stream seed, reporting every day to {@code listener}. The result matches the
+     * original run as long as the config, horizon and {@link #ENGINE_VERSION} are the same.
+     */
+    public static SimulationData replayRun(SimulationHistoryRecord.SimulationConfigSnapshot config, int simulationDays,
+                                           long runSeed, SimulationEventListener listener) {
+        Simulator replay = new Simulator(config);
+        replay.configure(config);
+        replay.simulationDays = simulationDays;
+        replay.runListener = listener;
+        return replay.runSingleSimulation(runSeed);
+    }
+
+    /**
+     * Re-executes run {@code run} of the last study.
+     */
+    public SimulationData replayRun(int run, SimulationEventListener listener) {
+        return replayRun(lastConfig, simulationDays, simulationData.get(run).seed, listener);
+    }
+
+    /**
+     * Executes runs {@code from} to {@code to - 1} of a study seeded with {@code studySeed} on this simulator's
+     * config and horizon, handing each to {@code consumer} in run order instead of keeping it. Analyses that
+     * evaluate many configs use it to keep only per-run totals; the study results are left untouched.
+     */
+    public void simulateRuns(long studySeed, int from, int to, Consumer<SimulationData> consumer) {
+        configure(configSource.get());
+        for (int run = from; run < to; run++) {
+            consumer.accept(runSingleSimulation(runSeed(studySeed, run)));
+        }
+    }
+
     public void startSimulation() {
-        rand.setSeed(System.currentTimeMillis());
-        reviewTime = configs.getReviewTime();
-        firstFloorMaxCapacity = configs.getFirstFloorMaxCapacity();
-        basementFloorMaxCapacity = configs.getBasementFloorMaxCapacity();
-        firstFloorStartUnits = configs.getFirstFloorStartUnits();
-        basementFloorStartUnits = configs.getBasementFloorStartUnits();
-        occupiedRoomsDistribution = configs.getOccupiedRoomsDistribution();
-        orderLeadTimeDistribution = configs.getOrderLeadTimeDistribution();
-        roomConsumptionDistribution = configs.getRoomConsumptionDistribution();
+        SimulationHistoryRecord.SimulationConfigSnapshot config = beginStudy();
+
+        SimulationRunCache.Key key = new SimulationRunCache.Key(
+                config.getContentHash(), simulationDays, lastSeed, ENGINE_VERSION);
+        List<SimulationData> cached = runCache == null ? List.of() : runCache.load(key, simulationRuns);
+        reusedRuns = cached.size();
+        for (int run = 0; run < cached.size(); run++) {
+            SimulationData data = cached.get(run);
+            data.seed = runSeed(lastSeed, run);
+            accumulate(data);
+        }
+        if (!cached.isEmpty() && eventListener != null) {
+            // Runs are reproducible on their own, so replaying the first one reports the same events it had
+            runListener = eventListener;
+            runSingleSimulation(runSeed(lastSeed, 0));
+        }
+        for (int run = cached.size(); run < simulationRuns; run++) {
+            if (eventRecorder != null) {
+                eventRecorder.beginRun(run);
+            }
+            runListener = listenerFor(run == 0 ? eventListener : null, eventRecorder);
+            studyRun = true;
+            runSingleSimulation(runSeed(lastSeed, run));
+            studyRun = false;
+        }
+        runListener = null;
+        if (runCache != null && simulationRuns > cached.size()) {
+            runCache.store(key, config, simulationData);
+        }
+
+        System.out.println("Simulation completed (seed " + lastSeed + ", " + reusedRuns + " cached runs).");
+        System.out.println(SimulationData.calculateStatistics(simulationData, 0));
+    }
+
+    /**
+     * Steady-state estimates from a single run of {@code simulationDays} days instead of many replications.
+     * Each per-day series has its MSER-5 warm-up deleted and the rest split into {@code batches} batch means.
+     * The run is run 0 of the study seed and becomes the study's only run, so results and replays cover it.
+     */
+    public List<SteadyState.Estimate> runBatchMeans(int batches) {
+        beginStudy();
+        reusedRuns = 0;
+        if (eventRecorder != null) {
+            eventRecorder.beginRun(0);
+        }
+        runListener = listenerFor(eventListener, eventRecorder);
+        studyRun = true;
+        SimulationData run = runSingleSimulation(runSeed(lastSeed, 0));
+        studyRun = false;
+        runListener = null;
+
+        double[] firstFloorUnits = new double[simulationDays];
+        double[] basementUnits = new double[simulationDays];
+        double[] demand = new double[simulationDays];
+        double[] shortage = new double[simulationDays];
+        double[] transfer = new double[simulationDays];
+        for (int day = 0; day < simulationDays; day++) {
+            firstFloorUnits[day] = run.firstFloorEndUnits.get(day);
+            basementUnits[day] = run.basementFloorEndUnits.get(day);
+            demand[day] = run.dailyDemandValues.get(day);
+        }
+        for (int day : run.shortageDays) {
+            shortage[day - 1] = 1;
+        }
+        for (int day : run.transferDays) {
+            transfer[day - 1] = 1;
+        }
+
+        List<SteadyState.Estimate> estimates = List.of(
+                SteadyState.batchMeans("Ending FF Units", firstFloorUnits, batches, STEADY_STATE_CONFIDENCE),
+                SteadyState.batchMeans("Ending Basement Units", basementUnits, batches, STEADY_STATE_CONFIDENCE),
+                SteadyState.batchMeans("Daily Demand", demand, batches, STEADY_STATE_CONFIDENCE),
+                SteadyState.batchMeans("Shortage Probability per Day", shortage, batches, STEADY_STATE_CONFIDENCE),
+                SteadyState.batchMeans("Transfer Probability per Day", transfer, batches, STEADY_STATE_CONFIDENCE)
+        );
+        System.out.println("Batch means completed (seed " + lastSeed + ", " + simulationDays + " days).");
+        return estimates;
+    }
+
+    /**
+     * Picks the study seed, loads the config and resets the results for a new study.
+     */
+    private SimulationHistoryRecord.SimulationConfigSnapshot beginStudy() {
+        SimulationHistoryRecord.SimulationConfigSnapshot config = configSource.get();
+        lastConfig = config;
+        lastSeed = seed != null ? seed : new Random().nextLong();
+        configure(config);
         simulationData = new ArrayList<>();
+        dailyStatistics = new DailyInventoryStatistics(simulationDays);
+        firstFloorHistogram = new DailyInventoryHistogram(simulationDays, Math.max(firstFloorMaxCapacity, firstFloorStartUnits));
+        basementHistogram = new DailyInventoryHistogram(simulationDays, Math.max(basementFloorMaxCapacity, basementFloorStartUnits));
+        dailyDemandHistogram = new IntHistogram();
+        leadTimeHistogram = new IntHistogram();
+        runColumns = new RunColumns();
+        runDayIndex = new RunDayIndex(simulationDays);
+        return config;
+    }
+
+    private void configure(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        reviewTime = config.getReviewTime();
+        firstFloorMaxCapacity = config.getFirstFloorMaxCapacity();
+        basementFloorMaxCapacity = config.getBasementFloorMaxCapacity();
+        firstFloorStartUnits = config.getFirstFloorStartUnits();
+        basementFloorStartUnits = config.getBasementFloorStartUnits();
+        occupiedRoomsDistribution = config.getOccupiedRoomsDistribution();
+        orderLeadTimeDistribution = config.getOrderLeadTimeDistribution();
+        roomConsumptionDistribution = config.getRoomConsumptionDistribution();
+    }
+
+    /**
+     * Seed of one run: SplitMix64 over the study seed and the run index, so every run has its own stream and
+     * can be reproduced without the runs before it.
+     */
+    public static long runSeed(long seed, int run) {
+        long z = seed + (run + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
-        for (int runs = 0; runs < simulationRuns; runs++) {
-            runSingleSimulation(runs == 0);
+    private static SimulationEventListener listenerFor(SimulationEventListener first, SimulationEventListener second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
         }
+        return new SimulationEventListener() {
+            @Override
+            public void onDayEvent(int day, int demand, int firstFloorStart, int basementFloorStart,
+                                   boolean didTransfer, int firstFloorEnd, int basementFloorEnd,
+                                   int daysTillReview, int orderSize, int leadTime) {
+                first.onDayEvent(day, demand, firstFloorStart, basementFloorStart, didTransfer, firstFloorEnd,
+                        basementFloorEnd, daysTillReview, orderSize, leadTime);
+                second.onDayEvent(day, demand, firstFloorStart, basementFloorStart, didTransfer, firstFloorEnd,
+                        basementFloorEnd, daysTillReview, orderSize, leadTime);
+            }
+
+            @Override
+            public void onDeliveryEvent(int day, int orderSize) {
+                first.onDeliveryEvent(day, orderSize);
+                second.onDeliveryEvent(day, orderSize);
+            }
+
+            @Override
+            public void onTransferEvent(int day, int units) {
+                first.onTransferEvent(day, units);
+                second.onTransferEvent(day, units);
+            }
+
+            @Override
+            public void onOrderEvent(int day, int orderSize, int leadTime) {
+                first.onOrderEvent(day, orderSize, leadTime);
+                second.onOrderEvent(day, orderSize, leadTime);
+            }
 
-        System.out.println("Simulation completed.");
-        System.out.println(SimulationData.calculateStatistics(simulationData));
+            @Override
+            public void onShortageEvent(int day, int amount) {
+                first.onShortageEvent(day, amount);
+                second.onShortageEvent(day, amount);
+            }
+        };
     }
 
-    private void runSingleSimulation(boolean shouldPrint) {
+    /**
+     * Executes one run, reporting its events to {@link #runListener} if set. A study run also adds each day to
+     * the per-day aggregates as it goes and the finished run to the results.
+     */
+    private SimulationData runSingleSimulation(long runSeed) {
         resetState();
+        demandRandom = new Random(runSeed);
+        leadTimeRandom = new Random(runSeed(runSeed, LEAD_TIME_STREAM));
 
         SimulationData data = new SimulationData();
         data.totalDays = simulationDays;
+        data.seed = runSeed;
+        long firstFloorUnitSum = 0;
+        long basementUnitSum = 0;
 
         for(int day = 1; day <= simulationDays; day++) {
             if (state.orderState.hasOrder && state.orderState.timeTillDelivery == 0) {
                 state.inventory.basementFloorUnits = Math.min(state.inventory.basementFloorUnits + state.orderState.orderSize, basementFloorMaxCapacity);
                 data.deliveryDays.add(day);
 
-                if(shouldPrint && eventListener != null) {
-                    eventListener.onDeliveryEvent(day, state.orderState.orderSize);
+                if (runListener != null) {
+                    runListener.onDeliveryEvent(day, state.orderState.orderSize);
                 }
 
                 state.orderState.hasOrder = false;
@@ -79,6 +338,9 @@ public class Simulator {
 
             data.totalDemand += state.demandState.currentDemand;
             data.dailyDemandValues.add(state.demandState.currentDemand);
+            if (studyRun) {
+                dailyDemandHistogram.record(state.demandState.currentDemand);
+            }
 
             int consumed = Math.min(state.demandState.currentDemand, state.inventory.firstFloorUnits);
             int shortage = state.demandState.currentDemand - consumed;
@@ -87,8 +349,13 @@ public class Simulator {
             if (state.inventory.firstFloorUnits == 0) {
                 didTransfer = true;
                 data.totalTransfers++;
-                state.inventory.firstFloorUnits += Math.min(state.inventory.basementFloorUnits, firstFloorMaxCapacity);
-                state.inventory.basementFloorUnits -= Math.min(state.inventory.basementFloorUnits, firstFloorMaxCapacity);
+                data.transferDays.add(day);
+                int transferred = Math.min(state.inventory.basementFloorUnits, firstFloorMaxCapacity);
+                state.inventory.firstFloorUnits += transferred;
+                state.inventory.basementFloorUnits -= transferred;
+                if (runListener != null) {
+                    runListener.onTransferEvent(day, transferred);
+                }
 
                 consumed += Math.min(shortage, state.inventory.firstFloorUnits);
                 state.inventory.firstFloorUnits -= Math.min(shortage, state.inventory.firstFloorUnits);
@@ -98,6 +365,10 @@ public class Simulator {
                 if (shortage > 0) {
                     data.totalShortageDays++;
                     data.totalShortageAmount += shortage;
+                    data.shortageDays.add(day);
+                    if (runListener != null) {
+                        runListener.onShortageEvent(day, shortage);
+                    }
                 }
             }
 
@@ -113,16 +384,29 @@ public class Simulator {
                 data.totalOrderSize += state.orderState.orderSize;
                 data.totalLeadTime += state.orderState.timeTillDelivery;
                 data.leadTimes.add(state.orderState.timeTillDelivery);
+                if (studyRun) {
+                    leadTimeHistogram.record(state.orderState.timeTillDelivery);
+                }
                 data.orderPlacementDays.add(day);
+                if (runListener != null) {
+                    runListener.onOrderEvent(day, state.orderState.orderSize, state.orderState.timeTillDelivery);
+                }
                 state.orderState.hasOrder = true;
                 state.reviewState.timeTillReview = reviewTime;
             }
 
             data.firstFloorEndUnits.add(state.inventory.firstFloorUnits);
             data.basementFloorEndUnits.add(state.inventory.basementFloorUnits);
+            if (studyRun) {
+                dailyStatistics.record(day - 1, state.inventory.firstFloorUnits, state.inventory.basementFloorUnits);
+                firstFloorHistogram.record(day - 1, state.inventory.firstFloorUnits);
+                basementHistogram.record(day - 1, state.inventory.basementFloorUnits);
+                firstFloorUnitSum += state.inventory.firstFloorUnits;
+                basementUnitSum += state.inventory.basementFloorUnits;
+            }
 
-            if(shouldPrint && eventListener != null) {
-                eventListener.onDayEvent(
+            if (runListener != null) {
+                runListener.onDayEvent(
                     day,
                     state.demandState.currentDemand,
                     firstFloorStart,
@@ -137,7 +421,41 @@ public class Simulator {
             }
         }
 
+        if (studyRun) {
+            addRun(data, firstFloorUnitSum, basementUnitSum);
+        }
+        return data;
+    }
+
+    /**
+     * Adds a run taken from the run cache to the results, replaying its stored series into the per-day
+     * aggregates that executed runs fill as they go.
+     */
+    private void accumulate(SimulationData data) {
+        long firstFloorUnitSum = 0;
+        long basementUnitSum = 0;
+        for (int day = 0; day < data.firstFloorEndUnits.size(); day++) {
+            int firstFloorUnits = data.firstFloorEndUnits.get(day);
+            int basementUnits = data.basementFloorEndUnits.get(day);
+            dailyStatistics.record(day, firstFloorUnits, basementUnits);
+            firstFloorHistogram.record(day, firstFloorUnits);
+            basementHistogram.record(day, basementUnits);
+            firstFloorUnitSum += firstFloorUnits;
+            basementUnitSum += basementUnits;
+        }
+        for (int demand : data.dailyDemandValues) {
+            dailyDemandHistogram.record(demand);
+        }
+        for (int leadTime : data.leadTimes) {
+            leadTimeHistogram.record(leadTime);
+        }
+        addRun(data, firstFloorUnitSum, basementUnitSum);
+    }
+
+    private void addRun(SimulationData data, long firstFloorUnitSum, long basementUnitSum) {
         simulationData.add(data);
+        runColumns.add(data, firstFloorUnitSum, basementUnitSum);
+        runDayIndex.add(data);
     }
 
     private void resetState() {
@@ -151,15 +469,15 @@ public class Simulator {
     }
 
     private void scheduleOrder() {
-        state.orderState.timeTillDelivery = orderLeadTimeDistribution.getProbabilityValue(rand.nextDouble());
+        state.orderState.timeTillDelivery = orderLeadTimeDistribution.getProbabilityValue(leadTimeRandom.nextDouble());
     }
 
     private void updateCurrentDemand() {
-        int occupiedRooms = occupiedRoomsDistribution.getProbabilityValue(rand.nextDouble());
+        int occupiedRooms = occupiedRoomsDistribution.getProbabilityValue(demandRandom.nextDouble());
 
         int totalDemand = 0;
         for (int room = 0; room < occupiedRooms; room++) {
-            int roomDemand = roomConsumptionDistribution.getProbabilityValue(rand.nextDouble());
+            int roomDemand = roomConsumptionDistribution.getProbabilityValue(demandRandom.nextDouble());
             totalDemand += roomDemand;
         }
 
@@ -178,4 +496,9 @@ public class Simulator {
     public List<SimulationData> getSimulationData() {
         return simulationData;
     }
+
+    public SimulationResults getResults() {
+        return new SimulationResults(simulationData, dailyStatistics, firstFloorHistogram, basementHistogram,
+                dailyDemandHistogram, leadTimeHistogram, runColumns, runDayIndex);
+    }
 }
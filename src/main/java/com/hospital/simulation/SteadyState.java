@@ -0,0 +1,109 @@
+package com.hospital.simulation;
+
+import com.hospital.utils.StatisticsUtils;
+
+/**
+ * Steady-state estimation from per-day series: MSER-5 warm-up detection and batch means over one long run.
+ */
+public class SteadyState {
+    private static final int MSER_BATCH = 5;
+
+    /**
+     * A steady-state mean with its confidence interval, null when there are fewer than two batches.
+     * {@code lagOneCorrelation} is the lag-1 autocorrelation of the batch means; values well above zero mean the
+     * batches are too short to be treated as independent.
+     */
+    public record Estimate(String label, double mean, SimulationData.Interval interval, int warmupDays,
+                           int batches, int batchSize, double lagOneCorrelation) {
+    }
+
+    /**
+     * The number of leading days to delete by MSER-5: the series is averaged in batches of five days and the
+     * cut minimises the squared standard error of the remaining batch means, searching the first half only.
+     */
+    public static int mser5(double[] series) {
+        int batches = series.length / MSER_BATCH;
+        if (batches < 2) {
+            return 0;
+        }
+        double[] means = new double[batches];
+        for (int batch = 0; batch < batches; batch++) {
+            double sum = 0;
+            for (int day = batch * MSER_BATCH; day < (batch + 1) * MSER_BATCH; day++) {
+                sum += series[day];
+            }
+            means[batch] = sum / MSER_BATCH;
+        }
+
+        // Suffix sums give each candidate cut's sum of squared deviations in constant time
+        double sum = 0;
+        double sumOfSquares = 0;
+        double[] suffixSums = new double[batches];
+        double[] suffixSquares = new double[batches];
+        for (int batch = batches - 1; batch >= 0; batch--) {
+            sum += means[batch];
+            sumOfSquares += means[batch] * means[batch];
+            suffixSums[batch] = sum;
+            suffixSquares[batch] = sumOfSquares;
+        }
+
+        int bestCut = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int cut = 0; cut <= batches / 2; cut++) {
+            int remaining = batches - cut;
+            double deviations = Math.max(0, suffixSquares[cut] - suffixSums[cut] * suffixSums[cut] / remaining);
+            double statistic = deviations / ((double) remaining * remaining);
+            if (statistic < best) {
+                best = statistic;
+                bestCut = cut;
+            }
+        }
+        return bestCut * MSER_BATCH;
+    }
+
+    /**
+     * Batch-means estimate of the series' steady-state mean after deleting its MSER-5 warm-up. The remaining
+     * days are split into {@code batches} equal batches, dropping the few days just after the warm-up that do
+     * not fill a batch, and the interval uses Student's t with {@code batches - 1} degrees of freedom.
+     */
+    public static Estimate batchMeans(String label, double[] series, int batches, double confidence) {
+        int warmup = mser5(series);
+        int remaining = series.length - warmup;
+        int batchCount = Math.min(batches, remaining);
+        if (batchCount < 1) {
+            return new Estimate(label, Double.NaN, null, warmup, 0, 0, Double.NaN);
+        }
+        int batchSize = remaining / batchCount;
+        int start = series.length - batchCount * batchSize;
+
+        double[] means = new double[batchCount];
+        double grandMean = 0;
+        for (int batch = 0; batch < batchCount; batch++) {
+            double sum = 0;
+            for (int day = start + batch * batchSize; day < start + (batch + 1) * batchSize; day++) {
+                sum += series[day];
+            }
+            means[batch] = sum / batchSize;
+            grandMean += means[batch];
+        }
+        grandMean /= batchCount;
+        if (batchCount < 2) {
+            return new Estimate(label, grandMean, null, warmup, batchCount, batchSize, Double.NaN);
+        }
+
+        double squares = 0;
+        double lagProducts = 0;
+        for (int batch = 0; batch < batchCount; batch++) {
+            double deviation = means[batch] - grandMean;
+            squares += deviation * deviation;
+            if (batch > 0) {
+                lagProducts += deviation * (means[batch - 1] - grandMean);
+            }
+        }
+        double margin = StatisticsUtils.studentQuantile(1 - (1 - confidence) / 2, batchCount - 1)
+                * Math.sqrt(squares / (batchCount - 1) / batchCount);
+        double lagOneCorrelation = squares == 0 ? 0 : lagProducts / squares;
+        return new Estimate(label, grandMean, new SimulationData.Interval(grandMean - margin, grandMean + margin),
+                warmup, batchCount, batchSize, lagOneCorrelation);
+    }
+}
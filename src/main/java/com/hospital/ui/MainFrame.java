@@ -2,6 +2,8 @@ package com.hospital.ui;
 
 import com.hospital.ui.components.*;
 import com.hospital.ui.pages.*;
+import com.hospital.utils.HistoryChangeListener;
+import com.hospital.utils.SimulationHistoryService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,6 +18,7 @@ public class MainFrame extends JFrame {
     private final String defaultPage = "simulation";
     private final Map<String, JPanel> pages = new LinkedHashMap<>(){{
         put("simulation", new SimulationPage());
+        put("analysis", new AnalysisPage());
         put("history", new HistoryPage());
         put("settings", new SettingsPage());
     }};
@@ -45,6 +48,19 @@ public class MainFrame extends JFrame {
         sideNav.setOnSelect(this::showPanel);
 
         add(sideNav, BorderLayout.WEST);
+
+        SimulationHistoryService.getInstance().addChangeListener(new HistoryChangeListener() {
+            @Override
+            public void onHistoryChanged() {
+            }
+
+            @Override
+            public void onHistoryWriteFailed(Exception error) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(MainFrame.this,
+                        "Failed to save simulation history: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+            }
+        });
     }
 
     private void showPanel(String name) {
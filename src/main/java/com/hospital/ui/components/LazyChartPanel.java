@@ -0,0 +1,170 @@
+package com.hospital.ui.components;
+
+import com.hospital.ui.Theme;
+import com.hospital.utils.charts.DownsamplingSupport;
+import org.jfree.chart.ChartMouseListener;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Shows a placeholder until the panel is scrolled into view, then builds its chart on a shared
+ * background pool and swaps it in on the EDT.
+ */
+public class LazyChartPanel extends JPanel {
+    private static final ExecutorService CHART_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() - 1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "chart-builder");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    private final Supplier<JFreeChart> chartFactory;
+    private final JLabel placeholderLabel;
+    private final ChangeListener viewportListener = e -> loadIfVisible();
+    private final HierarchyListener showingListener = e -> {
+        if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+            loadIfVisible();
+        }
+    };
+
+    private JViewport viewport;
+    private LazyChartPanel next;
+    private boolean prefetchNext = true;
+    private CompletableFuture<JFreeChart> loading;
+    // Set once the chart was asked for because it is in view, as opposed to only started by the panel before it
+    private boolean requested;
+    private ChartMouseListener chartMouseListener;
+
+    public LazyChartPanel(Supplier<JFreeChart> chartFactory) {
+        this.chartFactory = chartFactory;
+
+        setLayout(new BorderLayout());
+        setBackground(Theme.PANEL_BG);
+
+        placeholderLabel = new JLabel("Loading chart...");
+        placeholderLabel.setFont(Theme.DEFAULT_FONT);
+        placeholderLabel.setForeground(Theme.TEXT_SECONDARY);
+        placeholderLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        add(placeholderLabel, BorderLayout.CENTER);
+
+        addHierarchyListener(showingListener);
+    }
+
+    public void setNext(LazyChartPanel next) {
+        this.next = next;
+    }
+
+    public void setPrefetchNext(boolean prefetchNext) {
+        this.prefetchNext = prefetchNext;
+    }
+
+    /**
+     * Listener attached to the chart panel once the chart is shown, for charts whose items can be clicked.
+     */
+    public void setChartMouseListener(ChartMouseListener chartMouseListener) {
+        this.chartMouseListener = chartMouseListener;
+    }
+
+    /**
+     * Builds this chart and, when prefetching, starts the next one so it is ready when scrolled to. The next
+     * panel is only started, not loaded, so prefetching stops one chart ahead instead of running down the chain.
+     */
+    public void load() {
+        requested = true;
+        startLoading();
+        if (loading.isDone()) {
+            detachViewport();
+        }
+
+        if (prefetchNext && next != null) {
+            next.startLoading();
+        }
+    }
+
+    private void startLoading() {
+        if (loading != null) {
+            return;
+        }
+
+        CompletableFuture<JFreeChart> future = CompletableFuture.supplyAsync(chartFactory, CHART_EXECUTOR);
+        loading = future;
+        future.whenComplete((chart, error) -> SwingUtilities.invokeLater(() -> {
+            if (future == loading) {
+                showChart(chart, error);
+            }
+        }));
+    }
+
+    private void loadIfVisible() {
+        // A panel already started by prefetching still goes through load() so it prefetches its own next panel
+        if (!requested && isShowing() && !getVisibleRect().isEmpty()) {
+            load();
+        }
+    }
+
+    private void showChart(JFreeChart chart, Throwable error) {
+        if (requested) {
+            detachViewport();
+        }
+        removeAll();
+
+        if (error != null) {
+            placeholderLabel.setText("Failed to build chart: " + error.getMessage());
+            add(placeholderLabel, BorderLayout.CENTER);
+        } else {
+            ChartPanel chartPanel = new ChartPanel(chart);
+            DownsamplingSupport.install(chartPanel);
+            if (chartMouseListener != null) {
+                chartPanel.addChartMouseListener(chartMouseListener);
+            }
+            add(chartPanel, BorderLayout.CENTER);
+        }
+
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (requested) {
+            return;
+        }
+
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            viewport.addChangeListener(viewportListener);
+        }
+        SwingUtilities.invokeLater(this::loadIfVisible);
+    }
+
+    @Override
+    public void removeNotify() {
+        detachViewport();
+        if (loading != null && !loading.isDone()) {
+            loading.cancel(false);
+            loading = null;
+            requested = false;
+        }
+        super.removeNotify();
+    }
+
+    private void detachViewport() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+    }
+}
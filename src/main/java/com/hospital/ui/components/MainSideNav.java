@@ -18,6 +18,7 @@ public class MainSideNav extends ThemePanel {
     private static final Map<String, GoogleMaterialDesignIcons> PAGE_ICONS = new HashMap<>();
     static {
         PAGE_ICONS.put("simulation", GoogleMaterialDesignIcons.PLAY_CIRCLE_OUTLINE);
+        PAGE_ICONS.put("analysis", GoogleMaterialDesignIcons.TRENDING_UP);
         PAGE_ICONS.put("settings", GoogleMaterialDesignIcons.SETTINGS);
         PAGE_ICONS.put("history", GoogleMaterialDesignIcons.DASHBOARD);
     }
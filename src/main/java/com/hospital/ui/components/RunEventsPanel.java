@@ -0,0 +1,89 @@
+package com.hospital.ui.components;
+
+import com.hospital.ui.Theme;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionListener;
+
+/**
+ * A run's day-by-day events with a picker above them to choose which run is shown.
+ */
+public class RunEventsPanel extends JPanel {
+    private final JPanel pickerBar;
+    private final JComboBox<String> runBox = new JComboBox<>();
+    private final ThemeButton worstRunButton = new ThemeButton("Worst Shortage", ThemeButton.Variant.DEFAULT);
+    private final SimulationEventsTable eventsTable = new SimulationEventsTable();
+    private int worstRun = -1;
+
+    public RunEventsPanel() {
+        setLayout(new BorderLayout(0, 10));
+        setBackground(Theme.PANEL_BG);
+
+        pickerBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        pickerBar.setBackground(Theme.PANEL_BG);
+
+        JLabel runLabel = new JLabel("Run");
+        runLabel.setFont(Theme.DEFAULT_FONT);
+        runLabel.setForeground(Theme.TEXT_PRIMARY);
+
+        runBox.setFont(Theme.DEFAULT_FONT);
+        runBox.setPrototypeDisplayValue("Run 10000: 999 shortage days, 99999 units short");
+        worstRunButton.addActionListener(action -> {
+            if (worstRun >= 0) {
+                runBox.setSelectedIndex(worstRun);
+            }
+        });
+
+        pickerBar.add(runLabel);
+        pickerBar.add(runBox);
+        pickerBar.add(worstRunButton);
+        pickerBar.setVisible(false);
+
+        add(pickerBar, BorderLayout.NORTH);
+        add(eventsTable, BorderLayout.CENTER);
+    }
+
+    /**
+     * Lists the first {@code runCount} runs by their shortages, selecting the first; no runs hides the picker.
+     */
+    public void setRuns(int runCount, int[] shortageDays, int[] shortageAmounts) {
+        String[] labels = new String[runCount];
+        worstRun = -1;
+        for (int run = 0; run < labels.length; run++) {
+            labels[run] = "Run " + (run + 1) + ": " + shortageDays[run] + " shortage days, "
+                    + shortageAmounts[run] + " units short";
+            if (worstRun < 0 || shortageAmounts[run] > shortageAmounts[worstRun]
+                    || shortageAmounts[run] == shortageAmounts[worstRun] && shortageDays[run] > shortageDays[worstRun]) {
+                worstRun = run;
+            }
+        }
+
+        ActionListener[] listeners = runBox.getActionListeners();
+        for (ActionListener listener : listeners) {
+            runBox.removeActionListener(listener);
+        }
+        runBox.setModel(new DefaultComboBoxModel<>(labels));
+        for (ActionListener listener : listeners) {
+            runBox.addActionListener(listener);
+        }
+
+        pickerBar.setVisible(labels.length > 0);
+        revalidate();
+    }
+
+    public int getSelectedRun() {
+        return runBox.getSelectedIndex();
+    }
+
+    public void setRunSelectedAction(ActionListener action) {
+        for (ActionListener listener : runBox.getActionListeners()) {
+            runBox.removeActionListener(listener);
+        }
+        runBox.addActionListener(action);
+    }
+
+    public SimulationEventsTable getEventsTable() {
+        return eventsTable;
+    }
+}
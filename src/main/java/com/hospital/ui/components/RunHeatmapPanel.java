@@ -0,0 +1,195 @@
+package com.hospital.ui.components;
+
+import com.hospital.ui.Theme;
+import com.hospital.utils.charts.RunHeatmap;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Interactive view of a {@link RunHeatmap}: days left to right, runs top to bottom. The wheel zooms around the
+ * cursor, dragging pans and a double click resets the view. The heatmap is built off the EDT the first time
+ * the panel is painted, and each view is rendered into a reused image.
+ */
+public class RunHeatmapPanel extends JPanel {
+    private static final int LEFT_MARGIN = 70;
+    private static final int BOTTOM_MARGIN = 24;
+    private static final double ZOOM_STEP = 1.25;
+
+    private final Supplier<RunHeatmap> heatmapFactory;
+    private final String valueLabel;
+    private final int[] palette = new int[256];
+    private CompletableFuture<RunHeatmap> loading;
+    private RunHeatmap heatmap;
+    private String error;
+
+    private double dayFrom;
+    private double dayTo;
+    private double runFrom;
+    private double runTo;
+    private BufferedImage image;
+    private boolean imageStale = true;
+    private Point dragStart;
+
+    public RunHeatmapPanel(Supplier<RunHeatmap> heatmapFactory, Color color, String valueLabel) {
+        this.heatmapFactory = heatmapFactory;
+        this.valueLabel = valueLabel;
+        setBackground(Theme.PANEL_BG);
+        setToolTipText("");
+
+        Color low = Theme.PANEL_BG;
+        for (int i = 0; i < palette.length; i++) {
+            double t = i / 255.0;
+            int red = (int) Math.round(low.getRed() + (color.getRed() - low.getRed()) * t);
+            int green = (int) Math.round(low.getGreen() + (color.getGreen() - low.getGreen()) * t);
+            int blue = (int) Math.round(low.getBlue() + (color.getBlue() - low.getBlue()) * t);
+            palette[i] = 0xFF000000 | red << 16 | green << 8 | blue;
+        }
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (heatmap == null || dragStart == null) {
+                    return;
+                }
+                Rectangle plot = plotArea();
+                double dayShift = (dragStart.x - e.getX()) * (dayTo - dayFrom) / plot.width;
+                double runShift = (dragStart.y - e.getY()) * (runTo - runFrom) / plot.height;
+                dragStart = e.getPoint();
+                setView(dayFrom + dayShift, dayTo + dayShift, runFrom + runShift, runTo + runShift);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (heatmap == null) {
+                    return;
+                }
+                Rectangle plot = plotArea();
+                double factor = Math.pow(ZOOM_STEP, e.getPreciseWheelRotation());
+                double day = dayFrom + (e.getX() - plot.x) * (dayTo - dayFrom) / plot.width;
+                double run = runFrom + (e.getY() - plot.y) * (runTo - runFrom) / plot.height;
+                setView(day - (day - dayFrom) * factor, day + (dayTo - day) * factor,
+                        run - (run - runFrom) * factor, run + (runTo - run) * factor);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (heatmap != null && e.getClickCount() == 2) {
+                    resetView();
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    private void load() {
+        CompletableFuture<RunHeatmap> future = CompletableFuture.supplyAsync(heatmapFactory);
+        loading = future;
+        future.whenComplete((built, failure) -> SwingUtilities.invokeLater(() -> {
+            if (failure != null) {
+                error = "Failed to build heatmap: " + failure.getMessage();
+            } else {
+                heatmap = built;
+                resetView();
+            }
+            repaint();
+        }));
+    }
+
+    private void resetView() {
+        setView(0, heatmap.getTotalDays(), 0, heatmap.getRunCount());
+    }
+
+    /**
+     * Moves the view, keeping it inside the grid and at least one cell wide on each axis.
+     */
+    private void setView(double newDayFrom, double newDayTo, double newRunFrom, double newRunTo) {
+        double[] days = clampRange(newDayFrom, newDayTo, heatmap.getTotalDays());
+        double[] runs = clampRange(newRunFrom, newRunTo, heatmap.getRunCount());
+        dayFrom = days[0];
+        dayTo = days[1];
+        runFrom = runs[0];
+        runTo = runs[1];
+        imageStale = true;
+        repaint();
+    }
+
+    private static double[] clampRange(double from, double to, int size) {
+        double length = Math.min(Math.max(to - from, Math.min(1, size)), size);
+        double start = Math.max(0, Math.min(from, size - length));
+        return new double[]{start, start + length};
+    }
+
+    private Rectangle plotArea() {
+        return new Rectangle(LEFT_MARGIN, 0, Math.max(1, getWidth() - LEFT_MARGIN), Math.max(1, getHeight() - BOTTOM_MARGIN));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setFont(Theme.DEFAULT_FONT);
+        g2.setColor(Theme.TEXT_SECONDARY);
+
+        if (heatmap == null) {
+            if (loading == null) {
+                load();
+            }
+            g2.drawString(error != null ? error : "Loading heatmap...", LEFT_MARGIN, getHeight() / 2);
+            return;
+        }
+        if (heatmap.getRunCount() == 0 || heatmap.getTotalDays() == 0) {
+            g2.drawString("No runs to show", LEFT_MARGIN, getHeight() / 2);
+            return;
+        }
+
+        Rectangle plot = plotArea();
+        if (image == null || image.getWidth() != plot.width || image.getHeight() != plot.height) {
+            image = new BufferedImage(plot.width, plot.height, BufferedImage.TYPE_INT_RGB);
+            imageStale = true;
+        }
+        if (imageStale) {
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            heatmap.render(pixels, plot.width, plot.height, dayFrom, dayTo, runFrom, runTo, palette);
+            imageStale = false;
+        }
+        g2.drawImage(image, plot.x, plot.y, null);
+
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString("Run " + ((int) runFrom + 1), 4, metrics.getAscent());
+        g2.drawString("Run " + (int) Math.ceil(runTo), 4, plot.height);
+        g2.drawString("Day " + ((int) dayFrom + 1), plot.x, getHeight() - 6);
+        String lastDay = "Day " + (int) Math.ceil(dayTo);
+        g2.drawString(lastDay, getWidth() - metrics.stringWidth(lastDay) - 4, getHeight() - 6);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        Rectangle plot = plotArea();
+        if (heatmap == null || !plot.contains(e.getPoint())
+                || heatmap.getRunCount() == 0 || heatmap.getTotalDays() == 0) {
+            return null;
+        }
+        int day = (int) (dayFrom + (e.getX() - plot.x) * (dayTo - dayFrom) / plot.width);
+        int run = (int) (runFrom + (e.getY() - plot.y) * (runTo - runFrom) / plot.height);
+        day = Math.min(day, heatmap.getTotalDays() - 1);
+        run = Math.min(run, heatmap.getRunCount() - 1);
+        double value = heatmap.getValue(run, day);
+        String formatted = value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.2f", value);
+        return "Run " + (run + 1) + ", Day " + (day + 1) + ": " + valueLabel + " " + formatted;
+    }
+}
@@ -19,7 +19,7 @@ public class SimulationStatisticsTable extends JPanel {
         setLayout(new BorderLayout(0, 10));
         setBackground(Theme.PANEL_BG);
 
-        String[] columnNames = {"Metric", "Value"};
+        String[] columnNames = {"Metric", "Value", "95% CI (Percentile)", "95% CI (BCa)"};
 
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
@@ -88,7 +88,12 @@ public class SimulationStatisticsTable extends JPanel {
     public void setStatistics(ArrayList<SimulationData.Statistic> statistics) {
         clearStatistics();
         for (SimulationData.Statistic stat : statistics) {
-            tableModel.addRow(new Object[]{stat.label(), stat.value()});
+            tableModel.addRow(new Object[]{
+                    stat.label(),
+                    stat.value(),
+                    stat.percentile() == null ? "" : stat.percentile().toString(),
+                    stat.bca() == null ? "" : stat.bca().toString()
+            });
         }
         JScrollBar bar = ((JScrollPane) getComponent(0)).getVerticalScrollBar();
         bar.setValue(bar.getMaximum());
@@ -0,0 +1,108 @@
+package com.hospital.ui.components;
+
+import com.hospital.simulation.SteadyState;
+import com.hospital.ui.Theme;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Batch-means estimates of a single long run, one row per metric.
+ */
+public class SteadyStateTable extends JPanel {
+
+    private final JTable table;
+    private final DefaultTableModel tableModel;
+
+    public SteadyStateTable() {
+        setLayout(new BorderLayout(0, 10));
+        setBackground(Theme.PANEL_BG);
+
+        String[] columnNames = {
+                "Metric",
+                "Steady-State Mean",
+                "95% CI (Batch Means)",
+                "Warm-up Days (MSER-5)",
+                "Batches",
+                "Batch Size (Days)",
+                "Lag-1 Correlation",
+        };
+
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+
+        table = new JTable(tableModel);
+        table.setFont(Theme.DEFAULT_FONT.deriveFont(13f));
+        table.setRowHeight(32);
+        table.setForeground(Theme.TEXT_PRIMARY);
+        table.setGridColor(Theme.BORDER);
+        table.setShowGrid(true);
+        table.setIntercellSpacing(new Dimension(1, 0));
+        table.setEnabled(false);
+
+        DefaultTableCellRenderer cellRenderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(
+                    JTable table, Object value, boolean isSelected,
+                    boolean hasFocus, int row, int column
+            ) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                setBackground(row % 2 == 0 ? Theme.PANEL_BG : Theme.BACKGROUND);
+                setForeground(Theme.TEXT_PRIMARY);
+                setBorder(BorderFactory.createEmptyBorder(5, 12, 5, 12));
+                return this;
+            }
+        };
+        table.setDefaultRenderer(Object.class, cellRenderer);
+
+        JTableHeader header = table.getTableHeader();
+        header.setReorderingAllowed(false);
+        header.setFont(Theme.DEFAULT_FONT.deriveFont(Font.BOLD, 12f));
+        header.setForeground(Theme.TEXT_SECONDARY);
+        header.setBackground(Theme.BACKGROUND);
+
+        DefaultTableCellRenderer headerRenderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(
+                    JTable table, Object value, boolean isSelected,
+                    boolean hasFocus, int row, int column
+            ) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                setBorder(BorderFactory.createCompoundBorder(
+                        BorderFactory.createMatteBorder(0, 0, 2, 0, Theme.BORDER),
+                        BorderFactory.createEmptyBorder(8, 12, 8, 12)
+                ));
+                setHorizontalAlignment(SwingConstants.LEFT);
+                return this;
+            }
+        };
+        header.setDefaultRenderer(headerRenderer);
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createLineBorder(Theme.BORDER));
+        scrollPane.getViewport().setBackground(Theme.PANEL_BG);
+
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    public void setEstimates(List<SteadyState.Estimate> estimates) {
+        tableModel.setRowCount(0);
+        for (SteadyState.Estimate estimate : estimates) {
+            tableModel.addRow(new Object[]{
+                    estimate.label(),
+                    String.format("%.4f", estimate.mean()),
+                    estimate.interval() == null ? "" : estimate.interval().toString(),
+                    estimate.warmupDays(),
+                    estimate.batches(),
+                    estimate.batchSize(),
+                    Double.isNaN(estimate.lagOneCorrelation()) ? "" : String.format("%.3f", estimate.lagOneCorrelation())
+            });
+        }
+    }
+}
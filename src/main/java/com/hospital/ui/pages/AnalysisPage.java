@@ -0,0 +1,200 @@
+package com.hospital.ui.pages;
+
+import com.hospital.controllers.AnalysisPageController;
+import com.hospital.ui.Theme;
+import com.hospital.ui.components.*;
+import jiconfont.IconCode;
+import org.jfree.chart.ChartMouseListener;
+import org.jfree.chart.JFreeChart;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class AnalysisPage extends JPanel {
+    private JPanel paramsPanel;
+    private JPanel actionsPanel;
+    private final List<JButton> actionButtons = new ArrayList<>();
+    private JLabel statusLabel;
+    private JPanel resultsPanel;
+    private JLabel resultsPanelLabel;
+
+    public AnalysisPage() {
+        setLayout(new BorderLayout());
+        setBackground(Theme.BACKGROUND);
+        setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JPanel content = new JPanel();
+        content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+        content.setBackground(Theme.BACKGROUND);
+
+        JLabel header = new JLabel("Analysis");
+        header.setFont(Theme.HEADER_FONT);
+        content.add(header);
+        content.add(Box.createVerticalStrut(40));
+
+        JLabel analysisParametersLabel = new JLabel("Analysis Parameters");
+        analysisParametersLabel.setFont(Theme.TITLE_FONT);
+        analysisParametersLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        content.add(analysisParametersLabel);
+        content.add(Box.createVerticalStrut(5));
+        content.add(prepareParametersPanel());
+        content.add(Box.createVerticalStrut(20));
+
+        actionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        actionsPanel.setBackground(Theme.BACKGROUND);
+        actionsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        content.add(actionsPanel);
+        content.add(Box.createVerticalStrut(10));
+
+        statusLabel = new JLabel(" ");
+        statusLabel.setFont(Theme.DEFAULT_FONT);
+        statusLabel.setForeground(Theme.TEXT_SECONDARY);
+        statusLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        content.add(statusLabel);
+        content.add(Box.createVerticalStrut(30));
+
+        resultsPanelLabel = new JLabel("Analysis Results");
+        resultsPanelLabel.setFont(Theme.TITLE_FONT);
+        resultsPanelLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        resultsPanelLabel.setVisible(false);
+        content.add(resultsPanelLabel);
+        content.add(Box.createVerticalStrut(5));
+        content.add(prepareResultsPanel());
+
+        add(content, BorderLayout.CENTER);
+
+        new AnalysisPageController(this);
+    }
+
+    private JPanel prepareParametersPanel() {
+        ThemePanel panel = new ThemePanel();
+        panel.setLayout(new BorderLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        panel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        paramsPanel = new JPanel(new GridLayout(0, 2, 10, 10));
+        paramsPanel.setBackground(Theme.PANEL_BG);
+
+        panel.add(paramsPanel, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    private JPanel prepareResultsPanel() {
+        resultsPanel = new ThemePanel();
+        resultsPanel.setLayout(new BoxLayout(resultsPanel, BoxLayout.Y_AXIS));
+        resultsPanel.setBorder(BorderFactory.createEmptyBorder(0, 20, 30, 20));
+        resultsPanel.setVisible(false);
+        resultsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        return resultsPanel;
+    }
+
+    public Map<String, JTextField> addParameters(String[][] parameters) {
+        paramsPanel.removeAll();
+        Map<String, JTextField> map = new HashMap<>();
+
+        for (String[] entry : parameters) {
+            JPanel panel = new JPanel(new BorderLayout(5, 5));
+            panel.setBackground(Theme.PANEL_BG);
+
+            JLabel label = new JLabel(entry[1]);
+            label.setFont(Theme.DEFAULT_FONT);
+            label.setForeground(Theme.TEXT_PRIMARY);
+            panel.add(label, BorderLayout.NORTH);
+
+            ThemeTextField textField = new ThemeTextField(10);
+            textField.setText(entry[2]);
+            map.put(entry[0], textField);
+            panel.add(textField, BorderLayout.CENTER);
+
+            paramsPanel.add(panel);
+        }
+
+        paramsPanel.revalidate();
+        paramsPanel.repaint();
+
+        return map;
+    }
+
+    public void addAction(String label, IconCode icon, ActionListener action) {
+        ThemeButton button = new ThemeButton(label, ThemeButton.Variant.PRIMARY, false, icon);
+        button.addActionListener(action);
+        if (!actionButtons.isEmpty()) {
+            actionsPanel.add(Box.createHorizontalStrut(10));
+        }
+        actionButtons.add(button);
+        actionsPanel.add(button);
+        actionsPanel.revalidate();
+    }
+
+    public void setActionsEnabled(boolean enabled) {
+        for (JButton button : actionButtons) {
+            button.setEnabled(enabled);
+        }
+    }
+
+    public void setStatus(String status) {
+        statusLabel.setText(status == null || status.isEmpty() ? " " : status);
+    }
+
+    public void addDataTable(String title, JPanel tablePanel, int height) {
+        JLabel label = new JLabel(title);
+        label.setFont(Theme.TITLE_FONT);
+        label.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        tablePanel.setPreferredSize(new Dimension(900, height));
+        tablePanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, height));
+        tablePanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        resultsPanel.add(Box.createVerticalStrut(30));
+        resultsPanel.add(label);
+        resultsPanel.add(Box.createVerticalStrut(10));
+        resultsPanel.add(tablePanel);
+
+        resultsPanel.revalidate();
+        resultsPanel.repaint();
+    }
+
+    public void addChart(String title, Supplier<JFreeChart> chartFactory) {
+        addChart(title, chartFactory, null);
+    }
+
+    public void addChart(String title, Supplier<JFreeChart> chartFactory, ChartMouseListener clickListener) {
+        JLabel label = new JLabel(title);
+        label.setFont(Theme.TITLE_FONT);
+        label.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        LazyChartPanel chartPanel = new LazyChartPanel(chartFactory);
+        chartPanel.setChartMouseListener(clickListener);
+        chartPanel.setPreferredSize(new Dimension(900, 400));
+        chartPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 400));
+        chartPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        resultsPanel.add(Box.createVerticalStrut(30));
+        resultsPanel.add(label);
+        resultsPanel.add(Box.createVerticalStrut(10));
+        resultsPanel.add(chartPanel);
+
+        resultsPanel.revalidate();
+        resultsPanel.repaint();
+    }
+
+    public void showResults() {
+        resultsPanelLabel.setVisible(true);
+        resultsPanel.setVisible(true);
+        resultsPanel.revalidate();
+        resultsPanel.repaint();
+    }
+
+    public void clearResults() {
+        resultsPanel.removeAll();
+        resultsPanel.revalidate();
+        resultsPanel.repaint();
+    }
+}
@@ -1,22 +1,24 @@
 package com.hospital.ui.pages;
 
 import com.hospital.controllers.HistoryDetailPageController;
-import com.hospital.models.SimulationHistoryRecord;
 import com.hospital.ui.Theme;
 import com.hospital.ui.components.*;
-import org.jfree.chart.ChartPanel;
+import com.hospital.utils.MappedHistoryRecord;
 import org.jfree.chart.JFreeChart;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.function.Supplier;
 
 public class HistoryDetailPage extends JPanel {
     private JLabel subtitleLabel;
     private JPanel generalConfigPanel;
     private JPanel distributionsPanel;
     private JPanel resultsPanel;
+    private LazyChartPanel lastChartPanel;
+    private boolean prefetchCharts = true;
 
-    public HistoryDetailPage(SimulationHistoryRecord record) {
+    public HistoryDetailPage(MappedHistoryRecord record) {
         setLayout(new BorderLayout());
         setBackground(Theme.BACKGROUND);
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -60,6 +62,10 @@ public class HistoryDetailPage extends JPanel {
         return headerPanel;
     }
 
+    public void setPrefetchCharts(boolean prefetchCharts) {
+        this.prefetchCharts = prefetchCharts;
+    }
+
     public void setSubtitleText(String text) {
         subtitleLabel.setText(text);
     }
@@ -198,7 +204,7 @@ public class HistoryDetailPage extends JPanel {
         resultsPanel.repaint();
     }
 
-    public void addChart(String title, JFreeChart chart) {
+    public void addChart(String title, Supplier<JFreeChart> chartFactory) {
         ThemePanel panel = new ThemePanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -207,10 +213,15 @@ public class HistoryDetailPage extends JPanel {
         label.setFont(Theme.TITLE_FONT);
         label.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        ChartPanel chartPanel = new ChartPanel(chart);
+        LazyChartPanel chartPanel = new LazyChartPanel(chartFactory);
         chartPanel.setPreferredSize(new Dimension(900, 400));
         chartPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 400));
         chartPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        chartPanel.setPrefetchNext(prefetchCharts);
+        if (lastChartPanel != null) {
+            lastChartPanel.setNext(chartPanel);
+        }
+        lastChartPanel = chartPanel;
 
         panel.add(label);
         panel.add(Box.createVerticalStrut(10));
@@ -1,17 +1,27 @@
 package com.hospital.ui.pages;
 
 import com.hospital.controllers.HistoryPageController;
-import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.models.HistoryQuery;
+import com.hospital.models.SimulationHistorySummary;
 import com.hospital.ui.Theme;
 import com.hospital.ui.components.ThemeButton;
 import com.hospital.ui.components.ThemePanel;
+import com.hospital.ui.components.ThemeTextField;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionListener;
+import java.util.List;
 
 public class HistoryPage extends JPanel {
     private JPanel historyListPanel;
     private JLabel emptyStateLabel;
+    private JComboBox<String> filterFieldBox;
+    private JComboBox<HistoryQuery.Operator> filterOperatorBox;
+    private JTextField filterValueField;
+    private JButton addFilterButton;
+    private JButton clearFiltersButton;
+    private JLabel filterStatusLabel;
     private HistoryPageController controller;
 
     public HistoryPage() {
@@ -30,6 +40,16 @@ public class HistoryPage extends JPanel {
 
         header.add(Box.createVerticalStrut(40));
 
+        header.add(prepareFilterBar());
+        header.add(Box.createVerticalStrut(5));
+
+        filterStatusLabel = new JLabel(" ");
+        filterStatusLabel.setFont(Theme.DEFAULT_FONT);
+        filterStatusLabel.setForeground(Theme.TEXT_SECONDARY);
+        filterStatusLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        header.add(filterStatusLabel);
+        header.add(Box.createVerticalStrut(20));
+
         add(header, BorderLayout.NORTH);
 
         historyListPanel = new JPanel();
@@ -48,10 +68,72 @@ public class HistoryPage extends JPanel {
         controller.loadHistory();
     }
 
+    private JPanel prepareFilterBar() {
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        filterBar.setBackground(Theme.BACKGROUND);
+        filterBar.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        filterFieldBox = new JComboBox<>();
+        filterFieldBox.setFont(Theme.DEFAULT_FONT);
+        filterFieldBox.setPrototypeDisplayValue("Total Average Ending Basement Units");
+
+        filterOperatorBox = new JComboBox<>(HistoryQuery.Operator.values());
+        filterOperatorBox.setFont(Theme.DEFAULT_FONT);
+
+        filterValueField = new ThemeTextField(8);
+
+        addFilterButton = new ThemeButton("Add Filter", ThemeButton.Variant.PRIMARY);
+        clearFiltersButton = new ThemeButton("Clear", ThemeButton.Variant.DEFAULT);
+
+        filterBar.add(filterFieldBox);
+        filterBar.add(filterOperatorBox);
+        filterBar.add(filterValueField);
+        filterBar.add(addFilterButton);
+        filterBar.add(clearFiltersButton);
+        return filterBar;
+    }
+
     public void refresh() {
         controller.loadHistory();
     }
 
+    public void setFilterFields(List<String> fields) {
+        Object selected = filterFieldBox.getSelectedItem();
+        filterFieldBox.setModel(new DefaultComboBoxModel<>(fields.toArray(String[]::new)));
+        if (selected != null && fields.contains(selected)) {
+            filterFieldBox.setSelectedItem(selected);
+        }
+    }
+
+    public String getFilterField() {
+        return (String) filterFieldBox.getSelectedItem();
+    }
+
+    public HistoryQuery.Operator getFilterOperator() {
+        return (HistoryQuery.Operator) filterOperatorBox.getSelectedItem();
+    }
+
+    public String getFilterValue() {
+        return filterValueField.getText();
+    }
+
+    public void clearFilterValue() {
+        filterValueField.setText("");
+    }
+
+    public void setFilterStatus(String status) {
+        filterStatusLabel.setText(status);
+    }
+
+    public void setAddFilterAction(ActionListener action) {
+        addFilterButton.addActionListener(action);
+        filterValueField.addActionListener(action);
+    }
+
+    public void setClearFiltersAction(ActionListener action) {
+        clearFiltersButton.addActionListener(action);
+    }
+
     public void clearHistory() {
         historyListPanel.removeAll();
         historyListPanel.revalidate();
@@ -59,6 +141,11 @@ public class HistoryPage extends JPanel {
     }
 
     public void showEmptyState() {
+        showEmptyState("No past simulations found.");
+    }
+
+    public void showEmptyState(String message) {
+        emptyStateLabel.setText(message);
         clearHistory();
         historyListPanel.add(Box.createVerticalGlue());
         historyListPanel.add(emptyStateLabel);
@@ -67,7 +154,7 @@ public class HistoryPage extends JPanel {
         historyListPanel.repaint();
     }
 
-    public void addHistoryItem(String label, SimulationHistoryRecord record) {
+    public void addHistoryItem(String label, SimulationHistorySummary summary) {
         ThemePanel itemPanel = new ThemePanel();
         itemPanel.setLayout(new BorderLayout());
         itemPanel.setBorder(BorderFactory.createCompoundBorder(
@@ -82,7 +169,7 @@ public class HistoryPage extends JPanel {
         itemLabel.setForeground(Theme.TEXT_PRIMARY);
         itemPanel.add(itemLabel, BorderLayout.CENTER);
 
-        JPanel buttonPanel = prepareButtonRow(record);
+        JPanel buttonPanel = prepareButtonRow(summary);
 
         itemPanel.add(buttonPanel, BorderLayout.EAST);
 
@@ -92,17 +179,21 @@ public class HistoryPage extends JPanel {
         historyListPanel.repaint();
     }
 
-    private JPanel prepareButtonRow(SimulationHistoryRecord record) {
+    private JPanel prepareButtonRow(SimulationHistorySummary summary) {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         buttonPanel.setBackground(Theme.PANEL_BG);
 
         JButton viewButton = new ThemeButton("View Details", ThemeButton.Variant.PRIMARY);
-        viewButton.addActionListener(e -> controller.showHistoryDetail(record));
+        viewButton.addActionListener(e -> controller.showHistoryDetail(summary));
+
+        JButton sameConfigButton = new ThemeButton("Same Config", ThemeButton.Variant.DEFAULT);
+        sameConfigButton.addActionListener(e -> controller.filterSameConfig(summary));
 
         JButton deleteButton = new ThemeButton("Delete", ThemeButton.Variant.DEFAULT);
-        deleteButton.addActionListener(e -> controller.deleteHistory(record));
+        deleteButton.addActionListener(e -> controller.deleteHistory(summary));
 
         buttonPanel.add(viewButton);
+        buttonPanel.add(sameConfigButton);
         buttonPanel.add(deleteButton);
         return buttonPanel;
     }
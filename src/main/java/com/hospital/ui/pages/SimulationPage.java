@@ -4,7 +4,6 @@ import com.hospital.controllers.SimulationPageController;
 import com.hospital.ui.Theme;
 import com.hospital.ui.components.*;
 import jiconfont.icons.google_material_design_icons.GoogleMaterialDesignIcons;
-import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 
 import javax.swing.*;
@@ -12,12 +11,15 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class SimulationPage extends JPanel {
     private JPanel paramsPanel;
     private JButton startSimulationButton;
     private JPanel resultsPanel;
     private JLabel resultsPanelLabel;
+    private LazyChartPanel lastChartPanel;
+    private boolean prefetchCharts = true;
 
     public SimulationPage() {
         setLayout(new BorderLayout());
@@ -104,15 +106,20 @@ public class SimulationPage extends JPanel {
         resultsPanel.repaint();
     }
 
-    public void addChart(String title, JFreeChart chart) {
+    public void addChart(String title, Supplier<JFreeChart> chartFactory) {
         JLabel label = new JLabel(title);
         label.setFont(Theme.TITLE_FONT);
         label.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        ChartPanel chartPanel = new ChartPanel(chart);
+        LazyChartPanel chartPanel = new LazyChartPanel(chartFactory);
         chartPanel.setPreferredSize(new Dimension(900, 400));
         chartPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 400));
         chartPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        chartPanel.setPrefetchNext(prefetchCharts);
+        if (lastChartPanel != null) {
+            lastChartPanel.setNext(chartPanel);
+        }
+        lastChartPanel = chartPanel;
 
         resultsPanel.add(Box.createVerticalStrut(30));
         resultsPanel.add(label);
@@ -166,5 +173,10 @@ public class SimulationPage extends JPanel {
 
     public void clearSimulationResults() {
         resultsPanel.removeAll();
+        lastChartPanel = null;
+    }
+
+    public void setPrefetchCharts(boolean prefetchCharts) {
+        this.prefetchCharts = prefetchCharts;
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.hospital.utils;
+
+public interface HistoryChangeListener {
+    /**
+     * Called after records were saved or deleted, by this application or by another process. May be called
+     * from a background thread.
+     */
+    void onHistoryChanged();
+
+    /**
+     * Called from the history writer thread when queued saves or deletes could not be written. Those changes
+     * have already been dropped from the history list.
+     */
+    default void onHistoryWriteFailed(Exception error) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.hospital.utils;
+
+import com.hospital.models.SimulationHistoryRecord;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed store for the configurations history records reference. Every distribution and every
+ * configuration is written once to {@code configs.log}, keyed by its SHA-256, so studies that reuse the same
+ * settings share one copy. A configuration entry holds the scalar settings and the hashes of its three
+ * distributions.
+ * <p>
+ * The log uses the history frame format and is never compacted; entries are tiny and only ever added.
+ * {@link #put} only stages new entries in memory; {@link #persist()} writes them and must run under the
+ * storage's writer lock, before any record that references them is appended.
+ */
+class HistoryConfigStore implements HistoryRecordCodec.ConfigStore {
+    private static final byte ENTRY_DISTRIBUTION = 1;
+    private static final byte ENTRY_CONFIG = 2;
+
+    private final Path path;
+    private final Map<String, Map<Integer, Double>> distributions = new ConcurrentHashMap<>();
+    private final Map<String, SimulationHistoryRecord.SimulationConfigSnapshot> configs = new ConcurrentHashMap<>();
+    // Staged frames by hash, distributions ahead of the configurations that use them
+    private final Map<String, byte[]> unwritten = new LinkedHashMap<>();
+    private final Set<String> written = new HashSet<>();
+    private long loadedLength;
+
+    HistoryConfigStore(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized String put(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        String contentHash = config.getContentHash();
+        if (configs.containsKey(contentHash)) {
+            return contentHash;
+        }
+
+        try {
+            stageDistribution(config.getOccupiedRoomsProbabilities());
+            stageDistribution(config.getOrderLeadTimeProbabilities());
+            stageDistribution(config.getRoomConsumptionProbabilities());
+            unwritten.put(contentHash,
+                    SimulationHistoryStorage.encodeFrame(ENTRY_CONFIG, contentHash, config.encodeContent()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store configuration", e);
+        }
+        configs.put(contentHash, config);
+        return contentHash;
+    }
+
+    private void stageDistribution(Map<Integer, Double> distribution) throws IOException {
+        String hash = SimulationHistoryRecord.SimulationConfigSnapshot.distributionHash(distribution);
+        if (distributions.putIfAbsent(hash, distribution) == null) {
+            unwritten.put(hash, SimulationHistoryStorage.encodeFrame(ENTRY_DISTRIBUTION, hash,
+                    SimulationHistoryRecord.SimulationConfigSnapshot.encodeDistribution(distribution)));
+        }
+    }
+
+    /**
+     * Resolves a configuration, reading entries other processes appended since the last load if needed.
+     */
+    @Override
+    public SimulationHistoryRecord.SimulationConfigSnapshot get(String contentHash) throws IOException {
+        SimulationHistoryRecord.SimulationConfigSnapshot config = configs.get(contentHash);
+        if (config == null) {
+            load();
+            config = configs.get(contentHash);
+        }
+        if (config == null) {
+            throw new IOException("Unknown history configuration " + contentHash);
+        }
+        return config;
+    }
+
+    /**
+     * Reads the entries appended since the last load, stopping at the first torn frame.
+     */
+    synchronized void load() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        long fileSize = Files.size(path);
+        try (InputStream raw = Files.newInputStream(path)) {
+            raw.skipNBytes(loadedLength);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+            while (true) {
+                SimulationHistoryStorage.Entry entry = SimulationHistoryStorage.readFrame(in, fileSize - loadedLength);
+                if (entry == null) {
+                    break;
+                }
+                loadedLength += entry.frameLength();
+                apply(entry);
+            }
+        }
+    }
+
+    /**
+     * Writes the staged entries and syncs them. Called with the writer lock held, so a torn tail left by a
+     * writer that crashed is cut off first.
+     */
+    synchronized void persist() throws IOException {
+        if (unwritten.isEmpty()) {
+            return;
+        }
+        load();
+
+        List<byte[]> frames = new ArrayList<>();
+        for (Map.Entry<String, byte[]> staged : unwritten.entrySet()) {
+            // Another process may have written the same content meanwhile
+            if (!written.contains(staged.getKey())) {
+                frames.add(staged.getValue());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > loadedLength) {
+                channel.truncate(loadedLength);
+            }
+            channel.position(loadedLength);
+            for (byte[] frame : frames) {
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                loadedLength += frame.length;
+            }
+            channel.force(false);
+        }
+        written.addAll(unwritten.keySet());
+        unwritten.clear();
+    }
+
+    private void apply(SimulationHistoryStorage.Entry entry) throws IOException {
+        written.add(entry.id());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.payload()));
+        if (entry.type() == ENTRY_DISTRIBUTION) {
+            int size = in.readInt();
+            Map<Integer, Double> distribution = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                distribution.put(in.readInt(), in.readDouble());
+            }
+            distributions.putIfAbsent(entry.id(), distribution);
+        } else if (entry.type() == ENTRY_CONFIG) {
+            int reviewTime = in.readInt();
+            int firstFloorMaxCapacity = in.readInt();
+            int basementFloorMaxCapacity = in.readInt();
+            int firstFloorStartUnits = in.readInt();
+            int basementFloorStartUnits = in.readInt();
+            Map<Integer, Double> occupiedRooms = distribution(in.readUTF());
+            Map<Integer, Double> orderLeadTime = distribution(in.readUTF());
+            Map<Integer, Double> roomConsumption = distribution(in.readUTF());
+            configs.putIfAbsent(entry.id(), new SimulationHistoryRecord.SimulationConfigSnapshot(
+                    reviewTime, firstFloorMaxCapacity, basementFloorMaxCapacity, firstFloorStartUnits,
+                    basementFloorStartUnits, occupiedRooms, orderLeadTime, roomConsumption));
+        }
+    }
+
+    private Map<Integer, Double> distribution(String hash) throws IOException {
+        Map<Integer, Double> distribution = distributions.get(hash);
+        if (distribution == null) {
+            throw new IOException("Unknown history distribution " + hash);
+        }
+        return distribution;
+    }
+}
@@ -0,0 +1,172 @@
+package com.hospital.utils;
+
+import com.hospital.models.HistoryQuery;
+import com.hospital.models.SimulationHistorySummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The live summaries by id, plus a sorted index per field of {@link SimulationHistorySummary#getIndexedValues()}
+ * and an index by configuration hash, all updated on every put and remove, so queries are answered with
+ * lookups instead of a scan.
+ */
+class HistoryIndex {
+    private final Map<String, SimulationHistorySummary> summaries = new HashMap<>();
+    private final Map<String, NavigableMap<Double, Set<String>>> fields = new HashMap<>();
+    private final Map<String, Set<String>> configs = new HashMap<>();
+
+    SimulationHistorySummary get(String id) {
+        return summaries.get(id);
+    }
+
+    SimulationHistorySummary put(String id, SimulationHistorySummary summary) {
+        SimulationHistorySummary previous = summaries.put(id, summary);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(summary);
+        return previous;
+    }
+
+    SimulationHistorySummary remove(String id) {
+        SimulationHistorySummary previous = summaries.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+        return previous;
+    }
+
+    void clear() {
+        summaries.clear();
+        fields.clear();
+        configs.clear();
+    }
+
+    /**
+     * An independent copy, so one index can be handed to readers while this one keeps changing.
+     */
+    HistoryIndex copy() {
+        HistoryIndex copy = new HistoryIndex();
+        for (SimulationHistorySummary summary : summaries.values()) {
+            copy.put(summary.getId(), summary);
+        }
+        return copy;
+    }
+
+    Collection<SimulationHistorySummary> values() {
+        return summaries.values();
+    }
+
+    /**
+     * The names of every field at least one live summary has, sorted.
+     */
+    Set<String> fieldNames() {
+        return new TreeSet<>(fields.keySet());
+    }
+
+    /**
+     * Returns the matching summaries, newest first. Each condition becomes a range over its field's index; the
+     * id sets are intersected smallest first.
+     */
+    List<SimulationHistorySummary> query(HistoryQuery query) {
+        Set<String> matches = null;
+        if (!query.isEmpty()) {
+            List<Set<String>> candidates = new ArrayList<>();
+            if (query.getConfigHash() != null) {
+                candidates.add(configs.getOrDefault(query.getConfigHash(), Set.of()));
+            }
+            for (HistoryQuery.Condition condition : query.getConditions()) {
+                candidates.add(lookup(condition));
+            }
+            candidates.sort(Comparator.comparingInt(Set::size));
+            for (Set<String> candidate : candidates) {
+                if (matches == null) {
+                    matches = new HashSet<>(candidate);
+                } else {
+                    matches.retainAll(candidate);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+        }
+
+        List<SimulationHistorySummary> result = new ArrayList<>(matches == null ? summaries.size() : matches.size());
+        if (matches == null) {
+            result.addAll(summaries.values());
+        } else {
+            for (String id : matches) {
+                result.add(summaries.get(id));
+            }
+        }
+        result.sort(Comparator.comparing(SimulationHistorySummary::getTimestamp).reversed());
+        return result;
+    }
+
+    private Set<String> lookup(HistoryQuery.Condition condition) {
+        NavigableMap<Double, Set<String>> index = fields.get(condition.field());
+        if (index == null) {
+            return Set.of();
+        }
+
+        double value = condition.value();
+        Collection<Set<String>> buckets = switch (condition.operator()) {
+            case EQUAL -> {
+                Set<String> bucket = index.get(value);
+                yield bucket == null ? List.of() : List.of(bucket);
+            }
+            case LESS -> index.headMap(value, false).values();
+            case LESS_OR_EQUAL -> index.headMap(value, true).values();
+            case GREATER -> index.tailMap(value, false).values();
+            case GREATER_OR_EQUAL -> index.tailMap(value, true).values();
+        };
+        if (buckets.size() == 1) {
+            return buckets.iterator().next();
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (Set<String> bucket : buckets) {
+            ids.addAll(bucket);
+        }
+        return ids;
+    }
+
+    private void index(SimulationHistorySummary summary) {
+        configs.computeIfAbsent(summary.getConfigHash(), hash -> new HashSet<>()).add(summary.getId());
+        for (Map.Entry<String, Double> field : summary.getIndexedValues().entrySet()) {
+            fields.computeIfAbsent(field.getKey(), name -> new TreeMap<>())
+                    .computeIfAbsent(field.getValue(), value -> new HashSet<>())
+                    .add(summary.getId());
+        }
+    }
+
+    private void unindex(SimulationHistorySummary summary) {
+        Set<String> sameConfig = configs.get(summary.getConfigHash());
+        if (sameConfig != null && sameConfig.remove(summary.getId()) && sameConfig.isEmpty()) {
+            configs.remove(summary.getConfigHash());
+        }
+        for (Map.Entry<String, Double> field : summary.getIndexedValues().entrySet()) {
+            NavigableMap<Double, Set<String>> index = fields.get(field.getKey());
+            if (index == null) {
+                continue;
+            }
+            Set<String> bucket = index.get(field.getValue());
+            if (bucket != null && bucket.remove(summary.getId()) && bucket.isEmpty()) {
+                index.remove(field.getValue());
+                if (index.isEmpty()) {
+                    fields.remove(field.getKey());
+                }
+            }
+        }
+    }
+}
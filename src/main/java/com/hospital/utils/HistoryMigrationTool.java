@@ -0,0 +1,47 @@
+package com.hospital.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts a history directory to the current binary record format. A legacy {@code history.dat} in the
+ * directory is imported first; entries already in the binary format are left as they are.
+ * <p>
+ * Usage: {@code HistoryMigrationTool [historyDir]} (defaults to {@code simulation_history}).
+ */
+public class HistoryMigrationTool {
+    public static void main(String[] args) {
+        Path historyDir = Paths.get(args.length > 0 ? args[0] : "simulation_history");
+        if (!Files.isDirectory(historyDir)) {
+            System.err.println("History directory not found: " + historyDir.toAbsolutePath());
+            System.exit(1);
+        }
+
+        try {
+            SimulationHistoryStorage storage = new SimulationHistoryStorage(historyDir);
+            int records = storage.loadSummaries().size();
+            long sizeBefore = storage.getStorageSize();
+
+            int upgraded = storage.upgradeRecords();
+            storage.compact();
+
+            System.out.printf("Converted %d of %d records (%s -> %s)%n",
+                    upgraded, records, formatBytes(sizeBefore), formatBytes(storage.getStorageSize()));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("History migration failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,776 @@
+package com.hospital.utils;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.SimulationData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary encoding of a {@link SimulationHistoryRecord}, replacing Java serialization for history entries.
+ * <p>
+ * Layout: {@code [int magic][short version][short sectionCount]} followed by sections of
+ * {@code [short id][byte flags][int rawLength][int storedLength][bytes]}. Run series are stored one column per
+ * section across all runs, either bit-packed to the width of the column's largest value or as zig-zag varint
+ * deltas, whichever is smaller. Large sections are deflated when that saves space. Readers skip section ids they
+ * do not know and treat sections missing from older files as empty, so new columns can be added without a
+ * format bump.
+ * <p>
+ * Records written with a {@link ConfigStore} carry only the content hash of their configuration; the
+ * configuration itself is kept once in the store and resolved when the record is read.
+ */
+public class HistoryRecordCodec {
+    public static final short FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x48535243;
+
+    static final short SECTION_HEADER = 1;
+    static final short SECTION_CONFIG = 2;
+    static final short SECTION_STATISTICS = 3;
+    static final short SECTION_EVENTS = 4;
+    static final short SECTION_RUN_TOTALS = 5;
+    static final short SECTION_CONFIG_REF = 6;
+    static final short SECTION_RUN_SEEDS = 7;
+    static final short SECTION_STATISTIC_INTERVALS = 8;
+    static final short SECTION_FIRST_FLOOR_END = 10;
+    static final short SECTION_BASEMENT_END = 11;
+    static final short SECTION_DAILY_DEMAND = 12;
+    static final short SECTION_LEAD_TIMES = 13;
+    static final short SECTION_ORDER_DAYS = 14;
+    static final short SECTION_DELIVERY_DAYS = 15;
+    static final short SECTION_SHORTAGE_DAYS = 16;
+    static final short SECTION_TRANSFER_DAYS = 17;
+
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int COMPRESSION_THRESHOLD = 512;
+
+    private static final byte SERIES_PACKED = 1;
+    private static final byte SERIES_DELTA_VARINT = 2;
+
+    private static final int RUN_TOTAL_COLUMNS = 8;
+
+    public static boolean isEncoded(byte[] payload) {
+        return isEncoded(ByteBuffer.wrap(payload));
+    }
+
+    public static boolean isEncoded(ByteBuffer payload) {
+        return payload.remaining() >= 4 && payload.getInt(payload.position()) == MAGIC;
+    }
+
+    public static byte[] encode(SimulationHistoryRecord record) {
+        return encode(record, null);
+    }
+
+    /**
+     * Encodes the record with its configuration stored in {@code configStore} and referenced by hash, or
+     * inline when {@code configStore} is {@code null}.
+     */
+    public static byte[] encode(SimulationHistoryRecord record, ConfigStore configStore) {
+        List<SimulationHistoryRecord.SimulationRunSnapshot> runs = record.getSimulationRuns();
+
+        Map<Short, byte[]> sections = new LinkedHashMap<>();
+        sections.put(SECTION_HEADER, encodeHeader(record));
+        if (configStore == null) {
+            sections.put(SECTION_CONFIG, encodeConfig(record.getConfigSnapshot()));
+        } else {
+            Output configRef = new Output(72);
+            configRef.writeString(configStore.put(record.getConfigSnapshot()));
+            sections.put(SECTION_CONFIG_REF, configRef.toByteArray());
+        }
+        sections.put(SECTION_STATISTICS, encodeStatistics(record.getStatistics()));
+        if (record.getStatistics().stream().anyMatch(statistic -> statistic.percentile() != null)) {
+            sections.put(SECTION_STATISTIC_INTERVALS, encodeStatisticIntervals(record.getStatistics()));
+        }
+        sections.put(SECTION_EVENTS, encodeEvents(record.getEvents()));
+        sections.put(SECTION_RUN_TOTALS, encodeRunTotals(runs));
+        if (runs.stream().allMatch(run -> run.getSeed() != null)) {
+            sections.put(SECTION_RUN_SEEDS, encodeRunSeeds(runs));
+        }
+        sections.put(SECTION_FIRST_FLOOR_END,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getFirstFloorEndUnits));
+        sections.put(SECTION_BASEMENT_END,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getBasementFloorEndUnits));
+        sections.put(SECTION_DAILY_DEMAND,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getDailyDemandValues));
+        sections.put(SECTION_LEAD_TIMES,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getLeadTimes));
+        sections.put(SECTION_ORDER_DAYS,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getOrderPlacementDays));
+        sections.put(SECTION_DELIVERY_DAYS,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getDeliveryDays));
+        sections.put(SECTION_SHORTAGE_DAYS,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getShortageDays));
+        sections.put(SECTION_TRANSFER_DAYS,
+                encodeSeries(runs, SimulationHistoryRecord.SimulationRunSnapshot::getTransferDays));
+
+        Output out = new Output(1024);
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeShort(sections.size());
+        for (Map.Entry<Short, byte[]> section : sections.entrySet()) {
+            byte[] raw = section.getValue();
+            byte[] stored = raw.length >= COMPRESSION_THRESHOLD ? deflate(raw) : null;
+            boolean deflated = stored != null && stored.length < raw.length;
+
+            out.writeShort(section.getKey());
+            out.writeByte(deflated ? FLAG_DEFLATED : 0);
+            out.writeInt(raw.length);
+            out.writeInt(deflated ? stored.length : raw.length);
+            out.write(deflated ? stored : raw);
+        }
+        return out.toByteArray();
+    }
+
+    public static SimulationHistoryRecord decode(ByteBuffer buffer) throws IOException {
+        return decode(buffer, null);
+    }
+
+    public static SimulationHistoryRecord decode(ByteBuffer buffer, ConfigStore configStore) throws IOException {
+        return new Reader(buffer, configStore).readRecord(true);
+    }
+
+    /**
+     * Keeps configurations by content hash for records that reference them.
+     */
+    public interface ConfigStore {
+        /**
+         * Stores the configuration unless an identical one is already stored, and returns its content hash.
+         */
+        String put(SimulationHistoryRecord.SimulationConfigSnapshot config);
+
+        SimulationHistoryRecord.SimulationConfigSnapshot get(String contentHash) throws IOException;
+    }
+
+    /**
+     * Random access to the sections of one encoded record. Opening a reader only walks the section headers;
+     * section bodies are read (and inflated) when asked for, so a reader over a mapped file touches only the
+     * pages of the columns actually used.
+     */
+    public static class Reader {
+        private final ByteBuffer buffer;
+        private final Map<Short, SectionInfo> sections = new HashMap<>();
+        private final ConfigStore configStore;
+
+        public Reader(ByteBuffer buffer) throws IOException {
+            this(buffer, null);
+        }
+
+        public Reader(ByteBuffer buffer, ConfigStore configStore) throws IOException {
+            this.buffer = buffer.duplicate();
+            this.configStore = configStore;
+            int base = this.buffer.position();
+            if (this.buffer.remaining() < 8 || this.buffer.getInt(base) != MAGIC) {
+                throw new IOException("Not an encoded history record");
+            }
+            short version = this.buffer.getShort(base + 4);
+            if (version > FORMAT_VERSION) {
+                throw new IOException("History record format " + version + " is newer than supported " + FORMAT_VERSION);
+            }
+
+            int sectionCount = this.buffer.getShort(base + 6) & 0xFFFF;
+            int position = base + 8;
+            for (int i = 0; i < sectionCount; i++) {
+                short sectionId = this.buffer.getShort(position);
+                byte flags = this.buffer.get(position + 2);
+                int rawLength = this.buffer.getInt(position + 3);
+                int storedLength = this.buffer.getInt(position + 7);
+                position += 11;
+                if (storedLength < 0 || position + storedLength > this.buffer.limit()) {
+                    throw new IOException("Truncated history record section " + sectionId);
+                }
+                sections.put(sectionId, new SectionInfo(position, flags, rawLength, storedLength));
+                position += storedLength;
+            }
+        }
+
+        /**
+         * Decodes the record, leaving its run list empty when {@code includeRuns} is false.
+         */
+        public SimulationHistoryRecord readRecord(boolean includeRuns) throws IOException {
+            ByteBuffer header = section(SECTION_HEADER);
+            if (header == null) {
+                throw new IOException("History record has no header section");
+            }
+            String id = readString(header);
+            LocalDateTime timestamp = LocalDateTime.parse(readString(header));
+            int simulationDays = readVarint(header);
+            int simulationRuns = readVarint(header);
+            // Records written before the engine version was tracked end here
+            int engineVersion = header.hasRemaining() ? readVarint(header) : 0;
+            SimulationHistoryRecord.SimulationParams params =
+                    new SimulationHistoryRecord.SimulationParams(simulationDays, simulationRuns, engineVersion);
+
+            return new SimulationHistoryRecord(
+                    id,
+                    timestamp,
+                    params,
+                    readConfig(),
+                    readEvents(),
+                    readStatistics(),
+                    includeRuns ? readRuns() : List.of()
+            );
+        }
+
+        public boolean hasSection(short sectionId) {
+            return sections.containsKey(sectionId);
+        }
+
+        /**
+         * Returns the section's bytes, or {@code null} if this record was written without it.
+         */
+        public ByteBuffer section(short sectionId) throws IOException {
+            SectionInfo info = sections.get(sectionId);
+            if (info == null) {
+                return null;
+            }
+
+            ByteBuffer stored = buffer.duplicate();
+            stored.limit(info.offset() + info.storedLength()).position(info.offset());
+            stored = stored.slice();
+            if ((info.flags() & FLAG_DEFLATED) == 0) {
+                return stored;
+            }
+
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                ByteBuffer raw = ByteBuffer.allocate(info.rawLength());
+                while (raw.hasRemaining() && !inflater.finished()) {
+                    if (inflater.inflate(raw) == 0 && inflater.needsInput()) {
+                        break;
+                    }
+                }
+                if (raw.hasRemaining()) {
+                    throw new IOException("Corrupt compressed section " + sectionId);
+                }
+                return raw.flip();
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed section " + sectionId, e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        public int getRunCount() throws IOException {
+            ByteBuffer totals = section(SECTION_RUN_TOTALS);
+            return totals == null ? 0 : readVarint(totals);
+        }
+
+        /**
+         * Per-run totals as {@code [column][run]}, in {@link SimulationHistoryRecord.SimulationRunSnapshot}
+         * constructor order: days, shortage days, shortage amount, demand, orders, lead time, order size, transfers.
+         */
+        public int[][] readRunTotals() throws IOException {
+            ByteBuffer totals = section(SECTION_RUN_TOTALS);
+            if (totals == null) {
+                return new int[RUN_TOTAL_COLUMNS][0];
+            }
+
+            int runCount = readVarint(totals);
+            int columnCount = readVarint(totals);
+            int[][] columns = new int[Math.max(columnCount, RUN_TOTAL_COLUMNS)][runCount];
+            for (int column = 0; column < columnCount; column++) {
+                for (int run = 0; run < runCount; run++) {
+                    columns[column][run] = readZigZag(totals);
+                }
+            }
+            return columns;
+        }
+
+        /**
+         * Each run's random stream seed, or {@code null} if the record was written without them.
+         */
+        public long[] readRunSeeds() throws IOException {
+            ByteBuffer section = section(SECTION_RUN_SEEDS);
+            if (section == null) {
+                return null;
+            }
+            long[] seeds = new long[readVarint(section)];
+            for (int run = 0; run < seeds.length; run++) {
+                seeds[run] = section.getLong();
+            }
+            return seeds;
+        }
+
+        /**
+         * Decodes one series column as {@code [run][value]}; runs are empty if the column was never written.
+         */
+        public int[][] readSeries(short sectionId) throws IOException {
+            ByteBuffer section = section(sectionId);
+            if (section == null) {
+                int[][] empty = new int[getRunCount()][];
+                Arrays.fill(empty, new int[0]);
+                return empty;
+            }
+
+            byte encoding = section.get();
+            int runCount = readVarint(section);
+            int[][] runs = new int[runCount][];
+            for (int run = 0; run < runCount; run++) {
+                runs[run] = new int[readVarint(section)];
+            }
+
+            if (encoding == SERIES_PACKED) {
+                int bits = section.get();
+                long mask = (1L << bits) - 1;
+                long accumulator = 0;
+                int accumulatedBits = 0;
+                for (int[] values : runs) {
+                    for (int i = 0; i < values.length && bits > 0; i++) {
+                        while (accumulatedBits < bits) {
+                            accumulator |= (long) (section.get() & 0xFF) << accumulatedBits;
+                            accumulatedBits += 8;
+                        }
+                        values[i] = (int) (accumulator & mask);
+                        accumulator >>>= bits;
+                        accumulatedBits -= bits;
+                    }
+                }
+            } else if (encoding == SERIES_DELTA_VARINT) {
+                for (int[] values : runs) {
+                    int previous = 0;
+                    for (int i = 0; i < values.length; i++) {
+                        previous += readZigZag(section);
+                        values[i] = previous;
+                    }
+                }
+            } else {
+                throw new IOException("Unknown series encoding " + encoding + " in section " + sectionId);
+            }
+            return runs;
+        }
+
+        public SimulationHistoryRecord.SimulationConfigSnapshot readConfig() throws IOException {
+            ByteBuffer configRef = section(SECTION_CONFIG_REF);
+            if (configRef != null) {
+                String contentHash = readString(configRef);
+                if (configStore == null) {
+                    throw new IOException("History record references stored configuration " + contentHash);
+                }
+                return configStore.get(contentHash);
+            }
+
+            ByteBuffer config = section(SECTION_CONFIG);
+            if (config == null) {
+                return new SimulationHistoryRecord.SimulationConfigSnapshot(0, 0, 0, 0, 0, Map.of(), Map.of(), Map.of());
+            }
+            return new SimulationHistoryRecord.SimulationConfigSnapshot(
+                    readZigZag(config),
+                    readZigZag(config),
+                    readZigZag(config),
+                    readZigZag(config),
+                    readZigZag(config),
+                    readDistribution(config),
+                    readDistribution(config),
+                    readDistribution(config)
+            );
+        }
+
+        public List<SimulationData.Statistic> readStatistics() throws IOException {
+            ByteBuffer statistics = section(SECTION_STATISTICS);
+            List<SimulationData.Statistic> result = new ArrayList<>();
+            if (statistics == null) {
+                return result;
+            }
+            int count = readVarint(statistics);
+            ByteBuffer intervals = section(SECTION_STATISTIC_INTERVALS);
+            for (int i = 0; i < count; i++) {
+                String label = readString(statistics);
+                String value = readString(statistics);
+                if (intervals != null && intervals.get() != 0) {
+                    result.add(new SimulationData.Statistic(label, value, readInterval(intervals), readInterval(intervals)));
+                } else {
+                    result.add(new SimulationData.Statistic(label, value));
+                }
+            }
+            return result;
+        }
+
+        private static SimulationData.Interval readInterval(ByteBuffer section) {
+            return new SimulationData.Interval(Double.longBitsToDouble(section.getLong()),
+                    Double.longBitsToDouble(section.getLong()));
+        }
+
+        public List<SimulationHistoryRecord.EventRow> readEvents() throws IOException {
+            ByteBuffer events = section(SECTION_EVENTS);
+            List<SimulationHistoryRecord.EventRow> result = new ArrayList<>();
+            if (events == null) {
+                return result;
+            }
+
+            int count = readVarint(events);
+            int[][] columns = new int[10][count];
+            for (int[] column : columns) {
+                for (int i = 0; i < count; i++) {
+                    column[i] = readZigZag(events);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                result.add(new SimulationHistoryRecord.EventRow(
+                        columns[0][i],
+                        columns[1][i],
+                        columns[2][i],
+                        columns[3][i],
+                        columns[4][i] != 0,
+                        columns[5][i],
+                        columns[6][i],
+                        columns[7][i],
+                        columns[8][i] == 0 ? null : columns[8][i] - 1,
+                        columns[9][i] == 0 ? null : columns[9][i] - 1
+                ));
+            }
+            return result;
+        }
+
+        public List<SimulationHistoryRecord.SimulationRunSnapshot> readRuns() throws IOException {
+            int[][] totals = readRunTotals();
+            int[][] firstFloorEnd = readSeries(SECTION_FIRST_FLOOR_END);
+            int[][] basementEnd = readSeries(SECTION_BASEMENT_END);
+            int[][] dailyDemand = readSeries(SECTION_DAILY_DEMAND);
+            int[][] leadTimes = readSeries(SECTION_LEAD_TIMES);
+            int[][] orderDays = readSeries(SECTION_ORDER_DAYS);
+            int[][] deliveryDays = readSeries(SECTION_DELIVERY_DAYS);
+            int[][] shortageDays = readSeries(SECTION_SHORTAGE_DAYS);
+            int[][] transferDays = readSeries(SECTION_TRANSFER_DAYS);
+            long[] seeds = readRunSeeds();
+
+            List<SimulationHistoryRecord.SimulationRunSnapshot> runs = new ArrayList<>(totals[0].length);
+            for (int run = 0; run < totals[0].length; run++) {
+                runs.add(new SimulationHistoryRecord.SimulationRunSnapshot(
+                        totals[0][run],
+                        boxed(firstFloorEnd, run),
+                        boxed(basementEnd, run),
+                        totals[1][run],
+                        totals[2][run],
+                        totals[3][run],
+                        boxed(dailyDemand, run),
+                        totals[4][run],
+                        totals[5][run],
+                        totals[6][run],
+                        boxed(leadTimes, run),
+                        totals[7][run],
+                        boxed(orderDays, run),
+                        boxed(deliveryDays, run),
+                        boxed(shortageDays, run),
+                        boxed(transferDays, run),
+                        seeds == null || run >= seeds.length ? null : seeds[run]
+                ));
+            }
+            return runs;
+        }
+
+        private static List<Integer> boxed(int[][] column, int run) {
+            return run < column.length ? Arrays.stream(column[run]).boxed().toList() : List.of();
+        }
+
+        private static Map<Integer, Double> readDistribution(ByteBuffer in) {
+            int size = readVarint(in);
+            Map<Integer, Double> distribution = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                distribution.put(readZigZag(in), in.getDouble());
+            }
+            return distribution;
+        }
+
+        private record SectionInfo(int offset, byte flags, int rawLength, int storedLength) {
+        }
+    }
+
+    private static byte[] encodeHeader(SimulationHistoryRecord record) {
+        Output out = new Output(128);
+        out.writeString(record.getId());
+        out.writeString(record.getTimestamp().toString());
+        out.writeVarint(record.getSimulationParams().simulationDays());
+        out.writeVarint(record.getSimulationParams().simulationRuns());
+        out.writeVarint(record.getSimulationParams().engineVersion());
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeConfig(SimulationHistoryRecord.SimulationConfigSnapshot config) {
+        Output out = new Output(256);
+        out.writeZigZag(config.getReviewTime());
+        out.writeZigZag(config.getFirstFloorMaxCapacity());
+        out.writeZigZag(config.getBasementFloorMaxCapacity());
+        out.writeZigZag(config.getFirstFloorStartUnits());
+        out.writeZigZag(config.getBasementFloorStartUnits());
+        writeDistribution(out, config.getOccupiedRoomsProbabilities());
+        writeDistribution(out, config.getOrderLeadTimeProbabilities());
+        writeDistribution(out, config.getRoomConsumptionProbabilities());
+        return out.toByteArray();
+    }
+
+    private static void writeDistribution(Output out, Map<Integer, Double> distribution) {
+        out.writeVarint(distribution.size());
+        for (Map.Entry<Integer, Double> entry : distribution.entrySet()) {
+            out.writeZigZag(entry.getKey());
+            out.writeLong(Double.doubleToLongBits(entry.getValue()));
+        }
+    }
+
+    private static byte[] encodeStatistics(List<SimulationData.Statistic> statistics) {
+        Output out = new Output(512);
+        out.writeVarint(statistics.size());
+        for (SimulationData.Statistic statistic : statistics) {
+            out.writeString(statistic.label());
+            out.writeString(statistic.value());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One flag byte per statistic, followed by its percentile and BCa bounds when it has intervals.
+     */
+    private static byte[] encodeStatisticIntervals(List<SimulationData.Statistic> statistics) {
+        Output out = new Output(statistics.size() * 33);
+        for (SimulationData.Statistic statistic : statistics) {
+            boolean present = statistic.percentile() != null && statistic.bca() != null;
+            out.writeByte(present ? 1 : 0);
+            if (present) {
+                out.writeLong(Double.doubleToLongBits(statistic.percentile().lower()));
+                out.writeLong(Double.doubleToLongBits(statistic.percentile().upper()));
+                out.writeLong(Double.doubleToLongBits(statistic.bca().lower()));
+                out.writeLong(Double.doubleToLongBits(statistic.bca().upper()));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeEvents(List<SimulationHistoryRecord.EventRow> events) {
+        List<Function<SimulationHistoryRecord.EventRow, Integer>> columns = List.of(
+                SimulationHistoryRecord.EventRow::getDay,
+                SimulationHistoryRecord.EventRow::getDemand,
+                SimulationHistoryRecord.EventRow::getFirstFloorStart,
+                SimulationHistoryRecord.EventRow::getBasementFloorStart,
+                event -> event.isDidTransfer() ? 1 : 0,
+                SimulationHistoryRecord.EventRow::getFirstFloorEnd,
+                SimulationHistoryRecord.EventRow::getBasementFloorEnd,
+                SimulationHistoryRecord.EventRow::getDaysTillReview,
+                event -> event.getOrderSize() == null ? 0 : event.getOrderSize() + 1,
+                event -> event.getLeadTime() == null ? 0 : event.getLeadTime() + 1
+        );
+
+        Output out = new Output(events.size() * columns.size() + 8);
+        out.writeVarint(events.size());
+        for (Function<SimulationHistoryRecord.EventRow, Integer> column : columns) {
+            for (SimulationHistoryRecord.EventRow event : events) {
+                out.writeZigZag(column.apply(event));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeRunTotals(List<SimulationHistoryRecord.SimulationRunSnapshot> runs) {
+        List<Function<SimulationHistoryRecord.SimulationRunSnapshot, Integer>> columns = List.of(
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalDays,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalShortageDays,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalShortageAmount,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalDemand,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalOrders,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalLeadTime,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalOrderSize,
+                SimulationHistoryRecord.SimulationRunSnapshot::getTotalTransfers
+        );
+
+        Output out = new Output(runs.size() * columns.size() * 2 + 8);
+        out.writeVarint(runs.size());
+        out.writeVarint(columns.size());
+        for (Function<SimulationHistoryRecord.SimulationRunSnapshot, Integer> column : columns) {
+            for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+                out.writeZigZag(column.apply(run));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeRunSeeds(List<SimulationHistoryRecord.SimulationRunSnapshot> runs) {
+        Output out = new Output(runs.size() * 8 + 8);
+        out.writeVarint(runs.size());
+        for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+            out.writeLong(run.getSeed());
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeSeries(List<SimulationHistoryRecord.SimulationRunSnapshot> runs,
+                                       Function<SimulationHistoryRecord.SimulationRunSnapshot, List<Integer>> column) {
+        long totalValues = 0;
+        int min = 0;
+        int max = 0;
+        for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+            List<Integer> values = column.apply(run);
+            totalValues += values.size();
+            for (int value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        // Inventory levels and demand are bounded by capacities, so a fixed width usually wins; sorted day
+        // lists have small gaps and compress better as deltas
+        Output deltas = new Output((int) Math.min(Integer.MAX_VALUE - 8, totalValues + 16));
+        for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+            int previous = 0;
+            for (int value : column.apply(run)) {
+                deltas.writeZigZag(value - previous);
+                previous = value;
+            }
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(max);
+        long packedBytes = (totalValues * bits + 7) / 8 + 1;
+        boolean packed = min >= 0 && packedBytes < deltas.size();
+
+        Output out = new Output((int) Math.min(Integer.MAX_VALUE - 8, Math.min(packedBytes, deltas.size()) + runs.size() * 2L + 8));
+        out.writeByte(packed ? SERIES_PACKED : SERIES_DELTA_VARINT);
+        out.writeVarint(runs.size());
+        for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+            out.writeVarint(column.apply(run).size());
+        }
+
+        if (!packed) {
+            out.write(deltas.toByteArray());
+            return out.toByteArray();
+        }
+
+        out.writeByte(bits);
+        long accumulator = 0;
+        int accumulatedBits = 0;
+        for (SimulationHistoryRecord.SimulationRunSnapshot run : runs) {
+            for (int value : column.apply(run)) {
+                if (bits == 0) break;
+                accumulator |= (long) value << accumulatedBits;
+                accumulatedBits += bits;
+                while (accumulatedBits >= 8) {
+                    out.writeByte((int) accumulator);
+                    accumulator >>>= 8;
+                    accumulatedBits -= 8;
+                }
+            }
+        }
+        if (accumulatedBits > 0) {
+            out.writeByte((int) accumulator);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static int readZigZag(ByteBuffer in) {
+        int value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Growable little byte buffer with the varint helpers the sections are written with.
+     */
+    private static class Output {
+        private byte[] bytes;
+        private int size;
+
+        private Output(int initialCapacity) {
+            bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeShort(int value) {
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        private void writeInt(int value) {
+            writeShort(value >>> 16);
+            writeShort(value);
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeZigZag(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(encoded.length);
+            write(encoded);
+        }
+
+        private void write(byte[] data) {
+            ensureCapacity(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
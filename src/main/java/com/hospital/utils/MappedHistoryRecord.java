@@ -0,0 +1,159 @@
+package com.hospital.utils;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.RunSeriesSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A stored history record opened for viewing. The configuration, statistics and events are decoded up front;
+ * run columns are decoded from the underlying (usually memory-mapped) entry on first use and then kept.
+ */
+public class MappedHistoryRecord implements RunSeriesSource {
+    private final HistoryRecordCodec.Reader reader;
+    private final SimulationHistoryRecord record;
+    private final Map<Short, CompletableFuture<int[][]>> series = new ConcurrentHashMap<>();
+    private int[][] runTotals;
+    private long[] runSeeds;
+    private boolean runSeedsRead;
+
+    public MappedHistoryRecord(HistoryRecordCodec.Reader reader) throws IOException {
+        this.reader = reader;
+        this.record = reader.readRecord(false);
+    }
+
+    /**
+     * The record's metadata, configuration, statistics and events. Its run list is empty; read runs through
+     * this object instead.
+     */
+    public SimulationHistoryRecord getRecord() {
+        return record;
+    }
+
+    @Override
+    public synchronized int getRunCount() {
+        return getRunTotals()[TOTAL_DAYS].length;
+    }
+
+    @Override
+    public int getTotalDays() {
+        return record.getSimulationParams().simulationDays();
+    }
+
+    @Override
+    public synchronized int[][] getRunTotals() {
+        if (runTotals == null) {
+            try {
+                runTotals = reader.readRunTotals();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read run totals of " + record.getId(), e);
+            }
+        }
+        return runTotals;
+    }
+
+    @Override
+    public int[][] getFirstFloorEndUnits() {
+        return series(HistoryRecordCodec.SECTION_FIRST_FLOOR_END);
+    }
+
+    @Override
+    public int[][] getBasementFloorEndUnits() {
+        return series(HistoryRecordCodec.SECTION_BASEMENT_END);
+    }
+
+    @Override
+    public int[][] getDailyDemandValues() {
+        return series(HistoryRecordCodec.SECTION_DAILY_DEMAND);
+    }
+
+    @Override
+    public int[][] getLeadTimes() {
+        return series(HistoryRecordCodec.SECTION_LEAD_TIMES);
+    }
+
+    @Override
+    public int[][] getOrderPlacementDays() {
+        return series(HistoryRecordCodec.SECTION_ORDER_DAYS);
+    }
+
+    @Override
+    public int[][] getDeliveryDays() {
+        return series(HistoryRecordCodec.SECTION_DELIVERY_DAYS);
+    }
+
+    @Override
+    public int[][] getShortageDays() {
+        return series(HistoryRecordCodec.SECTION_SHORTAGE_DAYS);
+    }
+
+    @Override
+    public int[][] getTransferDays() {
+        return series(HistoryRecordCodec.SECTION_TRANSFER_DAYS);
+    }
+
+    @Override
+    public synchronized long[] getRunSeeds() {
+        if (!runSeedsRead) {
+            try {
+                runSeeds = reader.readRunSeeds();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read run seeds of " + record.getId(), e);
+            }
+            runSeedsRead = true;
+        }
+        return runSeeds;
+    }
+
+    /**
+     * Estimated heap taken by what has been decoded so far: four bytes per run and day for every decoded
+     * column, plus the run totals. Columns still being decoded are not counted.
+     */
+    public long getDecodedBytes() {
+        long bytes = 0;
+        for (CompletableFuture<int[][]> column : series.values()) {
+            int[][] values = column.isCompletedExceptionally() ? null : column.getNow(null);
+            if (values != null) {
+                bytes += (long) values.length * getTotalDays() * Integer.BYTES;
+            }
+        }
+        synchronized (this) {
+            if (runTotals != null) {
+                bytes += (long) runTotals.length * runTotals[TOTAL_DAYS].length * Integer.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes each column once; concurrent callers of the same column wait for the first, other columns
+     * decode in parallel.
+     */
+    private int[][] series(short sectionId) {
+        CompletableFuture<int[][]> pending = new CompletableFuture<>();
+        CompletableFuture<int[][]> existing = series.putIfAbsent(sectionId, pending);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        int[][] values;
+        try {
+            values = reader.readSeries(sectionId);
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Failed to read run series of " + record.getId(), e);
+            series.remove(sectionId);
+            pending.completeExceptionally(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            series.remove(sectionId);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        pending.complete(values);
+        return values;
+    }
+}
@@ -0,0 +1,407 @@
+package com.hospital.utils;
+
+import com.hospital.models.HistoryQuery;
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.models.SimulationHistorySummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The one history store the application's pages share. Keeps the summary list and as many recently opened
+ * records as fit a memory budget, bumps a version and notifies listeners whenever history changes, and watches
+ * the history directory so writes from other processes are picked up too.
+ * <p>
+ * Saves and deletes return immediately: they are queued for a background writer, which commits everything
+ * queued since its last pass as one group, and show up in {@link #getSummaries()} and {@link #openRecord} while
+ * they wait. Write failures are reported through {@link HistoryChangeListener#onHistoryWriteFailed}.
+ */
+public class SimulationHistoryService {
+    // Decoded columns of a long study run to gigabytes, so the cache is bounded by their size rather than a count
+    private static final long MAX_CACHED_BYTES = Runtime.getRuntime().maxMemory() / 4;
+    private static final long SHUTDOWN_FLUSH_SECONDS = 10;
+
+    private static SimulationHistoryService instance;
+
+    private final SimulationHistoryStorage storage;
+    private final SimulationResultCache resultCache;
+    private final List<HistoryChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Access ordered, so the least recently opened record is evicted first
+    private final Map<String, MappedHistoryRecord> openRecords = new LinkedHashMap<>(16, 0.75f, true);
+    private final BlockingQueue<Operation> writeQueue = new LinkedBlockingQueue<>();
+    // Queued but not yet committed; a delete replaces a pending save of the same id and vice versa
+    private final Map<String, SimulationHistoryRecord> pendingSaves = new LinkedHashMap<>();
+    private final Set<String> pendingDeletes = new LinkedHashSet<>();
+    private List<SimulationHistorySummary> summaries;
+    private long version;
+    private long seenExternalChanges;
+    // Writer thread only: the last failure not yet passed on to a flush request
+    private RuntimeException unflushedFailure;
+
+    public SimulationHistoryService(SimulationHistoryStorage storage) {
+        this.storage = storage;
+        this.resultCache = new SimulationResultCache(storage.getHistoryDir());
+        startWatcher();
+        startWriter();
+    }
+
+    public static synchronized SimulationHistoryService getInstance() {
+        if (instance == null) {
+            instance = new SimulationHistoryService(new SimulationHistoryStorage());
+        }
+        return instance;
+    }
+
+    /**
+     * Runs computed by earlier studies, kept next to the history so repeated studies reuse them.
+     */
+    public SimulationResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Incremented on every change; callers compare it with the version they last rendered to skip reloads.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized List<SimulationHistorySummary> getSummaries() {
+        if (summaries == null) {
+            if (pendingSaves.isEmpty() && pendingDeletes.isEmpty()) {
+                summaries = List.copyOf(storage.loadSummaries());
+            } else {
+                summaries = List.copyOf(withPending(storage.loadSummaries()));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * The simulations matching {@code query}, newest first. Stored ones are looked up through the storage's
+     * field indexes; queued saves are checked directly.
+     */
+    public synchronized List<SimulationHistorySummary> query(HistoryQuery query) {
+        if (query.isEmpty()) {
+            return getSummaries();
+        }
+        List<SimulationHistorySummary> stored = storage.query(query);
+        if (pendingSaves.isEmpty() && pendingDeletes.isEmpty()) {
+            return stored;
+        }
+        List<SimulationHistorySummary> merged = new ArrayList<>();
+        for (SimulationHistorySummary summary : withPending(stored)) {
+            if (query.matches(summary)) {
+                merged.add(summary);
+            }
+        }
+        return merged;
+    }
+
+    public synchronized List<String> getQueryFields() {
+        Set<String> statistics = new TreeSet<>(storage.getQueryFields());
+        for (SimulationHistoryRecord record : pendingSaves.values()) {
+            statistics.addAll(SimulationHistorySummary.fromRecord(record, -1, -1, 0).getIndexedValues().keySet());
+        }
+        statistics.removeAll(SimulationHistorySummary.CONFIG_FIELDS);
+
+        List<String> fields = new ArrayList<>(SimulationHistorySummary.CONFIG_FIELDS);
+        fields.addAll(statistics);
+        return fields;
+    }
+
+    private List<SimulationHistorySummary> withPending(List<SimulationHistorySummary> stored) {
+        List<SimulationHistorySummary> merged = new ArrayList<>(stored.size() + pendingSaves.size());
+        for (SimulationHistorySummary summary : stored) {
+            if (!pendingDeletes.contains(summary.getId()) && !pendingSaves.containsKey(summary.getId())) {
+                merged.add(summary);
+            }
+        }
+        for (SimulationHistoryRecord record : pendingSaves.values()) {
+            merged.add(SimulationHistorySummary.fromRecord(record, -1, -1, 0));
+        }
+        merged.sort(Comparator.comparing(SimulationHistorySummary::getTimestamp).reversed());
+        return merged;
+    }
+
+    public synchronized MappedHistoryRecord openRecord(String id) {
+        MappedHistoryRecord record = openRecords.get(id);
+        if (record == null) {
+            if (pendingDeletes.contains(id)) {
+                return null;
+            }
+            SimulationHistoryRecord pending = pendingSaves.get(id);
+            record = pending != null ? openPending(pending) : storage.openRecord(id);
+            if (record != null) {
+                openRecords.put(id, record);
+            }
+        }
+        evictOpenRecords();
+        return record;
+    }
+
+    /**
+     * Drops the least recently opened records until the decoded columns of the rest fit in
+     * {@link #MAX_CACHED_BYTES}. The most recent one is always kept. Records grow as their columns are decoded,
+     * so the sizes are re-measured on every open.
+     */
+    private void evictOpenRecords() {
+        long bytes = 0;
+        for (MappedHistoryRecord record : openRecords.values()) {
+            bytes += record.getDecodedBytes();
+        }
+        Iterator<MappedHistoryRecord> eldest = openRecords.values().iterator();
+        while (bytes > MAX_CACHED_BYTES && openRecords.size() > 1) {
+            bytes -= eldest.next().getDecodedBytes();
+            eldest.remove();
+        }
+    }
+
+    private static MappedHistoryRecord openPending(SimulationHistoryRecord record) {
+        try {
+            return new MappedHistoryRecord(new HistoryRecordCodec.Reader(
+                    ByteBuffer.wrap(HistoryRecordCodec.encode(record))));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open pending history record", e);
+        }
+    }
+
+    /**
+     * Queues the record for writing and returns without waiting for the disk. The timestamp is set here so
+     * the list order reflects when the save was requested.
+     */
+    public void saveSimulation(SimulationHistoryRecord record) {
+        record.setTimestamp(LocalDateTime.now());
+        synchronized (this) {
+            pendingDeletes.remove(record.getId());
+            pendingSaves.put(record.getId(), record);
+            openRecords.remove(record.getId());
+            invalidate();
+            writeQueue.add(new Operation(record, null, null));
+        }
+        fireHistoryChanged();
+    }
+
+    public void deleteSimulation(String id) {
+        synchronized (this) {
+            pendingSaves.remove(id);
+            pendingDeletes.add(id);
+            openRecords.remove(id);
+            invalidate();
+            writeQueue.add(new Operation(null, id, null));
+        }
+        fireHistoryChanged();
+    }
+
+    /**
+     * Completes once everything queued before this call has been written, or exceptionally if any write since
+     * the previous flush failed.
+     */
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        writeQueue.add(new Operation(null, null, flushed));
+        return flushed;
+    }
+
+    /**
+     * Blocks until queued writes are on disk or the timeout passes. Returns false on timeout.
+     */
+    public boolean awaitFlush(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            flush().get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // Already reported to listeners by the writer
+            return true;
+        }
+    }
+
+    public void addChangeListener(HistoryChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(HistoryChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private record Operation(SimulationHistoryRecord save, String delete, CompletableFuture<Void> flushed) {
+    }
+
+    private void startWriter() {
+        Thread writer = new Thread(() -> {
+            List<Operation> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    batch.add(writeQueue.take());
+                    writeQueue.drainTo(batch);
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // Shutting down
+            }
+        }, "history-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (!awaitFlush(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Timed out writing queued history records on exit");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "history-flush"));
+    }
+
+    /**
+     * Commits a drained run of operations, keeping only the last operation per id, then completes the flush
+     * requests among them.
+     */
+    private void writeBatch(List<Operation> batch) {
+        Map<String, SimulationHistoryRecord> saves = new LinkedHashMap<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        List<CompletableFuture<Void>> flushes = new ArrayList<>();
+        for (Operation operation : batch) {
+            if (operation.save() != null) {
+                deletes.remove(operation.save().getId());
+                saves.put(operation.save().getId(), operation.save());
+            } else if (operation.delete() != null) {
+                saves.remove(operation.delete());
+                deletes.add(operation.delete());
+            } else {
+                flushes.add(operation.flushed());
+            }
+        }
+
+        RuntimeException failure = null;
+        if (!saves.isEmpty() || !deletes.isEmpty()) {
+            try {
+                storage.commitBatch(new ArrayList<>(saves.values()), deletes);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                // Only clear what this batch wrote; anything queued since is still pending
+                saves.forEach((id, record) -> pendingSaves.remove(id, record));
+                pendingDeletes.removeAll(deletes);
+                if (failure != null) {
+                    openRecords.keySet().removeAll(saves.keySet());
+                    invalidate();
+                }
+            }
+        }
+
+        if (failure != null) {
+            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+            System.err.println("Failed to write history: " + cause);
+            unflushedFailure = failure;
+            fireHistoryChanged();
+            fireWriteFailed(failure);
+        }
+        if (flushes.isEmpty()) {
+            return;
+        }
+        for (CompletableFuture<Void> flushed : flushes) {
+            if (unflushedFailure != null) {
+                flushed.completeExceptionally(unflushedFailure);
+            } else {
+                flushed.complete(null);
+            }
+        }
+        unflushedFailure = null;
+    }
+
+    private void invalidate() {
+        summaries = null;
+        version++;
+    }
+
+    private void fireHistoryChanged() {
+        for (HistoryChangeListener listener : listeners) {
+            listener.onHistoryChanged();
+        }
+    }
+
+    private void fireWriteFailed(Exception error) {
+        for (HistoryChangeListener listener : listeners) {
+            listener.onHistoryWriteFailed(error);
+        }
+    }
+
+    private void onDirectoryChanged() {
+        synchronized (this) {
+            storage.refresh();
+            // Our own writes also show up as directory events, but only changes made by other processes
+            // count, including those the writer already absorbed while catching up before a write
+            long changes = storage.getExternalChangeCount();
+            if (changes == seenExternalChanges) {
+                return;
+            }
+            seenExternalChanges = changes;
+            openRecords.clear();
+            invalidate();
+        }
+        fireHistoryChanged();
+    }
+
+    private void startWatcher() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            storage.getHistoryDir().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("History directory will not be watched for external changes: " + e.getMessage());
+            return;
+        }
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    key.pollEvents();
+                    try {
+                        onDirectoryChanged();
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed to reload history after an external change: " + e.getMessage());
+                    }
+                    if (!key.reset()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Shutting down
+            }
+        }, "history-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+}
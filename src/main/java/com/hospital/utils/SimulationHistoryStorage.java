@@ -1,81 +1,1208 @@
 package com.hospital.utils;
 
+import com.hospital.models.HistoryQuery;
 import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.models.SimulationHistorySummary;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
+/**
+ * Append-only history log split into numbered segment files. Every save appends one framed entry and
+ * every delete appends a tombstone; a background compactor later rewrites the segments without the
+ * dead entries and swaps the result in with an atomic rename.
+ * <p>
+ * Entry frame: {@code [int bodyLength][body][int crc32(body)]} where the body is
+ * {@code [byte type][UTF id][payload]}. A torn frame at the end of the newest segment is truncated on open.
+ * <p>
+ * {@code history.idx} is a second log of the same frames holding one {@link SimulationHistorySummary} per
+ * save and one removal per delete, so the history list never has to read the segments. Anything the index
+ * does not cover yet (a crash between the two appends, or history written before the index existed) is
+ * rebuilt from the segment tails on open.
+ * <p>
+ * Several processes may share one directory. Every write, compaction and repair runs under an exclusive lock
+ * on {@code history.lock} and starts by catching up with whatever other writers appended, so offsets never
+ * collide. Readers take no lock: the index is the commit point, so a reader only sees entries whose index
+ * frame is complete and never truncates a frame another process may still be writing.
+ * <p>
+ * Within this process, readers never wait for writers either. The mutable state below is guarded by this
+ * object's monitor, which writers hold only while appending; every change ends by publishing an immutable
+ * {@link View} that the read methods use without locking. Waiting for the directory lock and syncing files both
+ * happen with the monitor released.
+ */
 public class SimulationHistoryStorage {
     private static final String HISTORY_DIR = "simulation_history";
-    private static final String HISTORY_FILE = "history.dat";
+    private static final String LEGACY_HISTORY_FILE = "history.dat";
+    private static final String INDEX_FILE = "history.idx";
+    private static final String LOCK_FILE = "history.lock";
+    private static final String CONFIG_FILE = "configs.log";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
 
-    private final Path historyFilePath;
+    private static final long SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+
+    private static final byte ENTRY_RECORD = 1;
+    private static final byte ENTRY_TOMBSTONE = 2;
+
+    private static final int INDEX_MAGIC = 0x48494458;
+    private static final int INDEX_VERSION = 2;
+    private static final int INDEX_HEADER_BYTES = 12;
+    private static final byte INDEX_SUMMARY = 1;
+    private static final byte INDEX_REMOVE = 2;
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // File locks are held per JVM, so storages in the same process sharing a directory queue up here first
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path historyDir;
+    private final Path indexPath;
+    private final Path lockPath;
+    private final HistoryConfigStore configStore;
+    private volatile View view;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final HistoryIndex summaries = new HistoryIndex();
+    private final Set<Path> pendingSync = new LinkedHashSet<>();
+    private int baseSegmentId;
+    private long indexLength;
+    private long externalChanges;
+    private boolean deferSync;
+    private boolean compactionScheduled;
 
     public SimulationHistoryStorage() {
+        this(Paths.get(HISTORY_DIR));
+    }
+
+    public SimulationHistoryStorage(Path historyDir) {
+        this.historyDir = historyDir;
+        this.indexPath = historyDir.resolve(INDEX_FILE);
+        this.lockPath = historyDir.resolve(LOCK_FILE);
+        this.configStore = new HistoryConfigStore(historyDir.resolve(CONFIG_FILE));
         try {
-            Path historyDir = Paths.get(HISTORY_DIR);
             if (!Files.exists(historyDir)) {
                 Files.createDirectories(historyDir);
             }
-            historyFilePath = historyDir.resolve(HISTORY_FILE);
-            if (!Files.exists(historyFilePath)) {
-                saveHistory(new ArrayList<>());
-            }
+            withWriterLock(() -> {
+                deleteTemporaryFiles();
+                configStore.load();
+                synchronized (this) {
+                    open();
+                    migrateLegacyHistory();
+                    publish();
+                }
+                return null;
+            });
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize history storage", e);
         }
     }
 
     public void saveSimulation(SimulationHistoryRecord record) {
-        List<SimulationHistoryRecord> history = loadHistory();
         record.setTimestamp(LocalDateTime.now());
-        history.add(record);
-        history.sort(Comparator.comparing(SimulationHistoryRecord::getTimestamp).reversed());
-        saveHistory(history);
+        byte[] payload = serialize(record);
+        try {
+            write(() -> {
+                appendRecord(record, payload);
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save history", e);
+        }
     }
 
-    public List<SimulationHistoryRecord> loadHistory() {
+    /**
+     * Writes a group of saves and deletes, syncing each file touched once at the end. Unlike
+     * {@link #saveSimulation} the records' timestamps are kept as given. If any write fails, the in-memory
+     * state is reloaded from disk before the failure is rethrown.
+     */
+    public void commitBatch(List<SimulationHistoryRecord> saves, Collection<String> deletes) {
+        List<byte[]> payloads = new ArrayList<>(saves.size());
+        for (SimulationHistoryRecord record : saves) {
+            payloads.add(serialize(record));
+        }
+
         try {
-            if (!Files.exists(historyFilePath) || Files.size(historyFilePath) == 0) {
-                return new ArrayList<>();
+            write(() -> {
+                for (int i = 0; i < saves.size(); i++) {
+                    appendRecord(saves.get(i), payloads.get(i));
+                }
+                for (String id : deletes) {
+                    appendTombstone(id);
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write history", e);
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Runs a change to the history. Records are encoded and configurations persisted before the monitor is
+     * taken; {@code action} then runs under it, after catching up with other writers, with every sync deferred
+     * until the monitor is released. The new state is published to readers once it is on disk. If anything
+     * fails, the in-memory state is reloaded from disk before the failure is rethrown.
+     */
+    private <T> T write(LockedAction<T> action) throws IOException {
+        return withWriterLock(() -> {
+            configStore.persist();
+            List<Path> unsynced;
+            T actionResult;
+            synchronized (this) {
+                deferSync = true;
+                try {
+                    catchUp();
+                    actionResult = action.run();
+                } catch (IOException e) {
+                    reloadAfterFailure(e);
+                    throw e;
+                } finally {
+                    deferSync = false;
+                    unsynced = new ArrayList<>(pendingSync);
+                    pendingSync.clear();
+                }
             }
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new BufferedInputStream(Files.newInputStream(historyFilePath)))) {
-                Object obj = ois.readObject();
-                if (obj instanceof List<?>) {
-                    List<SimulationHistoryRecord> records = (List<SimulationHistoryRecord>) obj;
-                    return records;
+
+            try {
+                for (Path path : unsynced) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.force(false);
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    reloadAfterFailure(e);
                 }
-                return new ArrayList<>();
+                throw e;
             }
-        } catch (IOException | ClassNotFoundException e) {
-            return new ArrayList<>();
+            synchronized (this) {
+                publish();
+            }
+            return actionResult;
+        });
+    }
+
+    private void reloadAfterFailure(IOException failure) {
+        try {
+            reload();
+        } catch (IOException reloadError) {
+            failure.addSuppressed(reloadError);
         }
+        publish();
     }
 
-    private void saveHistory(List<SimulationHistoryRecord> history) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new BufferedOutputStream(Files.newOutputStream(historyFilePath)))) {
-            oos.writeObject(history);
+    /**
+     * Replaces the readers' view with the current state. Called under the monitor after every change.
+     */
+    private void publish() {
+        List<SimulationHistorySummary> newestFirst = new ArrayList<>(summaries.values());
+        newestFirst.sort(Comparator.comparing(SimulationHistorySummary::getTimestamp).reversed());
+        Map<Integer, Path> segmentPaths = new HashMap<>();
+        long storageSize = 0;
+        for (Segment segment : segments.values()) {
+            segmentPaths.put(segment.id, segment.path);
+            storageSize += segment.size;
+        }
+        view = new View(summaries.copy(), List.copyOf(newestFirst), Map.copyOf(segmentPaths), storageSize);
+    }
+
+    private void appendRecord(SimulationHistoryRecord record, byte[] payload) throws IOException {
+        // The configuration a record references must be durable before the record is
+        configStore.persist();
+        EntryLocation location = append(ENTRY_RECORD, record.getId(), payload);
+        SimulationHistorySummary summary = SimulationHistorySummary.fromRecord(
+                record, location.segmentId(), location.offset(), location.length());
+        appendIndex(INDEX_SUMMARY, record.getId(), encodeSummary(summary));
+
+        SimulationHistorySummary previous = summaries.put(record.getId(), summary);
+        if (previous != null) {
+            markDead(previous.getSegmentId(), previous.getLength());
+        }
+    }
+
+    /**
+     * Lists every stored simulation, newest first, without reading any record payloads.
+     */
+    public List<SimulationHistorySummary> loadSummaries() {
+        return new ArrayList<>(view.newestFirst());
+    }
+
+    /**
+     * Lists the stored simulations matching {@code query}, newest first, using the field indexes.
+     */
+    public List<SimulationHistorySummary> query(HistoryQuery query) {
+        return view.summaries().query(query);
+    }
+
+    /**
+     * The fields that can be queried: the configuration fields and every statistic label stored so far.
+     */
+    public Set<String> getQueryFields() {
+        return view.summaries().fieldNames();
+    }
+
+    public SimulationHistoryRecord loadRecord(String id) {
+        return readLiveEntry(id, (summary, segmentPath) -> deserialize(readEntry(segmentPath,
+                new EntryLocation(summary.getSegmentId(), summary.getOffset(), summary.getLength())).payload()));
+    }
+
+    /**
+     * Opens a record for viewing without decoding its runs. The entry is memory-mapped read-only and the run
+     * columns are decoded straight from the mapping as they are used. Entries still in the old Java-serialized
+     * format are re-encoded in memory first.
+     */
+    public MappedHistoryRecord openRecord(String id) {
+        return readLiveEntry(id, this::mapEntry);
+    }
+
+    private MappedHistoryRecord mapEntry(SimulationHistorySummary summary, Path segmentPath)
+            throws IOException, ClassNotFoundException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            MappedByteBuffer frame = channel.map(FileChannel.MapMode.READ_ONLY, summary.getOffset(), summary.getLength());
+            int bodyLength = frame.getInt(0);
+            int idLength = frame.getShort(5) & 0xFFFF;
+            int payloadOffset = 4 + 1 + 2 + idLength;
+            if (bodyLength + 8 != summary.getLength() || payloadOffset > 4 + bodyLength) {
+                throw new IOException("Corrupt history entry in " + segmentPath + " at " + summary.getOffset());
+            }
+
+            ByteBuffer payload = frame.slice(payloadOffset, 4 + bodyLength - payloadOffset);
+            if (!HistoryRecordCodec.isEncoded(payload)) {
+                byte[] legacy = new byte[payload.remaining()];
+                payload.get(legacy);
+                payload = ByteBuffer.wrap(HistoryRecordCodec.encode(deserialize(legacy)));
+            }
+            return new MappedHistoryRecord(new HistoryRecordCodec.Reader(payload, configStore));
+        }
+    }
+
+    /**
+     * Reads a live entry by id, or returns {@code null} if there is none. If the entry's segment has been
+     * compacted away, by another process or by this one since the view was taken, refreshes once and reads it
+     * from its new location.
+     */
+    private <T> T readLiveEntry(String id, EntryReader<T> reader) {
+        for (int attempt = 0; ; attempt++) {
+            View current = view;
+            SimulationHistorySummary summary = current.summaries().get(id);
+            if (summary == null) {
+                return null;
+            }
+            try {
+                Path segmentPath = current.segmentPaths().get(summary.getSegmentId());
+                if (segmentPath == null) {
+                    throw new NoSuchFileException("segment " + summary.getSegmentId());
+                }
+                return reader.read(summary, segmentPath);
+            } catch (NoSuchFileException e) {
+                if (attempt > 0 || (!refresh() && view == current)) {
+                    throw new RuntimeException("Failed to read history record " + id, e);
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                throw new RuntimeException("Failed to read history record " + id, e);
+            }
+        }
+    }
+
+    public List<SimulationHistoryRecord> loadHistory() {
+        List<SimulationHistoryRecord> history = new ArrayList<>();
+        for (SimulationHistorySummary summary : loadSummaries()) {
+            try {
+                history.add(loadRecord(summary.getId()));
+            } catch (RuntimeException e) {
+                System.err.println("Skipping unreadable history record: " + e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    public void deleteSimulation(String id) {
+        try {
+            write(() -> {
+                appendTombstone(id);
+                return null;
+            });
         } catch (IOException e) {
-            throw new RuntimeException("Failed to save history", e);
+            throw new RuntimeException("Failed to delete history record", e);
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    private void appendTombstone(String id) throws IOException {
+        SimulationHistorySummary summary = summaries.remove(id);
+        if (summary == null) {
+            return;
+        }
+        try {
+            EntryLocation tombstone = append(ENTRY_TOMBSTONE, id, new byte[0]);
+            appendIndex(INDEX_REMOVE, id, encodeLocation(tombstone));
+            markDead(summary.getSegmentId(), summary.getLength());
+            markDead(tombstone.segmentId(), tombstone.length());
+        } catch (IOException e) {
+            summaries.put(id, summary);
+            throw e;
         }
     }
 
     public void deleteSimulation(SimulationHistoryRecord record) {
-        List<SimulationHistoryRecord> history = loadHistory();
-        history.removeIf(r -> r.getId().equals(record.getId()));
-        saveHistory(history);
+        deleteSimulation(record.getId());
     }
-}
 
+    /**
+     * Re-appends every entry still stored with Java serialization, or with its configuration inline rather than
+     * in the shared config store, in the current format, keeping its id and timestamp, and returns how many were
+     * converted. The old copies become garbage for {@link #compact()}.
+     */
+    public int upgradeRecords() throws IOException {
+        return write(this::upgradeLiveRecords);
+    }
+
+    private int upgradeLiveRecords() throws IOException {
+        int upgraded = 0;
+        for (SimulationHistorySummary summary : new ArrayList<>(summaries.values())) {
+            EntryLocation location = new EntryLocation(summary.getSegmentId(), summary.getOffset(), summary.getLength());
+            byte[] payload = readEntry(segments.get(location.segmentId()).path, location).payload();
+            if (HistoryRecordCodec.isEncoded(payload) && !new HistoryRecordCodec.Reader(ByteBuffer.wrap(payload))
+                    .hasSection(HistoryRecordCodec.SECTION_CONFIG)) {
+                continue;
+            }
+
+            SimulationHistoryRecord record;
+            try {
+                record = deserialize(payload);
+            } catch (ClassNotFoundException e) {
+                System.err.println("Skipping unreadable history record " + summary.getId() + ": " + e.getMessage());
+                continue;
+            }
+
+            byte[] upgradedPayload = serialize(record);
+            configStore.persist();
+            EntryLocation upgradedLocation = append(ENTRY_RECORD, record.getId(), upgradedPayload);
+            SimulationHistorySummary upgradedSummary = summary.withLocation(
+                    upgradedLocation.segmentId(), upgradedLocation.offset(), upgradedLocation.length());
+            appendIndex(INDEX_SUMMARY, record.getId(), encodeSummary(upgradedSummary));
+            summaries.put(record.getId(), upgradedSummary);
+            markDead(summary.getSegmentId(), summary.getLength());
+            upgraded++;
+        }
+        return upgraded;
+    }
+
+    public long getStorageSize() {
+        return view.storageSize();
+    }
+
+    /**
+     * Loads the directory from scratch. Runs under the writer lock because it may truncate torn tails,
+     * rebuild the index and delete leftovers of an interrupted compaction.
+     */
+    private void open() throws IOException {
+        Map<Integer, Long> coverage = new HashMap<>();
+        Integer indexBase = readIndex(coverage);
+
+        try (Stream<Path> files = Files.list(historyDir)) {
+            for (Path path : files.toList()) {
+                Integer segmentId = parseSegmentId(path);
+                if (segmentId == null) {
+                    continue;
+                }
+                if (indexBase != null && segmentId < indexBase) {
+                    // Left behind by a compaction that published its index but crashed before cleaning up
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                Segment segment = new Segment(segmentId, path);
+                segment.size = Files.size(path);
+                segments.put(segmentId, segment);
+            }
+        }
+
+        if (indexBase == null || !segments.keySet().containsAll(coverage.keySet())) {
+            summaries.clear();
+            coverage.clear();
+            writeIndex(segments.isEmpty() ? 1 : segments.firstKey(), List.of());
+        }
+
+        for (Segment segment : segments.values()) {
+            long covered = coverage.getOrDefault(segment.id, 0L);
+            if (covered < segment.size) {
+                scanSegmentTail(segment, covered, segment == segments.lastEntry().getValue());
+            }
+        }
+        recomputeLiveBytes();
+    }
+
+    /**
+     * Loads the index into {@link #summaries} and records how far into each segment it reaches. Returns the
+     * index's base segment id, or {@code null} if there is no index in the current format.
+     */
+    private Integer readIndex(Map<Integer, Long> coverage) throws IOException {
+        Integer indexBase = readIndexBase();
+        if (indexBase == null) {
+            return null;
+        }
+
+        long fileSize = Files.size(indexPath);
+        long validLength = readIndexFrames(INDEX_HEADER_BYTES, fileSize, coverage);
+        if (validLength < fileSize) {
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        baseSegmentId = indexBase;
+        indexLength = validLength;
+        return indexBase;
+    }
+
+    private Integer readIndexBase() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < INDEX_HEADER_BYTES) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(indexPath))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Applies the index frames between {@code from} and the first torn or missing frame, and returns the
+     * offset just past the last one applied.
+     */
+    private long readIndexFrames(long from, long fileSize, Map<Integer, Long> coverage) throws IOException {
+        long validLength = from;
+        try (InputStream raw = Files.newInputStream(indexPath)) {
+            raw.skipNBytes(from);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+            while (true) {
+                Entry entry = readFrame(in, fileSize - validLength);
+                if (entry == null) {
+                    break;
+                }
+                validLength += entry.frameLength();
+
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(entry.payload()));
+                if (entry.type() == INDEX_SUMMARY) {
+                    SimulationHistorySummary summary = decodeSummary(payload);
+                    summaries.put(entry.id(), summary);
+                    coverage.merge(summary.getSegmentId(), summary.getOffset() + summary.getLength(), Math::max);
+                } else {
+                    EntryLocation tombstone = decodeLocation(payload);
+                    summaries.remove(entry.id());
+                    coverage.merge(tombstone.segmentId(), tombstone.offset() + tombstone.length(), Math::max);
+                }
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Picks up changes made to the directory by another process. Frames appended to the index are applied
+     * incrementally; a replaced index (after another process compacted) triggers a full reload of what it
+     * commits. A frame that is still being written is left for the next refresh. Never takes the directory lock
+     * and never writes, so it only waits for this process's writers while they append. Returns whether anything
+     * changed.
+     */
+    public synchronized boolean refresh() {
+        try {
+            boolean changed = refreshIndex(false);
+            if (changed) {
+                externalChanges++;
+                publish();
+            }
+            return changed;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to refresh history storage", e);
+        }
+    }
+
+    /**
+     * Counts the changes from other processes this storage has picked up, whether through {@link #refresh()}
+     * or while catching up before one of its own writes.
+     */
+    public synchronized long getExternalChangeCount() {
+        return externalChanges;
+    }
+
+    /**
+     * Applies index frames other processes committed. A writer holding the directory lock reloads and repairs
+     * the directory when the index was replaced; a reader only reloads what the new index commits.
+     */
+    private boolean refreshIndex(boolean writer) throws IOException {
+        Integer indexBase = readIndexBase();
+        long fileSize = Files.exists(indexPath) ? Files.size(indexPath) : 0;
+        if (indexBase != null && indexBase == baseSegmentId && fileSize == indexLength) {
+            return false;
+        }
+
+        if (indexBase == null || indexBase != baseSegmentId || fileSize < indexLength) {
+            if (writer) {
+                reload();
+                return true;
+            }
+            return reloadCommitted();
+        }
+
+        Map<Integer, Long> coverage = new HashMap<>();
+        long validLength = readIndexFrames(indexLength, fileSize, coverage);
+        if (validLength == indexLength) {
+            return false;
+        }
+        indexLength = validLength;
+
+        applyCoverage(coverage);
+        return true;
+    }
+
+    /**
+     * Reloads from scratch without the directory lock: only the frames the index holds are applied, nothing is
+     * truncated, rebuilt or deleted, and the segment tails the index does not cover are left for the next writer
+     * to repair. Returns false, keeping the current state, if there is no index in the current format.
+     */
+    private boolean reloadCommitted() throws IOException {
+        Integer indexBase = readIndexBase();
+        if (indexBase == null) {
+            return false;
+        }
+        segments.clear();
+        summaries.clear();
+        Map<Integer, Long> coverage = new HashMap<>();
+        indexLength = readIndexFrames(INDEX_HEADER_BYTES, Files.size(indexPath), coverage);
+        baseSegmentId = indexBase;
+        applyCoverage(coverage);
+        return true;
+    }
+
+    /**
+     * Adds segment files at or above the index base and grows segment sizes to what the index covers. Sizes
+     * follow the index rather than the files, so bytes appended but not yet indexed by another writer stay
+     * invisible until they are committed.
+     */
+    private void applyCoverage(Map<Integer, Long> coverage) throws IOException {
+        try (Stream<Path> files = Files.list(historyDir)) {
+            for (Path path : files.toList()) {
+                Integer segmentId = parseSegmentId(path);
+                if (segmentId != null && segmentId >= baseSegmentId) {
+                    segments.computeIfAbsent(segmentId, id -> new Segment(id, path));
+                }
+            }
+        }
+        coverage.forEach((segmentId, covered) -> {
+            Segment segment = segments.get(segmentId);
+            if (segment != null) {
+                segment.size = Math.max(segment.size, covered);
+            }
+        });
+        recomputeLiveBytes();
+    }
+
+    /**
+     * Brings this storage up to date before it writes. Besides newly indexed frames it picks up segment bytes
+     * another writer appended without indexing them (it died in between); leaving those out would make the
+     * next append record the wrong offset.
+     */
+    private void catchUp() throws IOException {
+        boolean changed = refreshIndex(true);
+
+        try (Stream<Path> files = Files.list(historyDir)) {
+            for (Path path : files.toList()) {
+                Integer segmentId = parseSegmentId(path);
+                if (segmentId != null && segmentId >= baseSegmentId) {
+                    segments.computeIfAbsent(segmentId, id -> new Segment(id, path));
+                }
+            }
+        }
+        Segment active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        for (Segment segment : segments.values()) {
+            long actualSize = Files.exists(segment.path) ? Files.size(segment.path) : 0;
+            if (actualSize > segment.size) {
+                long covered = segment.size;
+                segment.size = actualSize;
+                scanSegmentTail(segment, covered, segment == active);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            recomputeLiveBytes();
+            externalChanges++;
+        }
+    }
+
+    private void reload() throws IOException {
+        segments.clear();
+        summaries.clear();
+        open();
+    }
+
+    /**
+     * Runs {@code action} holding the exclusive lock on the history directory, waiting for writers in this
+     * and other processes to finish first. Must not be called under the monitor, which readers and
+     * {@link #refresh()} need while the wait lasts. Nested calls run directly.
+     */
+    private <T> T withWriterLock(LockedAction<T> action) throws IOException {
+        ReentrantLock processLock = PROCESS_LOCKS.computeIfAbsent(
+                lockPath.toAbsolutePath().normalize(), path -> new ReentrantLock());
+        if (processLock.isHeldByCurrentThread()) {
+            return action.run();
+        }
+        processLock.lock();
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    public Path getHistoryDir() {
+        return historyDir;
+    }
+
+    private void scanSegmentTail(Segment segment, long fromOffset, boolean isActive) throws IOException {
+        long validLength = fromOffset;
+        try (InputStream raw = Files.newInputStream(segment.path)) {
+            raw.skipNBytes(fromOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(raw));
+            while (true) {
+                Entry entry = readFrame(in, segment.size - validLength);
+                if (entry == null) {
+                    break;
+                }
+
+                EntryLocation location = new EntryLocation(segment.id, validLength, entry.frameLength());
+                validLength += entry.frameLength();
+
+                if (entry.type() == ENTRY_RECORD) {
+                    try {
+                        SimulationHistorySummary summary = SimulationHistorySummary.fromRecord(
+                                deserialize(entry.payload()), location.segmentId(), location.offset(), location.length());
+                        appendIndex(INDEX_SUMMARY, entry.id(), encodeSummary(summary));
+                        summaries.put(entry.id(), summary);
+                    } catch (IOException | ClassNotFoundException e) {
+                        System.err.println("Skipping unreadable history record " + entry.id() + ": " + e.getMessage());
+                    }
+                } else {
+                    appendIndex(INDEX_REMOVE, entry.id(), encodeLocation(location));
+                    summaries.remove(entry.id());
+                }
+            }
+        }
+
+        if (validLength < segment.size) {
+            if (isActive) {
+                // A crash mid-append leaves a torn frame at the tail; drop it so the next append starts clean
+                try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+                segment.size = validLength;
+            } else {
+                System.err.println("History segment " + segment.path + " is corrupt after byte " + validLength);
+            }
+        }
+    }
+
+    private void recomputeLiveBytes() {
+        for (Segment segment : segments.values()) {
+            segment.liveBytes = 0;
+        }
+        for (SimulationHistorySummary summary : summaries.values()) {
+            Segment segment = segments.get(summary.getSegmentId());
+            if (segment != null) {
+                segment.liveBytes += summary.getLength();
+            }
+        }
+    }
+
+    private void migrateLegacyHistory() throws IOException {
+        Path legacyFile = historyDir.resolve(LEGACY_HISTORY_FILE);
+        if (!segments.isEmpty() || !Files.exists(legacyFile) || Files.size(legacyFile) == 0) {
+            return;
+        }
+
+        List<SimulationHistoryRecord> legacyRecords;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(legacyFile)))) {
+            Object obj = ois.readObject();
+            if (!(obj instanceof List<?> list)) {
+                return;
+            }
+            legacyRecords = new ArrayList<>();
+            for (Object item : list) {
+                if (item instanceof SimulationHistoryRecord record) {
+                    legacyRecords.add(record);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unreadable legacy history file", e);
+        }
+
+        // Write the whole migration into a temp file first so a crash never leaves a half-imported segment
+        Path tempFile = historyDir.resolve(segmentFileName(1) + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (SimulationHistoryRecord record : legacyRecords) {
+                channel.write(ByteBuffer.wrap(encodeFrame(ENTRY_RECORD, record.getId(), serialize(record))));
+            }
+            channel.force(true);
+        }
+        configStore.persist();
+        Files.move(tempFile, historyDir.resolve(segmentFileName(1)), StandardCopyOption.ATOMIC_MOVE);
+        Files.move(legacyFile, historyDir.resolve(LEGACY_HISTORY_FILE + MIGRATED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+
+        Segment segment = new Segment(1, historyDir.resolve(segmentFileName(1)));
+        segment.size = Files.size(segment.path);
+        segments.put(1, segment);
+        scanSegmentTail(segment, 0, true);
+        recomputeLiveBytes();
+    }
+
+    private EntryLocation append(byte type, String id, byte[] payload) throws IOException {
+        byte[] frame = encodeFrame(type, id, payload);
+
+        Segment active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (active == null || (active.size > 0 && active.size + frame.length > SEGMENT_MAX_BYTES)) {
+            int nextId = active == null ? 1 : active.id + 1;
+            active = new Segment(nextId, historyDir.resolve(segmentFileName(nextId)));
+            segments.put(nextId, active);
+        }
+
+        appendFrame(active.path, frame);
+
+        EntryLocation location = new EntryLocation(active.id, active.size, frame.length);
+        active.size += frame.length;
+        active.liveBytes += frame.length;
+        return location;
+    }
+
+    private void appendIndex(byte type, String id, byte[] payload) throws IOException {
+        byte[] frame = encodeFrame(type, id, payload);
+        appendFrame(indexPath, frame);
+        indexLength += frame.length;
+    }
+
+    private void appendFrame(Path path, byte[] frame) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (deferSync) {
+                pendingSync.add(path);
+            } else {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Atomically replaces the index with one that starts at {@code baseSegmentId} and holds only the given summaries.
+     */
+    private void writeIndex(int baseSegmentId, List<SimulationHistorySummary> entries) throws IOException {
+        long length = writeIndexFile(baseSegmentId, entries);
+        this.baseSegmentId = baseSegmentId;
+        this.indexLength = length;
+    }
+
+    /**
+     * Writes and syncs the replacement index without touching the in-memory state, and returns its length.
+     */
+    private long writeIndexFile(int baseSegmentId, List<SimulationHistorySummary> entries) throws IOException {
+        Path tempPath = historyDir.resolve(INDEX_FILE + TEMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(baseSegmentId);
+            for (SimulationHistorySummary summary : entries) {
+                out.write(encodeFrame(INDEX_SUMMARY, summary.getId(), encodeSummary(summary)));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(indexPath);
+    }
+
+    private Entry readEntry(Path segmentPath, EntryLocation location) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length());
+            channel.read(buffer, location.offset());
+            Entry entry = readFrame(new DataInputStream(new ByteArrayInputStream(buffer.array())), location.length());
+            if (entry == null) {
+                throw new IOException("Corrupt history entry in " + segmentPath + " at " + location.offset());
+            }
+            return entry;
+        }
+    }
+
+    private void markDead(int segmentId, int length) {
+        Segment segment = segments.get(segmentId);
+        if (segment != null) {
+            segment.liveBytes -= length;
+        }
+    }
+
+    private synchronized void scheduleCompactionIfNeeded() {
+        long totalBytes = 0;
+        long liveBytes = 0;
+        for (Segment segment : segments.values()) {
+            totalBytes += segment.size;
+            liveBytes += segment.liveBytes;
+        }
+
+        if (compactionScheduled || totalBytes == 0
+                || (totalBytes - liveBytes) / (double) totalBytes < COMPACTION_GARBAGE_RATIO) {
+            return;
+        }
+
+        compactionScheduled = true;
+        COMPACTOR.submit(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("History compaction failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rewrites every live entry into fresh segments numbered after all existing ones, publishes an index
+     * based at the first of them and only then deletes the old segments. A crash before the index is published
+     * leaves new segments the index does not cover, which the next open re-indexes over the old copies; a
+     * crash after it leaves old segments below the index base, which the next open deletes.
+     */
+    void compact() throws IOException {
+        withWriterLock(() -> {
+            CompactionPlan plan = write(() -> {
+                compactionScheduled = false;
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                Map<Integer, Path> sources = new HashMap<>();
+                for (Segment segment : segments.values()) {
+                    sources.put(segment.id, segment.path);
+                }
+                return new CompactionPlan(segments.lastKey() + 1, sources, new ArrayList<>(summaries.values()));
+            });
+            // Nothing else writes while the directory lock is held, so the copy runs without the monitor
+            if (plan != null) {
+                compactSegments(plan);
+            }
+            return null;
+        });
+    }
+
+    private void compactSegments(CompactionPlan plan) throws IOException {
+        int baseId = plan.baseId();
+        List<SimulationHistorySummary> live = plan.live();
+        live.sort(Comparator.comparingInt(SimulationHistorySummary::getSegmentId)
+                .thenComparingLong(SimulationHistorySummary::getOffset));
+
+        // Targets roll over at the same cap as appends, so a compacted history never yields one oversized segment
+        List<Segment> targets = new ArrayList<>();
+        List<SimulationHistorySummary> relocated = new ArrayList<>(live.size());
+        Segment target = new Segment(baseId, historyDir.resolve(segmentFileName(baseId)));
+        targets.add(target);
+        FileChannel out = openCompactionTarget(target);
+        try {
+            for (SimulationHistorySummary summary : live) {
+                if (target.size > 0 && target.size + summary.getLength() > SEGMENT_MAX_BYTES) {
+                    out.force(true);
+                    out.close();
+                    int targetId = baseId + targets.size();
+                    target = new Segment(targetId, historyDir.resolve(segmentFileName(targetId)));
+                    targets.add(target);
+                    out = openCompactionTarget(target);
+                }
+                try (FileChannel in = FileChannel.open(plan.sources().get(summary.getSegmentId()), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(summary.getLength());
+                    in.read(buffer, summary.getOffset());
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                relocated.add(summary.withLocation(target.id, target.size, summary.getLength()));
+                target.size += summary.getLength();
+                target.liveBytes += summary.getLength();
+            }
+            out.force(true);
+        } finally {
+            out.close();
+        }
+
+        for (Segment compacted : targets) {
+            Files.move(historyDir.resolve(segmentFileName(compacted.id) + TEMP_SUFFIX), compacted.path,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        long compactedIndexLength = writeIndexFile(baseId, relocated);
+
+        synchronized (this) {
+            segments.clear();
+            for (Segment compacted : targets) {
+                segments.put(compacted.id, compacted);
+            }
+            summaries.clear();
+            for (SimulationHistorySummary summary : relocated) {
+                summaries.put(summary.getId(), summary);
+            }
+            baseSegmentId = baseId;
+            indexLength = compactedIndexLength;
+            publish();
+        }
+
+        for (Path source : plan.sources().values()) {
+            try {
+                Files.deleteIfExists(source);
+            } catch (IOException e) {
+                // Some platforms refuse to delete a file that is still mapped by an open detail view; it is
+                // below the new index base, so the next open removes it
+                System.err.println("Could not delete compacted segment " + source + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private FileChannel openCompactionTarget(Segment target) throws IOException {
+        return FileChannel.open(historyDir.resolve(segmentFileName(target.id) + TEMP_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private void deleteTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(historyDir)) {
+            for (Path path : files.toList()) {
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static byte[] encodeSummary(SimulationHistorySummary summary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(summary.getId());
+        out.writeUTF(summary.getTimestamp().toString());
+        out.writeInt(summary.getSimulationParams().simulationDays());
+        out.writeInt(summary.getSimulationParams().simulationRuns());
+        out.writeInt(summary.getReviewTime());
+        out.writeInt(summary.getFirstFloorMaxCapacity());
+        out.writeInt(summary.getBasementFloorMaxCapacity());
+        out.writeInt(summary.getFirstFloorStartUnits());
+        out.writeInt(summary.getBasementFloorStartUnits());
+        out.writeUTF(summary.getConfigHash());
+
+        Map<String, Double> statistics = summary.getStatistics();
+        out.writeInt(statistics.size());
+        for (Map.Entry<String, Double> statistic : statistics.entrySet()) {
+            out.writeUTF(statistic.getKey());
+            out.writeDouble(statistic.getValue());
+        }
+
+        out.writeInt(summary.getSegmentId());
+        out.writeLong(summary.getOffset());
+        out.writeInt(summary.getLength());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static SimulationHistorySummary decodeSummary(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        LocalDateTime timestamp = LocalDateTime.parse(in.readUTF());
+        SimulationHistoryRecord.SimulationParams params =
+                new SimulationHistoryRecord.SimulationParams(in.readInt(), in.readInt());
+        int reviewTime = in.readInt();
+        int firstFloorMaxCapacity = in.readInt();
+        int basementFloorMaxCapacity = in.readInt();
+        int firstFloorStartUnits = in.readInt();
+        int basementFloorStartUnits = in.readInt();
+        String configHash = in.readUTF();
+
+        int statisticsCount = in.readInt();
+        Map<String, Double> statistics = new LinkedHashMap<>();
+        for (int i = 0; i < statisticsCount; i++) {
+            statistics.put(in.readUTF(), in.readDouble());
+        }
+
+        return new SimulationHistorySummary(id, timestamp, params, reviewTime, firstFloorMaxCapacity,
+                basementFloorMaxCapacity, firstFloorStartUnits, basementFloorStartUnits, configHash, statistics,
+                in.readInt(), in.readLong(), in.readInt());
+    }
+
+    private static byte[] encodeLocation(EntryLocation location) {
+        return ByteBuffer.allocate(16)
+                .putInt(location.segmentId())
+                .putLong(location.offset())
+                .putInt(location.length())
+                .array();
+    }
+
+    private static EntryLocation decodeLocation(DataInputStream in) throws IOException {
+        return new EntryLocation(in.readInt(), in.readLong(), in.readInt());
+    }
+
+    static byte[] encodeFrame(byte type, String id, byte[] payload) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(payload.length + 64);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeByte(type);
+        bodyOut.writeUTF(id);
+        bodyOut.write(payload);
+        bodyOut.flush();
+        byte[] bodyBytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+
+        ByteBuffer frame = ByteBuffer.allocate(bodyBytes.length + 8);
+        frame.putInt(bodyBytes.length);
+        frame.put(bodyBytes);
+        frame.putInt((int) crc.getValue());
+        return frame.array();
+    }
+
+    /**
+     * Reads the next frame, or returns {@code null} at end of data or on a torn/corrupt frame.
+     */
+    static Entry readFrame(DataInputStream in, long maxFrameLength) throws IOException {
+        try {
+            int bodyLength = in.readInt();
+            if (bodyLength <= 0 || bodyLength + 8L > maxFrameLength) {
+                return null;
+            }
+            byte[] body = new byte[bodyLength];
+            in.readFully(body);
+            int storedCrc = in.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != storedCrc) {
+                return null;
+            }
+
+            DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body));
+            byte type = bodyIn.readByte();
+            String id = bodyIn.readUTF();
+            byte[] payload = bodyIn.readAllBytes();
+            return new Entry(type, id, payload, bodyLength + 8);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private byte[] serialize(SimulationHistoryRecord record) {
+        return HistoryRecordCodec.encode(record, configStore);
+    }
+
+    /**
+     * Decodes an entry payload, accepting both the binary format and the Java serialization older entries used.
+     */
+    private SimulationHistoryRecord deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+        if (HistoryRecordCodec.isEncoded(payload)) {
+            return HistoryRecordCodec.decode(ByteBuffer.wrap(payload), configStore);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (SimulationHistoryRecord) ois.readObject();
+        }
+    }
+
+    private static String segmentFileName(int segmentId) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX);
+    }
+
+    private static Integer parseSegmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private long size;
+        private long liveBytes;
+
+        private Segment(int id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    private interface EntryReader<T> {
+        T read(SimulationHistorySummary summary, Path segmentPath) throws IOException, ClassNotFoundException;
+    }
+
+    /**
+     * The committed state as readers see it: the live summaries and their indexes, newest first as well, and
+     * the segment files they point into.
+     */
+    private record View(HistoryIndex summaries, List<SimulationHistorySummary> newestFirst,
+                        Map<Integer, Path> segmentPaths, long storageSize) {
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    private record EntryLocation(int segmentId, long offset, int length) {
+    }
+
+    private record CompactionPlan(int baseId, Map<Integer, Path> sources, List<SimulationHistorySummary> live) {
+    }
+
+    record Entry(byte type, String id, byte[] payload, int frameLength) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.hospital.utils;
+
+import com.hospital.models.SimulationHistoryRecord;
+import com.hospital.simulation.SimulationData;
+import com.hospital.simulation.SimulationRunCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link SimulationRunCache} kept as one file per key in the history directory's {@code result-cache} folder.
+ * Each file is a history record in the {@link HistoryRecordCodec} format holding the configuration inline and
+ * only the runs, so cached runs decode column by column like stored history.
+ * <p>
+ * Files are replaced with an atomic move, so concurrent processes at worst redo a study. When the folder grows
+ * past its size limit the least recently used files are deleted; a hit refreshes a file's modification time.
+ */
+public class SimulationResultCache implements SimulationRunCache {
+    private static final String CACHE_DIR = "result-cache";
+    private static final String CACHE_SUFFIX = ".bin";
+    // Part of every file name; bumped when runs gain columns that older cache files lack
+    private static final int CACHE_FORMAT = 2;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAX_CACHE_BYTES = 256L * 1024 * 1024;
+
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    public SimulationResultCache(Path historyDir) {
+        this(historyDir, MAX_CACHE_BYTES);
+    }
+
+    public SimulationResultCache(Path historyDir, long maxBytes) {
+        this.cacheDir = historyDir.resolve(CACHE_DIR);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public List<SimulationData> load(Key key, int maxRuns) {
+        Path path = cacheDir.resolve(fileName(key.digest()));
+        try {
+            MappedHistoryRecord cached = new MappedHistoryRecord(
+                    new HistoryRecordCodec.Reader(ByteBuffer.wrap(Files.readAllBytes(path))));
+            SimulationHistoryRecord record = cached.getRecord();
+            if (!key.configHash().equals(record.getConfigSnapshot().getContentHash())
+                    || record.getSimulationParams().simulationDays() != key.simulationDays()) {
+                return List.of();
+            }
+
+            int runCount = Math.min(maxRuns, cached.getRunCount());
+            List<SimulationData> runs = new ArrayList<>(runCount);
+            for (int run = 0; run < runCount; run++) {
+                runs.add(cached.getRun(run));
+            }
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return runs;
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable cached simulation " + path + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    @Override
+    public void store(Key key, SimulationHistoryRecord.SimulationConfigSnapshot config, List<SimulationData> runs) {
+        String digest = key.digest();
+        Path path = cacheDir.resolve(fileName(digest));
+        Path temp = null;
+        try {
+            Files.createDirectories(cacheDir);
+            temp = Files.createTempFile(cacheDir, digest, TEMP_SUFFIX);
+            SimulationHistoryRecord record = new SimulationHistoryRecord(
+                    digest,
+                    null,
+                    new SimulationHistoryRecord.SimulationParams(key.simulationDays(), runs.size()),
+                    config,
+                    List.of(),
+                    List.of(),
+                    runs.stream().map(SimulationHistoryRecord.SimulationRunSnapshot::fromSimulationData).toList()
+            );
+            Files.write(temp, HistoryRecordCodec.encode(record));
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            evict();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to cache simulation runs: " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the folder is within its size limit.
+     */
+    private void evict() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(CACHE_SUFFIX)).toList();
+        }
+
+        long totalBytes = 0;
+        List<CachedFile> cached = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                long size = Files.size(file);
+                totalBytes += size;
+                cached.add(new CachedFile(file, size, Files.getLastModifiedTime(file).toMillis()));
+            } catch (NoSuchFileException e) {
+                // Evicted by another process meanwhile
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        cached.sort(Comparator.comparingLong(CachedFile::lastModified));
+        for (CachedFile file : cached) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (Files.deleteIfExists(file.path())) {
+                totalBytes -= file.size();
+            }
+        }
+    }
+
+    private static String fileName(String digest) {
+        return digest + "-" + CACHE_FORMAT + CACHE_SUFFIX;
+    }
+
+    private record CachedFile(Path path, long size, long lastModified) {
+    }
+}
@@ -3,6 +3,8 @@ package com.hospital.utils;
 import java.util.List;
 
 public class StatisticsUtils {
+    private static final int STUDENT_REFINED_DEGREES = 100;
+
     public static double calculateMean(List<Double> values) {
         return values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
     }
@@ -27,4 +29,144 @@ public class StatisticsUtils {
                 .sum();
         return sumSquaredDiffs / (n - 1);
     }
+
+    /**
+     * Standard normal cumulative probability, accurate to about 1e-7.
+     */
+    public static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.5 * x);
+        double erfc = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return z >= 0 ? 1 - erfc / 2 : erfc / 2;
+    }
+
+    /**
+     * Inverse of {@link #normalCdf}; infinite at 0 and 1.
+     */
+    public static double normalQuantile(double p) {
+        if (p <= 0) return Double.NEGATIVE_INFINITY;
+        if (p >= 1) return Double.POSITIVE_INFINITY;
+
+        // Acklam's rational approximation
+        double[] a = {-39.69683028665376, 220.9460984245205, -275.9285104469687,
+                138.3577518672690, -30.66479806614716, 2.506628277459239};
+        double[] b = {-54.47609879822406, 161.5858368580409, -155.6989798598866,
+                66.80131188771972, -13.28068155288572};
+        double[] c = {-0.007784894002430293, -0.3223964580411365, -2.400758277161838,
+                -2.549732539343734, 4.374664141464968, 2.938163982698783};
+        double[] d = {0.007784695709041462, 0.3224671290700398, 2.445134137142996, 3.754408661907416};
+        double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Quantile of Student's t distribution. Starts from Hill's approximation (Algorithm 396, CACM 1970), which
+     * is exact for one and two degrees of freedom and within about 1e-5 relative from three on, then refines it
+     * with Newton steps on the exact distribution up to {@link #STUDENT_REFINED_DEGREES} degrees of freedom.
+     * Beyond that Hill's value is already as accurate as {@link #normalQuantile}, about 1e-9 relative.
+     */
+    public static double studentQuantile(double p, int degreesOfFreedom) {
+        if (p <= 0) return Double.NEGATIVE_INFINITY;
+        if (p >= 1) return Double.POSITIVE_INFINITY;
+
+        int n = degreesOfFreedom;
+        double twoTailed = 2 * Math.min(p, 1 - p);
+        double t;
+        if (n == 1) {
+            t = 1 / Math.tan(twoTailed * Math.PI / 2);
+        } else if (n == 2) {
+            t = Math.sqrt(2 / (twoTailed * (2 - twoTailed)) - 2);
+        } else {
+            double a = 1 / (n - 0.5);
+            double b = 48 / (a * a);
+            double c = ((20700 * a / b - 98) * a - 16) * a + 96.36;
+            double d = ((94.5 / (b + c) - 3) / b + 1) * Math.sqrt(a * Math.PI / 2) * n;
+            double y = Math.pow(d * twoTailed, 2.0 / n);
+            if (y > 0.05 + a) {
+                // Asymptotic expansion around the normal quantile
+                double x = normalQuantile(twoTailed / 2);
+                y = x * x;
+                if (n < 5) {
+                    c += 0.3 * (n - 4.5) * (x + 0.6);
+                }
+                c = (((0.05 * d * x - 5) * x - 7) * x - 2) * x + b + c;
+                y = (((((0.4 * y + 6.3) * y + 36) * y + 94.5) / c - y - 3) / b + 1) * x;
+                y = Math.expm1(a * y * y);
+            } else {
+                y = ((1 / (((n + 6) / (n * y) - 0.089 * d - 0.822) * (n + 2) * 3) + 0.5 / (n + 4)) * y - 1)
+                        * (n + 1) / (n + 2) + 1 / y;
+            }
+            t = Math.sqrt(n * y);
+
+            if (n <= STUDENT_REFINED_DEGREES) {
+                double central = 1 - twoTailed;
+                double logDensityScale = studentLogDensityScale(n);
+                for (int iteration = 0; iteration < 10; iteration++) {
+                    double density = 2 * Math.exp(logDensityScale - (n + 1) / 2.0 * Math.log1p(t * t / n));
+                    double step = (studentCentralProbability(t, n) - central) / density;
+                    t -= step;
+                    if (Math.abs(step) <= 1e-14 * t) {
+                        break;
+                    }
+                }
+            }
+        }
+        return p < 0.5 ? -t : t;
+    }
+
+    /**
+     * P(|T| <= t) for Student's t with {@code n} degrees of freedom, from the finite series for integer degrees
+     * of freedom (Abramowitz and Stegun 26.7.3 and 26.7.4).
+     */
+    private static double studentCentralProbability(double t, int n) {
+        double theta = Math.atan(Math.abs(t) / Math.sqrt(n));
+        double cosSquared = Math.cos(theta) * Math.cos(theta);
+        if (n % 2 == 1) {
+            double sum = 0;
+            if (n > 1) {
+                double term = Math.cos(theta);
+                sum = term;
+                for (int k = 3; k <= n - 2; k += 2) {
+                    term *= cosSquared * (k - 1) / k;
+                    sum += term;
+                }
+            }
+            return 2 / Math.PI * (theta + Math.sin(theta) * sum);
+        }
+        double term = 1;
+        double sum = 1;
+        for (int k = 2; k <= n - 2; k += 2) {
+            term *= cosSquared * (k - 1) / k;
+            sum += term;
+        }
+        return Math.sin(theta) * sum;
+    }
+
+    /**
+     * Logarithm of the density's constant, Gamma((n + 1) / 2) / (Gamma(n / 2) sqrt(n pi)), built up from
+     * Gamma(x + 1) = x Gamma(x).
+     */
+    private static double studentLogDensityScale(int n) {
+        double logRatio = n % 2 == 1 ? -0.5 * Math.log(Math.PI) : 0.5 * Math.log(Math.PI) - Math.log(2);
+        for (int k = n % 2 == 1 ? 1 : 2; k < n; k += 2) {
+            logRatio += Math.log((k + 1.0) / k);
+        }
+        return logRatio - 0.5 * Math.log(n * Math.PI);
+    }
 }
@@ -1,11 +1,22 @@
 package com.hospital.utils;
 
+import com.hospital.simulation.DailyInventoryHistogram;
+import com.hospital.simulation.DailyInventoryStatistics;
+import com.hospital.simulation.IntHistogram;
+import com.hospital.simulation.ParetoExplorer;
+import com.hospital.simulation.RunColumns;
+import com.hospital.simulation.RunDayIndex;
+import com.hospital.simulation.SensitivityAnalysis;
 import com.hospital.simulation.SimulationData;
+import com.hospital.utils.charts.CountHistogramDataset;
+import com.hospital.utils.charts.DownsampledXYDataset;
+import com.hospital.utils.charts.RunColumnCategoryDataset;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.xy.XYSeries;
@@ -14,10 +25,6 @@ import org.jfree.data.xy.XYSeriesCollection;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import static com.hospital.utils.StatisticsUtils.calculateMean;
-import static com.hospital.utils.StatisticsUtils.calculateStdDeviation;
 
 public class StatisticsVisualization {
     private static double parseStatValue(String value) {
@@ -32,40 +39,40 @@ public class StatisticsVisualization {
         }
     }
 
-    public static JFreeChart createAvgEndingFFChart(List<SimulationData> simulationData) {
-        if (simulationData.isEmpty()) {
+    private static double[] dayAxis(int days) {
+        double[] dayValues = new double[days];
+        for (int day = 0; day < days; day++) {
+            dayValues[day] = day + 1;
+        }
+        return dayValues;
+    }
+
+    public static JFreeChart createAvgEndingFFChart(DailyInventoryStatistics statistics) {
+        if (statistics.getTotalDays() == 0) {
             return ChartFactory.createXYLineChart("Average Ending First Floor Inventory", "Day", "Average Ending FF", new XYSeriesCollection());
         }
 
-        int maxDays = simulationData.getFirst().totalDays;
-        XYSeries avgSeries = new XYSeries("Average");
-        XYSeries upperSeries = new XYSeries("Upper 95% CI");
-        XYSeries lowerSeries = new XYSeries("Lower 95% CI");
-
-        for (int day = 0; day < maxDays; day++) {
-            final int dayIndex = day;
-            List<Double> values = simulationData.stream()
-                .filter(sd -> dayIndex < sd.firstFloorEndUnits.size())
-                .map(sd -> (double) sd.firstFloorEndUnits.get(dayIndex))
-                .toList();
-
-            if (!values.isEmpty()) {
-                double mean = calculateMean(values);
-                double stdDev = calculateStdDeviation(values);
-                double n = values.size();
-                double tValue = 1.96;
-                double margin = tValue * (stdDev / Math.sqrt(n));
-
-                avgSeries.add(day + 1, mean);
-                upperSeries.add(day + 1, mean + margin);
-                lowerSeries.add(day + 1, mean - margin);
-            }
+        int days = statistics.getTotalDays();
+        double[] dayValues = dayAxis(days);
+        double[] avgValues = new double[days];
+        double[] upperValues = new double[days];
+        double[] lowerValues = new double[days];
+
+        for (int day = 0; day < days; day++) {
+            long n = statistics.getCount(day);
+            double mean = statistics.getFirstFloorMean(day);
+            double tValue = 1.96;
+            double margin = n > 0 ? tValue * (statistics.getFirstFloorStdDeviation(day) / Math.sqrt(n)) : 0.0;
+
+            avgValues[day] = mean;
+            upperValues[day] = mean + margin;
+            lowerValues[day] = mean - margin;
         }
 
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        dataset.addSeries(avgSeries);
-        dataset.addSeries(upperSeries);
-        dataset.addSeries(lowerSeries);
+        DownsampledXYDataset dataset = new DownsampledXYDataset(dayValues);
+        dataset.addSeries("Average", avgValues);
+        dataset.addSeries("Upper 95% CI", upperValues);
+        dataset.addSeries("Lower 95% CI", lowerValues);
 
         JFreeChart chart = ChartFactory.createXYLineChart(
                 "Average Ending First Floor Inventory",
@@ -86,40 +93,32 @@ public class StatisticsVisualization {
         return chart;
     }
 
-    public static JFreeChart createAvgEndingBasementChart(List<SimulationData> simulationData) {
-        if (simulationData.isEmpty()) {
+    public static JFreeChart createAvgEndingBasementChart(DailyInventoryStatistics statistics) {
+        if (statistics.getTotalDays() == 0) {
             return ChartFactory.createXYLineChart("Average Ending Basement Inventory", "Day", "Average Ending Basement", new XYSeriesCollection());
         }
 
-        int maxDays = simulationData.get(0).totalDays;
-        XYSeries avgSeries = new XYSeries("Average");
-        XYSeries upperSeries = new XYSeries("Upper 95% CI");
-        XYSeries lowerSeries = new XYSeries("Lower 95% CI");
-
-        for (int day = 0; day < maxDays; day++) {
-            final int dayIndex = day;
-            List<Double> values = simulationData.stream()
-                .filter(sd -> dayIndex < sd.basementFloorEndUnits.size())
-                .map(sd -> (double) sd.basementFloorEndUnits.get(dayIndex))
-                .collect(Collectors.toList());
-
-            if (!values.isEmpty()) {
-                double mean = calculateMean(values);
-                double stdDev = calculateStdDeviation(values);
-                double n = values.size();
-                double tValue = 1.96;
-                double margin = tValue * (stdDev / Math.sqrt(n));
-
-                avgSeries.add(day + 1, mean);
-                upperSeries.add(day + 1, mean + margin);
-                lowerSeries.add(day + 1, mean - margin);
-            }
+        int days = statistics.getTotalDays();
+        double[] dayValues = dayAxis(days);
+        double[] avgValues = new double[days];
+        double[] upperValues = new double[days];
+        double[] lowerValues = new double[days];
+
+        for (int day = 0; day < days; day++) {
+            long n = statistics.getCount(day);
+            double mean = statistics.getBasementMean(day);
+            double tValue = 1.96;
+            double margin = n > 0 ? tValue * (statistics.getBasementStdDeviation(day) / Math.sqrt(n)) : 0.0;
+
+            avgValues[day] = mean;
+            upperValues[day] = mean + margin;
+            lowerValues[day] = mean - margin;
         }
 
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        dataset.addSeries(avgSeries);
-        dataset.addSeries(upperSeries);
-        dataset.addSeries(lowerSeries);
+        DownsampledXYDataset dataset = new DownsampledXYDataset(dayValues);
+        dataset.addSeries("Average", avgValues);
+        dataset.addSeries("Upper 95% CI", upperValues);
+        dataset.addSeries("Lower 95% CI", lowerValues);
 
         JFreeChart chart = ChartFactory.createXYLineChart(
                 "Average Ending Basement Inventory",
@@ -140,33 +139,59 @@ public class StatisticsVisualization {
         return chart;
     }
 
-    public static JFreeChart createDailyDemandHistogram(List<SimulationData> simulationData) {
-        List<Integer> allDemands = new ArrayList<>();
-        for (SimulationData data : simulationData) {
-            allDemands.addAll(data.dailyDemandValues);
+    public static JFreeChart createInventoryFanChart(String title, DailyInventoryHistogram histogram, Color color) {
+        if (histogram.getTotalDays() == 0) {
+            return ChartFactory.createXYLineChart(title, "Day", "Ending Units", new XYSeriesCollection());
         }
 
-        if (allDemands.isEmpty()) {
-            return ChartFactory.createXYBarChart("Distribution of Daily Demand", "Demand", false, "Frequency", new XYSeriesCollection());
+        int[][] quantiles = histogram.quantiles(0.05, 0.25, 0.5, 0.75, 0.95);
+        int days = histogram.getTotalDays();
+        double[][] bands = new double[quantiles.length][days];
+        for (int q = 0; q < quantiles.length; q++) {
+            for (int day = 0; day < days; day++) {
+                bands[q][day] = quantiles[q][day];
+            }
         }
 
-        Map<Integer, Integer> frequency = new TreeMap<>();
-        for (Integer demand : allDemands) {
-            frequency.put(demand, frequency.getOrDefault(demand, 0) + 1);
+        DownsampledXYDataset dataset = new DownsampledXYDataset(dayAxis(days));
+        dataset.addSeries("P5 - P95", bands[2], bands[0], bands[4]);
+        dataset.addSeries("P25 - P75", bands[2], bands[1], bands[3]);
+        dataset.addSeries("Median", bands[2]);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                title,
+                "Day",
+                "Ending Units",
+                dataset,
+                PlotOrientation.VERTICAL,
+                true, true, false
+        );
+
+        DeviationRenderer renderer = new DeviationRenderer(true, false);
+        renderer.setAlpha(0.25f);
+        for (int series = 0; series < 3; series++) {
+            renderer.setSeriesPaint(series, color);
+            renderer.setSeriesFillPaint(series, color);
         }
+        renderer.setSeriesStroke(0, new BasicStroke(0f));
+        renderer.setSeriesStroke(1, new BasicStroke(0f));
+        renderer.setSeriesStroke(2, new BasicStroke(2f));
+        chart.getXYPlot().setRenderer(renderer);
+
+        return chart;
+    }
 
-        XYSeries series = new XYSeries("Frequency");
-        for (Map.Entry<Integer, Integer> entry : frequency.entrySet()) {
-            series.add(entry.getKey(), entry.getValue());
+    public static JFreeChart createDailyDemandHistogram(IntHistogram dailyDemandHistogram) {
+        if (dailyDemandHistogram.isEmpty()) {
+            return ChartFactory.createXYBarChart("Distribution of Daily Demand", "Demand", false, "Frequency", new XYSeriesCollection());
         }
 
-        XYSeriesCollection dataset = new XYSeriesCollection(series);
         JFreeChart chart = ChartFactory.createXYBarChart(
                 "Distribution of Daily Demand",
                 "Demand",
                 false,
                 "Frequency",
-                dataset,
+                new CountHistogramDataset("Frequency", dailyDemandHistogram),
                 PlotOrientation.VERTICAL,
                 true, true, false
         );
@@ -174,33 +199,17 @@ public class StatisticsVisualization {
         return chart;
     }
 
-    public static JFreeChart createLeadTimeHistogram(List<SimulationData> simulationData) {
-        List<Integer> allLeadTimes = new ArrayList<>();
-        for (SimulationData data : simulationData) {
-            allLeadTimes.addAll(data.leadTimes);
-        }
-
-        if (allLeadTimes.isEmpty()) {
+    public static JFreeChart createLeadTimeHistogram(IntHistogram leadTimeHistogram) {
+        if (leadTimeHistogram.isEmpty()) {
             return ChartFactory.createXYBarChart("Distribution of Lead Time", "Lead Time", false, "Frequency", new XYSeriesCollection());
         }
 
-        Map<Integer, Integer> frequency = new TreeMap<>();
-        for (Integer leadTime : allLeadTimes) {
-            frequency.put(leadTime, frequency.getOrDefault(leadTime, 0) + 1);
-        }
-
-        XYSeries series = new XYSeries("Frequency");
-        for (Map.Entry<Integer, Integer> entry : frequency.entrySet()) {
-            series.add(entry.getKey(), entry.getValue());
-        }
-
-        XYSeriesCollection dataset = new XYSeriesCollection(series);
         JFreeChart chart = ChartFactory.createXYBarChart(
                 "Distribution of Lead Time",
                 "Lead Time",
                 false,
                 "Frequency",
-                dataset,
+                new CountHistogramDataset("Frequency", leadTimeHistogram),
                 PlotOrientation.VERTICAL,
                 true, true, false
         );
@@ -208,12 +217,9 @@ public class StatisticsVisualization {
         return chart;
     }
 
-    public static JFreeChart createShortageDaysChart(List<SimulationData> simulationData) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-        for (int i = 0; i < simulationData.size(); i++) {
-            dataset.addValue(simulationData.get(i).totalShortageDays, "Shortage Days", "Run " + (i + 1));
-        }
+    public static JFreeChart createShortageDaysChart(RunColumns runColumns) {
+        RunColumnCategoryDataset dataset =
+                new RunColumnCategoryDataset("Shortage Days", runColumns.getShortageDays(), runColumns.size());
 
         return ChartFactory.createBarChart(
                 "Shortage Days Per Run",
@@ -225,13 +231,45 @@ public class StatisticsVisualization {
         );
     }
 
-    public static JFreeChart createTransfersChart(List<SimulationData> simulationData) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    /**
+     * Share of runs with a shortage on each day of the horizon, showing where shortages cluster.
+     */
+    public static JFreeChart createShortageFrequencyChart(RunDayIndex index) {
+        if (index.getTotalDays() == 0 || index.getRunCount() == 0) {
+            return ChartFactory.createXYLineChart("Shortage Frequency by Day", "Day", "Runs With a Shortage (%)", new XYSeriesCollection());
+        }
 
-        for (int i = 0; i < simulationData.size(); i++) {
-            dataset.addValue(simulationData.get(i).totalTransfers, "Transfers", "Run " + (i + 1));
+        int days = index.getTotalDays();
+        int[] counts = index.getDayCounts(RunDayIndex.Flag.SHORTAGE);
+        double[] shares = new double[days];
+        for (int day = 0; day < days; day++) {
+            shares[day] = counts[day] * 100.0 / index.getRunCount();
         }
 
+        DownsampledXYDataset dataset = new DownsampledXYDataset(dayAxis(days));
+        dataset.addSeries("Runs With a Shortage", shares);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Shortage Frequency by Day",
+                "Day",
+                "Runs With a Shortage (%)",
+                dataset,
+                PlotOrientation.VERTICAL,
+                true, true, false
+        );
+
+        XYPlot plot = chart.getXYPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false);
+        renderer.setSeriesPaint(0, Color.RED);
+        plot.setRenderer(renderer);
+
+        return chart;
+    }
+
+    public static JFreeChart createTransfersChart(RunColumns runColumns) {
+        RunColumnCategoryDataset dataset =
+                new RunColumnCategoryDataset("Transfers", runColumns.getTransfers(), runColumns.size());
+
         return ChartFactory.createBarChart(
                 "Total Basement Transfers Per Run",
                 "Run",
@@ -242,36 +280,117 @@ public class StatisticsVisualization {
         );
     }
 
-    public static JFreeChart createDualAxisInventoryChart(List<SimulationData> simulationData) {
-        if (simulationData.isEmpty() || simulationData.getFirst().firstFloorEndUnits.isEmpty()) {
-            return ChartFactory.createXYLineChart("Ending FF & Ending B Inventory", "Day", "Units", new XYSeriesCollection());
+    /**
+     * Objective of the best setting found so far after each optimizer iteration.
+     */
+    public static JFreeChart createOptimizerProgressChart(double[] bestObjectiveByIteration) {
+        XYSeries series = new XYSeries("Best Objective");
+        for (int iteration = 0; iteration < bestObjectiveByIteration.length; iteration++) {
+            series.add(iteration + 1, bestObjectiveByIteration[iteration]);
         }
 
-        int maxDays = simulationData.getFirst().totalDays;
-        XYSeries ffSeries = new XYSeries("First Floor");
-        XYSeries basementSeries = new XYSeries("Basement");
-
-        for (int day = 0; day < maxDays; day++) {
-            final int dayIndex = day;
-            double avgFF = simulationData.stream()
-                .filter(sd -> dayIndex < sd.firstFloorEndUnits.size())
-                .mapToDouble(sd -> sd.firstFloorEndUnits.get(dayIndex))
-                .average()
-                .orElse(0.0);
-
-            double avgBasement = simulationData.stream()
-                .filter(sd -> dayIndex < sd.basementFloorEndUnits.size())
-                .mapToDouble(sd -> sd.basementFloorEndUnits.get(dayIndex))
-                .average()
-                .orElse(0.0);
-
-            ffSeries.add(day + 1, avgFF);
-            basementSeries.add(day + 1, avgBasement);
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Best Objective by Iteration",
+                "Iteration",
+                "Objective",
+                new XYSeriesCollection(series),
+                PlotOrientation.VERTICAL,
+                true, true, false
+        );
+
+        XYPlot plot = chart.getXYPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, true);
+        renderer.setSeriesPaint(0, Color.BLUE);
+        plot.setRenderer(renderer);
+        ((NumberAxis) plot.getDomainAxis()).setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+
+        return chart;
+    }
+
+    /**
+     * Shortage probability against average ending inventory for every explored setting, with the frontier
+     * joined in order of shortage probability.
+     */
+    public static JFreeChart createParetoFrontierChart(List<ParetoExplorer.Point> points) {
+        XYSeries frontier = new XYSeries("Frontier", true);
+        XYSeries dominated = new XYSeries("Dominated");
+        XYSeries pruned = new XYSeries("Pruned Early");
+        for (ParetoExplorer.Point point : points) {
+            double shortage = point.evaluation().getShortageProbability();
+            double inventory = point.evaluation().getMeanInventory();
+            switch (point.status()) {
+                case FRONTIER -> frontier.add(shortage, inventory);
+                case DOMINATED -> dominated.add(shortage, inventory);
+                case PRUNED -> pruned.add(shortage, inventory);
+            }
         }
 
         XYSeriesCollection dataset = new XYSeriesCollection();
-        dataset.addSeries(ffSeries);
-        dataset.addSeries(basementSeries);
+        dataset.addSeries(frontier);
+        dataset.addSeries(dominated);
+        dataset.addSeries(pruned);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Shortage Probability vs Average Ending Inventory",
+                "Shortage Probability",
+                "Average Ending Inventory",
+                dataset,
+                PlotOrientation.VERTICAL,
+                true, true, false
+        );
+
+        XYPlot plot = chart.getXYPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        renderer.setSeriesPaint(0, Color.BLUE);
+        renderer.setSeriesPaint(1, Color.GRAY);
+        renderer.setSeriesPaint(2, Color.LIGHT_GRAY);
+        renderer.setSeriesLinesVisible(1, false);
+        renderer.setSeriesLinesVisible(2, false);
+        plot.setRenderer(renderer);
+        ((NumberAxis) plot.getRangeAxis()).setAutoRangeIncludesZero(false);
+
+        return chart;
+    }
+
+    /**
+     * First-order and total Sobol index of every factor side by side; a total well above the first-order index
+     * means the factor matters mostly through interactions.
+     */
+    public static JFreeChart createSobolIndicesChart(List<SensitivityAnalysis.Index> indices) {
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        for (SensitivityAnalysis.Index index : indices) {
+            dataset.addValue(index.firstOrder().estimate(), "First Order", index.factor().label());
+            dataset.addValue(index.total().estimate(), "Total", index.factor().label());
+        }
+
+        return ChartFactory.createBarChart(
+                "Sobol Indices of Shortage Probability",
+                "Factor",
+                "Index",
+                dataset,
+                PlotOrientation.HORIZONTAL,
+                true, true, false
+        );
+    }
+
+    public static JFreeChart createDualAxisInventoryChart(DailyInventoryStatistics statistics) {
+        if (statistics.getTotalDays() == 0 || statistics.getCount(0) == 0) {
+            return ChartFactory.createXYLineChart("Ending FF & Ending B Inventory", "Day", "Units", new XYSeriesCollection());
+        }
+
+        int days = statistics.getTotalDays();
+        double[] dayValues = dayAxis(days);
+        double[] ffValues = new double[days];
+        double[] basementValues = new double[days];
+
+        for (int day = 0; day < days; day++) {
+            ffValues[day] = statistics.getFirstFloorMean(day);
+            basementValues[day] = statistics.getBasementMean(day);
+        }
+
+        DownsampledXYDataset dataset = new DownsampledXYDataset(dayValues);
+        dataset.addSeries("First Floor", ffValues);
+        dataset.addSeries("Basement", basementValues);
 
         JFreeChart chart = ChartFactory.createXYLineChart(
                 "Ending FF & Ending B Inventory",
@@ -291,7 +410,8 @@ public class StatisticsVisualization {
         rangeAxis2.setAutoRangeIncludesZero(false);
         plot.setRangeAxis(1, rangeAxis2);
         
-        XYSeriesCollection basementDataset = new XYSeriesCollection(basementSeries);
+        DownsampledXYDataset basementDataset = new DownsampledXYDataset(dayValues);
+        basementDataset.addSeries("Basement", basementValues);
         plot.setDataset(1, basementDataset);
         plot.mapDatasetToRangeAxis(1, 1);
         
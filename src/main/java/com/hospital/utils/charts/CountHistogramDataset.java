@@ -0,0 +1,83 @@
+package com.hospital.utils.charts;
+
+import com.hospital.simulation.IntHistogram;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+/**
+ * Single-series bar dataset reading straight from an {@link IntHistogram}: item {@code i} is value {@code i},
+ * drawn as a unit-wide bar centred on it.
+ */
+public class CountHistogramDataset extends AbstractIntervalXYDataset {
+    private final Comparable<?> seriesKey;
+    private final IntHistogram histogram;
+
+    public CountHistogramDataset(Comparable<?> seriesKey, IntHistogram histogram) {
+        this.seriesKey = seriesKey;
+        this.histogram = histogram;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return 1;
+    }
+
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return seriesKey;
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return histogram.getMaxValue() + 1;
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return item;
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return item;
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return histogram.getCount(item);
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return histogram.getCount(item);
+    }
+
+    @Override
+    public double getStartXValue(int series, int item) {
+        return item - 0.5;
+    }
+
+    @Override
+    public Number getStartX(int series, int item) {
+        return getStartXValue(series, item);
+    }
+
+    @Override
+    public double getEndXValue(int series, int item) {
+        return item + 0.5;
+    }
+
+    @Override
+    public Number getEndX(int series, int item) {
+        return getEndXValue(series, item);
+    }
+
+    @Override
+    public Number getStartY(int series, int item) {
+        return getY(series, item);
+    }
+
+    @Override
+    public Number getEndY(int series, int item) {
+        return getY(series, item);
+    }
+}
@@ -0,0 +1,164 @@
+package com.hospital.utils.charts;
+
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps full-resolution series in primitive arrays and exposes only an LTTB-selected subset for the
+ * currently visible domain range, so the renderer draws a few points per pixel regardless of the horizon.
+ */
+public class DownsampledXYDataset extends AbstractIntervalXYDataset implements DomainInfo {
+    private static final int DEFAULT_PIXEL_WIDTH = 1000;
+
+    private final double[] x;
+    private final List<Comparable<?>> keys = new ArrayList<>();
+    private final List<double[]> values = new ArrayList<>();
+    private final List<double[]> lowValues = new ArrayList<>();
+    private final List<double[]> highValues = new ArrayList<>();
+    private final List<int[]> visible = new ArrayList<>();
+
+    private double viewLower = Double.NEGATIVE_INFINITY;
+    private double viewUpper = Double.POSITIVE_INFINITY;
+    private int pixelWidth = DEFAULT_PIXEL_WIDTH;
+
+    public DownsampledXYDataset(double[] x) {
+        this.x = x;
+    }
+
+    public void addSeries(Comparable<?> key, double[] y) {
+        addSeries(key, y, null, null);
+    }
+
+    public void addSeries(Comparable<?> key, double[] y, double[] low, double[] high) {
+        keys.add(key);
+        values.add(y);
+        lowValues.add(low);
+        highValues.add(high);
+        visible.add(sample(y));
+        fireDatasetChanged();
+    }
+
+    /**
+     * Re-selects the visible points for a new domain range or chart width; a no-op if neither changed.
+     */
+    public void updateView(double lower, double upper, int pixelWidth) {
+        int width = Math.max(pixelWidth, 3);
+        if (lower == viewLower && upper == viewUpper && width == this.pixelWidth) {
+            return;
+        }
+        viewLower = lower;
+        viewUpper = upper;
+        this.pixelWidth = width;
+
+        for (int series = 0; series < values.size(); series++) {
+            visible.set(series, sample(values.get(series)));
+        }
+        fireDatasetChanged();
+    }
+
+    private int[] sample(double[] y) {
+        if (x.length == 0) return new int[0];
+
+        int from = Math.max(Downsampling.lowerBound(x, viewLower) - 1, 0);
+        int to = Math.min(Downsampling.lowerBound(x, viewUpper) + 1, x.length);
+        int[] sampled = Downsampling.largestTriangleThreeBuckets(x, y, from, to, pixelWidth * 2);
+
+        // Keep the global end points so auto-range still spans the whole horizon after zooming in
+        boolean keepFirst = from > 0;
+        boolean keepLast = to < x.length;
+        if (!keepFirst && !keepLast) return sampled;
+
+        int[] result = new int[sampled.length + (keepFirst ? 1 : 0) + (keepLast ? 1 : 0)];
+        int offset = 0;
+        if (keepFirst) result[offset++] = 0;
+        System.arraycopy(sampled, 0, result, offset, sampled.length);
+        if (keepLast) result[result.length - 1] = x.length - 1;
+        return result;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return keys.size();
+    }
+
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return keys.get(series);
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return visible.get(series).length;
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return x[visible.get(series)[item]];
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return values.get(series)[visible.get(series)[item]];
+    }
+
+    @Override
+    public Number getStartX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getEndX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getStartY(int series, int item) {
+        return getStartYValue(series, item);
+    }
+
+    @Override
+    public double getStartYValue(int series, int item) {
+        double[] low = lowValues.get(series);
+        return low == null ? getYValue(series, item) : low[visible.get(series)[item]];
+    }
+
+    @Override
+    public Number getEndY(int series, int item) {
+        return getEndYValue(series, item);
+    }
+
+    @Override
+    public double getEndYValue(int series, int item) {
+        double[] high = highValues.get(series);
+        return high == null ? getYValue(series, item) : high[visible.get(series)[item]];
+    }
+
+    @Override
+    public double getDomainLowerBound(boolean includeInterval) {
+        return x.length == 0 ? Double.NaN : x[0];
+    }
+
+    @Override
+    public double getDomainUpperBound(boolean includeInterval) {
+        return x.length == 0 ? Double.NaN : x[x.length - 1];
+    }
+
+    @Override
+    public Range getDomainBounds(boolean includeInterval) {
+        return x.length == 0 ? null : new Range(x[0], x[x.length - 1]);
+    }
+}
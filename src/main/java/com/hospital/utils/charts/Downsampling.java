@@ -0,0 +1,69 @@
+package com.hospital.utils.charts;
+
+public class Downsampling {
+    /**
+     * Largest-Triangle-Three-Buckets over {@code [from, to)} of an x-ascending series.
+     * Returns the indices of the retained points, always including the first and last one.
+     */
+    public static int[] largestTriangleThreeBuckets(double[] x, double[] y, int from, int to, int threshold) {
+        int length = to - from;
+        if (length <= 0) return new int[0];
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) all[i] = from + i;
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        int sampledIndex = 0;
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int a = from;
+        sampled[sampledIndex++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = from + (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) Math.floor((bucket + 2) * bucketSize) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextLength = Math.max(nextEnd - nextStart, 1);
+            avgX /= nextLength;
+            avgY /= nextLength;
+
+            int rangeStart = from + (int) Math.floor(bucket * bucketSize) + 1;
+            int rangeEnd = from + (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int maxIndex = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((x[a] - avgX) * (y[i] - y[a]) - (x[a] - x[i]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            sampled[sampledIndex++] = maxIndex;
+            a = maxIndex;
+        }
+
+        sampled[sampledIndex] = to - 1;
+        return sampled;
+    }
+
+    /**
+     * First index whose x is {@code >= value} in an ascending array.
+     */
+    public static int lowerBound(double[] x, double value) {
+        int low = 0;
+        int high = x.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
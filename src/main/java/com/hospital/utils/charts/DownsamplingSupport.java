@@ -0,0 +1,53 @@
+package com.hospital.utils.charts;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.Plot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.Range;
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DownsamplingSupport {
+    /**
+     * Keeps every {@link DownsampledXYDataset} of the panel's chart in sync with the visible domain
+     * range and the panel's pixel width. Charts without such datasets are left untouched.
+     */
+    public static void install(ChartPanel chartPanel) {
+        Plot plot = chartPanel.getChart().getPlot();
+        if (!(plot instanceof XYPlot xyPlot)) {
+            return;
+        }
+
+        List<DownsampledXYDataset> datasets = new ArrayList<>();
+        for (int i = 0; i < xyPlot.getDatasetCount(); i++) {
+            if (xyPlot.getDataset(i) instanceof DownsampledXYDataset dataset) {
+                datasets.add(dataset);
+            }
+        }
+        if (datasets.isEmpty()) {
+            return;
+        }
+
+        ValueAxis domainAxis = xyPlot.getDomainAxis();
+        Runnable update = () -> {
+            Range range = domainAxis.getRange();
+            int width = chartPanel.getWidth() > 0 ? chartPanel.getWidth() : chartPanel.getPreferredSize().width;
+            for (DownsampledXYDataset dataset : datasets) {
+                dataset.updateView(range.getLowerBound(), range.getUpperBound(), width);
+            }
+        };
+
+        domainAxis.addChangeListener(event -> update.run());
+        chartPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                update.run();
+            }
+        });
+        update.run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.hospital.utils.charts;
+
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * One-row category dataset over a primitive per-run column. Column keys ("Run 1", "Run 2", ...)
+ * are generated on demand instead of being stored.
+ */
+public class RunColumnCategoryDataset extends AbstractDataset implements CategoryDataset {
+    private static final String RUN_PREFIX = "Run ";
+
+    private final String rowKey;
+    private final int[] values;
+    private final int size;
+    private final List<String> columnKeys;
+
+    public RunColumnCategoryDataset(String rowKey, int[] values, int size) {
+        this.rowKey = rowKey;
+        this.values = values;
+        this.size = size;
+        this.columnKeys = new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return RUN_PREFIX + (index + 1);
+            }
+
+            @Override
+            public int size() {
+                return RunColumnCategoryDataset.this.size;
+            }
+        };
+    }
+
+    @Override
+    public Comparable getRowKey(int row) {
+        return rowKey;
+    }
+
+    @Override
+    public int getRowIndex(Comparable key) {
+        return rowKey.equals(key) ? 0 : -1;
+    }
+
+    @Override
+    public List getRowKeys() {
+        return List.of(rowKey);
+    }
+
+    @Override
+    public Comparable getColumnKey(int column) {
+        return columnKeys.get(column);
+    }
+
+    @Override
+    public int getColumnIndex(Comparable key) {
+        if (key instanceof String text && text.startsWith(RUN_PREFIX)) {
+            try {
+                int index = Integer.parseInt(text.substring(RUN_PREFIX.length())) - 1;
+                return index >= 0 && index < size ? index : -1;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List getColumnKeys() {
+        return columnKeys;
+    }
+
+    @Override
+    public Number getValue(Comparable rowKey, Comparable columnKey) {
+        int row = getRowIndex(rowKey);
+        int column = getColumnIndex(columnKey);
+        if (row < 0 || column < 0) {
+            throw new UnknownKeyException("Unknown key: " + rowKey + ", " + columnKey);
+        }
+        return getValue(row, column);
+    }
+
+    @Override
+    public int getRowCount() {
+        return 1;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return size;
+    }
+
+    @Override
+    public Number getValue(int row, int column) {
+        return values[column];
+    }
+}
@@ -0,0 +1,170 @@
+package com.hospital.utils.charts;
+
+import com.hospital.simulation.RunDayIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Day x run grid of one value per cell, rendered straight into an ARGB pixel array. Level {@code k} of the
+ * pyramid holds the mean of every {@code 2^k x 2^k} block of cells quantized to a byte, so each pixel is
+ * drawn from the coarsest level that is still finer than the pixel and touches a handful of cells whatever
+ * the zoom. A 100k x 3650 study needs about 120 MB for its levels; the cells themselves are read from the
+ * caller's arrays.
+ */
+public class RunHeatmap {
+    private static final int TILE_ROWS = 64;
+    private static final int MAX_SAMPLES = 8;
+
+    /**
+     * A cell's value, between 0 and the heatmap's maximum.
+     */
+    @FunctionalInterface
+    public interface CellSource {
+        double get(int run, int day);
+    }
+
+    private final int runCount;
+    private final int totalDays;
+    private final double maxValue;
+    private final CellSource cells;
+    private final List<Level> levels = new ArrayList<>();
+
+    public RunHeatmap(int runCount, int totalDays, double maxValue, CellSource cells) {
+        this.runCount = runCount;
+        this.totalDays = totalDays;
+        this.maxValue = maxValue > 0 ? maxValue : 1;
+        this.cells = cells;
+        buildLevels();
+    }
+
+    /**
+     * Values as {@code [run][day]}, such as a run series column.
+     */
+    public static RunHeatmap ofSeries(int[][] series, int totalDays, int maxValue) {
+        return new RunHeatmap(series.length, totalDays, maxValue,
+                (run, day) -> day < series[run].length ? series[run][day] : 0);
+    }
+
+    /**
+     * 1 where the run has the flag on the day, so coarse levels show the share of flagged cells.
+     */
+    public static RunHeatmap ofFlag(RunDayIndex index, RunDayIndex.Flag flag) {
+        return new RunHeatmap(index.getRunCount(), index.getTotalDays(), 1,
+                (run, day) -> index.isSet(flag, run, day + 1) ? 1 : 0);
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getTotalDays() {
+        return totalDays;
+    }
+
+    /**
+     * The value of one cell; {@code day} is 0-based.
+     */
+    public double getValue(int run, int day) {
+        return cells.get(run, day);
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    private void buildLevels() {
+        int runs = runCount;
+        int days = totalDays;
+        Level previous = null;
+        while (runs > 1 || days > 1) {
+            int levelRuns = (runs + 1) / 2;
+            int levelDays = (days + 1) / 2;
+            byte[] values = new byte[levelRuns * levelDays];
+            Level source = previous;
+            int sourceRuns = runs;
+            int sourceDays = days;
+            IntStream.range(0, levelRuns).parallel().forEach(run -> {
+                for (int day = 0; day < levelDays; day++) {
+                    double sum = 0;
+                    int count = 0;
+                    for (int r = run * 2; r < Math.min(run * 2 + 2, sourceRuns); r++) {
+                        for (int d = day * 2; d < Math.min(day * 2 + 2, sourceDays); d++) {
+                            sum += source == null ? normalized(r, d) : source.get(r, d);
+                            count++;
+                        }
+                    }
+                    values[run * levelDays + day] = (byte) Math.round(sum / count * 255);
+                }
+            });
+            previous = new Level(levelRuns, levelDays, values);
+            levels.add(previous);
+            runs = levelRuns;
+            days = levelDays;
+        }
+    }
+
+    private double normalized(int run, int day) {
+        return Math.min(Math.max(cells.get(run, day) / maxValue, 0), 1);
+    }
+
+    /**
+     * Fills {@code pixels} ({@code width x height}, row-major) with the cells in
+     * {@code [dayFrom, dayTo) x [runFrom, runTo)}, mapping each pixel's mean value through {@code palette}
+     * (256 ARGB colours, lowest value first). Rows are rendered in parallel tiles.
+     */
+    public void render(int[] pixels, int width, int height, double dayFrom, double dayTo,
+                       double runFrom, double runTo, int[] palette) {
+        double daysPerPixel = (dayTo - dayFrom) / width;
+        double runsPerPixel = (runTo - runFrom) / height;
+        double span = Math.min(daysPerPixel, runsPerPixel);
+        int level = span < 2 ? 0 : Math.min(levels.size(), 31 - Integer.numberOfLeadingZeros((int) Math.min(span, Integer.MAX_VALUE)));
+        int tiles = (height + TILE_ROWS - 1) / TILE_ROWS;
+
+        IntStream.range(0, tiles).parallel().forEach(tile -> {
+            for (int y = tile * TILE_ROWS; y < Math.min(height, (tile + 1) * TILE_ROWS); y++) {
+                double runStart = runFrom + y * runsPerPixel;
+                for (int x = 0; x < width; x++) {
+                    double dayStart = dayFrom + x * daysPerPixel;
+                    double value = mean(level, runStart, runStart + runsPerPixel, dayStart, dayStart + daysPerPixel);
+                    pixels[y * width + x] = palette[(int) Math.round(value * 255)];
+                }
+            }
+        });
+    }
+
+    private double mean(int level, double runStart, double runEnd, double dayStart, double dayEnd) {
+        int scale = 1 << level;
+        Level cellsLevel = level == 0 ? null : levels.get(level - 1);
+        int levelRuns = cellsLevel == null ? runCount : cellsLevel.runs();
+        int levelDays = cellsLevel == null ? totalDays : cellsLevel.days();
+        int firstRun = clamp((int) Math.floor(runStart / scale), levelRuns);
+        int lastRun = Math.max(firstRun + 1, Math.min(levelRuns, (int) Math.ceil(runEnd / scale)));
+        int firstDay = clamp((int) Math.floor(dayStart / scale), levelDays);
+        int lastDay = Math.max(firstDay + 1, Math.min(levelDays, (int) Math.ceil(dayEnd / scale)));
+        // Levels are square, so the longer axis of a pixel can still cover many cells; sample it evenly instead
+        int runStep = Math.max(1, (lastRun - firstRun) / MAX_SAMPLES);
+        int dayStep = Math.max(1, (lastDay - firstDay) / MAX_SAMPLES);
+
+        double sum = 0;
+        int count = 0;
+        for (int run = firstRun; run < lastRun; run += runStep) {
+            for (int day = firstDay; day < lastDay; day += dayStep) {
+                sum += cellsLevel == null ? normalized(run, day) : cellsLevel.get(run, day);
+                count++;
+            }
+        }
+        return sum / count;
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(index, size - 1));
+    }
+
+    private record Level(int runs, int days, byte[] values) {
+        double get(int run, int day) {
+            return (values[run * days + day] & 0xFF) / 255.0;
+        }
+    }
+}